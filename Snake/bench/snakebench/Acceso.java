@@ -0,0 +1,314 @@
+package snakebench;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+/**
+ * The {@code Acceso} class gives the benchmarks access to the game. The
+ * game lives in the default package, which a named package cannot import
+ * (and JMH does not take benchmarks in the default package), so its
+ * classes are looked up by name and their methods, private ones included,
+ * are called through method handles. The handles are constants, so the JIT
+ * inlines them like direct calls.
+ *
+ * It also builds games with a snake of a given length that can run around
+ * the board forever, following a cycle through every tile.
+ *
+ * @author Brendan Jones
+ *
+ */
+final class Acceso {
+
+    //clases del juego
+    static final Class<?> clsENGINE = clase("SnakeEngine");
+    static final Class<?> clsBOARD = clase("GameBoard");
+    static final Class<?> clsTILE_TYPE = clase("TileType");
+    static final Class<?> clsDIRECTION = clase("Direction");
+    static final Class<?> clsGAME = clase("SnakeGame");
+    static final Class<?> clsBOARD_PANEL = clase("BoardPanel");
+
+    private static final MethodHandle mhNEW_ENGINE = constructor(clsENGINE, int.class, int.class);
+    private static final MethodHandle mhGET_BOARD = metodo(clsENGINE, "getBoard");
+    private static final MethodHandle mhUPDATE_SNAKE = metodo(clsENGINE, "updateSnake");
+    private static final MethodHandle mhSPAWN_FRUIT = metodo(clsENGINE, "spawnFruit");
+    private static final MethodHandle mhSTEER = metodo(clsENGINE, "steer", clsDIRECTION);
+    private static final MethodHandle mhGET_DIRECTION = metodo(clsENGINE, "getDirection");
+    private static final MethodHandle mhGET_SNAKE_CELL = metodo(clsENGINE, "getSnakeCell", int.class);
+    private static final MethodHandle mhGUARDAR_ESTADO = metodo(clsENGINE, "guardarEstado", DataOutput.class);
+    private static final MethodHandle mhCARGAR_ESTADO = metodo(clsENGINE, "cargarEstado", DataInput.class);
+    private static final MethodHandle mhSET_TILE = metodo(clsBOARD, "setTile", int.class, clsTILE_TYPE);
+    private static final MethodHandle mhGET_TABLERO = metodo(clsBOARD, "getTablero");
+    private static final MethodHandle mhSET_TABLERO = metodo(clsBOARD, "setTablero", int[].class);
+    private static final MethodHandle mhMARK_ALL_CHANGED = metodo(clsBOARD, "markAllChanged");
+    private static final MethodHandle mhNEW_GAME = constructor(clsGAME, int.class, int.class, int.class);
+    private static final MethodHandle mhGET_ENGINE = metodo(clsGAME, "getEngine");
+    private static final MethodHandle mhREPAINT_CHANGES = metodo(clsBOARD_PANEL, "repaintChanges");
+    private static final MethodHandle mhPAINT_COMPONENT = metodo(clsBOARD_PANEL, "paintComponent", java.awt.Graphics.class);
+
+    /**
+     * The directions in the order the cycle uses them.
+     */
+    private static final Object objNORTH = constante(clsDIRECTION, "North");
+    private static final Object objSOUTH = constante(clsDIRECTION, "South");
+    private static final Object objEAST = constante(clsDIRECTION, "East");
+    private static final Object objWEST = constante(clsDIRECTION, "West");
+
+    private Acceso() {
+    }
+
+    private static Class<?> clase(String sNombre) {
+        try {
+            return Class.forName(sNombre);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("The game classes are not on the classpath", e);
+        }
+    }
+
+    private static Object constante(Class<?> clsEnum, String sNombre) {
+        for (Object objConstante : clsEnum.getEnumConstants()) {
+            if (((Enum<?>) objConstante).name().equals(sNombre)) {
+                return objConstante;
+            }
+        }
+        throw new IllegalStateException("No " + clsEnum.getName() + "." + sNombre);
+    }
+
+    /**
+     * Gets a handle to a method, with the classes of the game replaced by
+     * {@code Object} in its type.
+     */
+    private static MethodHandle metodo(Class<?> clsClase, String sNombre, Class<?>... clsParametros) {
+        try {
+            Method mtdMetodo = clsClase.getDeclaredMethod(sNombre, clsParametros);
+            mtdMetodo.setAccessible(true);
+            MethodHandle mthHandle = MethodHandles.lookup().unreflect(mtdMetodo);
+            return mthHandle.asType(borrar(mthHandle.type()));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("No " + clsClase.getName() + "." + sNombre, e);
+        }
+    }
+
+    /**
+     * Gets a handle to a constructor, returning {@code Object}.
+     */
+    private static MethodHandle constructor(Class<?> clsClase, Class<?>... clsParametros) {
+        try {
+            Constructor<?> ctrConstructor = clsClase.getDeclaredConstructor(clsParametros);
+            ctrConstructor.setAccessible(true);
+            MethodHandle mthHandle = MethodHandles.lookup().unreflectConstructor(ctrConstructor);
+            return mthHandle.asType(borrar(mthHandle.type()));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("No constructor of " + clsClase.getName(), e);
+        }
+    }
+
+    /**
+     * Replaces every class of the game in a method type by {@code Object},
+     * the primitives and the JDK classes stay.
+     */
+    private static MethodType borrar(MethodType mtyTipo) {
+        for (int iI = 0; iI < mtyTipo.parameterCount(); iI++) {
+            if (esDelJuego(mtyTipo.parameterType(iI))) {
+                mtyTipo = mtyTipo.changeParameterType(iI, Object.class);
+            }
+        }
+        if (esDelJuego(mtyTipo.returnType())) {
+            mtyTipo = mtyTipo.changeReturnType(Object.class);
+        }
+        return mtyTipo;
+    }
+
+    private static boolean esDelJuego(Class<?> clsClase) {
+        //las clases del juego son las unicas en el paquete por defecto
+        return !clsClase.isPrimitive() && !clsClase.isArray() && clsClase.getName().indexOf('.') < 0;
+    }
+
+    static Object newEngine(int iColumns, int iRows) throws Throwable {
+        return (Object) mhNEW_ENGINE.invokeExact(iColumns, iRows);
+    }
+
+    static Object getBoard(Object objEngine) throws Throwable {
+        return (Object) mhGET_BOARD.invokeExact(objEngine);
+    }
+
+    static Object updateSnake(Object objEngine) throws Throwable {
+        return (Object) mhUPDATE_SNAKE.invokeExact(objEngine);
+    }
+
+    static void spawnFruit(Object objEngine) throws Throwable {
+        mhSPAWN_FRUIT.invokeExact(objEngine);
+    }
+
+    static boolean steer(Object objEngine, Object objDirection) throws Throwable {
+        return (boolean) mhSTEER.invokeExact(objEngine, objDirection);
+    }
+
+    static Object getDirection(Object objEngine) throws Throwable {
+        return (Object) mhGET_DIRECTION.invokeExact(objEngine);
+    }
+
+    static int getSnakeCell(Object objEngine, int iIndex) throws Throwable {
+        return (int) mhGET_SNAKE_CELL.invokeExact(objEngine, iIndex);
+    }
+
+    static void guardarEstado(Object objEngine, DataOutput dotSalida) throws Throwable {
+        mhGUARDAR_ESTADO.invokeExact(objEngine, dotSalida);
+    }
+
+    static void cargarEstado(Object objEngine, DataInput dinEntrada) throws Throwable {
+        mhCARGAR_ESTADO.invokeExact(objEngine, dinEntrada);
+    }
+
+    static void setTile(Object objBoard, int iCell, Object objType) throws Throwable {
+        mhSET_TILE.invokeExact(objBoard, iCell, objType);
+    }
+
+    static int[] getTablero(Object objBoard) throws Throwable {
+        return (int[]) mhGET_TABLERO.invokeExact(objBoard);
+    }
+
+    static void setTablero(Object objBoard, int[] iArrTablero) throws Throwable {
+        mhSET_TABLERO.invokeExact(objBoard, iArrTablero);
+    }
+
+    static void markAllChanged(Object objBoard) throws Throwable {
+        mhMARK_ALL_CHANGED.invokeExact(objBoard);
+    }
+
+    /**
+     * Opens the game's window, drawn by Swing. Needs a display.
+     */
+    static Object newGame(int iColumns, int iRows) throws Throwable {
+        return (Object) mhNEW_GAME.invokeExact(iColumns, iRows, 0);
+    }
+
+    static Object getEngine(Object objGame) throws Throwable {
+        return (Object) mhGET_ENGINE.invokeExact(objGame);
+    }
+
+    static void repaintChanges(Object objPanel) throws Throwable {
+        mhREPAINT_CHANGES.invokeExact(objPanel);
+    }
+
+    static void paintComponent(Object objPanel, java.awt.Graphics g) throws Throwable {
+        mhPAINT_COMPONENT.invokeExact(objPanel, g);
+    }
+
+    /**
+     * Reads a field of any object, private ones included.
+     */
+    static Object leerCampo(Object objObjeto, String sNombre) throws ReflectiveOperationException {
+        Field fldCampo = objObjeto.getClass().getDeclaredField(sNombre);
+        fldCampo.setAccessible(true);
+        return fldCampo.get(objObjeto);
+    }
+
+    /**
+     * Makes a cycle that goes through every tile of the board: east and west
+     * along the rows, leaving out the first column, and back north along the
+     * first column. The number of rows has to be even.
+     *
+     * @return The tile that follows each tile.
+     */
+    static int[] crearCiclo(int iColumns, int iRows) {
+        if (iRows % 2 != 0 || iColumns < 2) {
+            throw new IllegalArgumentException("No cycle on a " + iColumns + "x" + iRows + " board");
+        }
+        int[] iSiguiente = new int[iColumns * iRows];
+        for (int iY = 0; iY < iRows; iY++) {
+            boolean bEste = iY % 2 == 0;
+            for (int iX = 1; iX < iColumns; iX++) {
+                int iCell = iY * iColumns + iX;
+                if (bEste) {
+                    iSiguiente[iCell] = iX == iColumns - 1 ? iCell + iColumns : iCell + 1;
+                } else {
+                    iSiguiente[iCell] = iX == 1 ? (iY == iRows - 1 ? iCell - 1 : iCell + iColumns) : iCell - 1;
+                }
+            }
+            //la primera columna sube hasta la esquina y entra a la primera fila
+            iSiguiente[iY * iColumns] = iY == 0 ? 1 : (iY - 1) * iColumns;
+        }
+        return iSiguiente;
+    }
+
+    /**
+     * Gets the direction from each tile to the next one on a cycle.
+     */
+    static Object[] crearDirecciones(int[] iSiguiente, int iColumns) {
+        Object[] objDirecciones = new Object[iSiguiente.length];
+        for (int iC = 0; iC < iSiguiente.length; iC++) {
+            int iDelta = iSiguiente[iC] - iC;
+            if (iDelta == 1) {
+                objDirecciones[iC] = objEAST;
+            } else if (iDelta == -1) {
+                objDirecciones[iC] = objWEST;
+            } else if (iDelta == iColumns) {
+                objDirecciones[iC] = objSOUTH;
+            } else {
+                objDirecciones[iC] = objNORTH;
+            }
+        }
+        return objDirecciones;
+    }
+
+    /**
+     * Loads a game into an engine with only a snake on the board, its head
+     * on the given tile and its body on the tiles before it on the cycle.
+     * The record is written in the format of {@code guardarEstado}.
+     *
+     * @param objEngine The engine.
+     * @param iSiguiente The cycle.
+     * @param iColumns The number of columns of the board.
+     * @param iHead The tile of the head.
+     * @param iLength The length of the snake, less than the number of tiles.
+     */
+    static void cargarSnake(Object objEngine, int[] iSiguiente, int iColumns,
+            int iHead, int iLength) throws Throwable {
+        int iTiles = iSiguiente.length;
+        if (iLength < 1 || iLength >= iTiles) {
+            throw new IllegalArgumentException("Invalid snake length: " + iLength);
+        }
+        int[] iAnterior = new int[iTiles];
+        for (int iC = 0; iC < iTiles; iC++) {
+            iAnterior[iSiguiente[iC]] = iC;
+        }
+        byte[] bytTablero = new byte[iTiles];
+
+        ByteArrayOutputStream baoRegistro = new ByteArrayOutputStream();
+        DataOutputStream dotSalida = new DataOutputStream(baoRegistro);
+        dotSalida.writeInt(iColumns);
+        dotSalida.writeInt(iTiles / iColumns);
+        dotSalida.writeInt(0);
+        dotSalida.writeInt(0);
+        dotSalida.writeInt(100);
+        dotSalida.writeBoolean(false);
+        dotSalida.writeBoolean(false);
+        dotSalida.writeBoolean(false);
+        //la snake, de la cabeza a la cola
+        dotSalida.writeInt(iLength);
+        int iCell = iHead;
+        for (int iI = 0; iI < iLength; iI++) {
+            dotSalida.writeInt(iCell);
+            bytTablero[iCell] = (byte) (iI == 0 ? 2 : 3);
+            iCell = iAnterior[iCell];
+        }
+        //la direccion hacia el siguiente tile del ciclo
+        dotSalida.writeInt(1);
+        int iDelta = iSiguiente[iHead] - iHead;
+        dotSalida.writeByte(iDelta == -iColumns ? 1 : iDelta == iColumns ? 2 : iDelta == 1 ? 3 : 4);
+        dotSalida.write(bytTablero);
+        dotSalida.flush();
+        cargarEstado(objEngine, new DataInputStream(new ByteArrayInputStream(baoRegistro.toByteArray())));
+    }
+
+}
@@ -0,0 +1,65 @@
+package snakebench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The {@code BoardBenchmark} class measures turning the board into the
+ * array of ints that is saved ({@code getTablero}) and back
+ * ({@code setTablero}), on square boards of several sizes with a snake on
+ * a quarter of the tiles.
+ *
+ * @author Brendan Jones
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+    /**
+     * The number of columns and rows of the board, it has to be even.
+     */
+    @Param({"24", "50", "100"})
+    public int iSize;
+
+    private Object objBoard;
+
+    //el tablero como lo escribe getTablero, para setTablero
+    private int[] iTablero;
+
+    @Setup(Level.Trial)
+    public void setup() throws Throwable {
+        Object objEngine = Acceso.newEngine(iSize, iSize);
+        objBoard = Acceso.getBoard(objEngine);
+        int[] iSiguiente = Acceso.crearCiclo(iSize, iSize);
+        Acceso.cargarSnake(objEngine, iSiguiente, iSize, 0, iSize * iSize / 4);
+        iTablero = Acceso.getTablero(objBoard);
+    }
+
+    @Benchmark
+    public int[] getTablero() throws Throwable {
+        return Acceso.getTablero(objBoard);
+    }
+
+    @Benchmark
+    public void setTablero() throws Throwable {
+        Acceso.setTablero(objBoard, iTablero);
+    }
+
+}
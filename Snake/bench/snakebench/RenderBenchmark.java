@@ -0,0 +1,110 @@
+package snakebench;
+
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Window;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The {@code RenderBenchmark} class measures {@code BoardPanel}'s
+ * {@code paintComponent} drawing into an offscreen {@code BufferedImage},
+ * on square boards of several sizes with a snake on a quarter of the
+ * tiles: once with every tile redrawn, and once after the snake moved one
+ * tile, when only the tiles that changed are redrawn.
+ *
+ * The panel belongs to a {@code SnakeGame}, whose window is opened and
+ * hidden again (the game loop is not started), so this benchmark needs a
+ * display; on a headless machine its setup fails.
+ *
+ * @author Brendan Jones
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+
+    /**
+     * The number of columns and rows of the board, it has to be even.
+     */
+    @Param({"24", "50", "100"})
+    public int iSize;
+
+    private Object objGame;
+    private Object objEngine;
+    private Object objBoard;
+    private Object objPanel;
+    private Object[] objDirecciones;
+
+    private BufferedImage imgDestino;
+    private Graphics2D g2dDestino;
+
+    @Setup(Level.Trial)
+    public void setup() throws Throwable {
+        objGame = Acceso.newGame(iSize, iSize);
+        //sin la ventana Swing no pinta el panel por su cuenta
+        ((Window) objGame).setVisible(false);
+        objEngine = Acceso.getEngine(objGame);
+        objBoard = Acceso.getBoard(objEngine);
+        objPanel = Acceso.leerCampo(objGame, "bpnBoard");
+        int[] iSiguiente = Acceso.crearCiclo(iSize, iSize);
+        objDirecciones = Acceso.crearDirecciones(iSiguiente, iSize);
+        Acceso.cargarSnake(objEngine, iSiguiente, iSize, 0, iSize * iSize / 4);
+
+        Dimension dimPanel = ((Component) objPanel).getPreferredSize();
+        imgDestino = new BufferedImage(dimPanel.width, dimPanel.height, BufferedImage.TYPE_INT_RGB);
+        g2dDestino = imgDestino.createGraphics();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        g2dDestino.dispose();
+        ((Window) objGame).dispose();
+    }
+
+    /**
+     * Paints the whole board.
+     */
+    @Benchmark
+    public BufferedImage paintAll() throws Throwable {
+        Acceso.markAllChanged(objBoard);
+        Acceso.repaintChanges(objPanel);
+        Acceso.paintComponent(objPanel, g2dDestino);
+        return imgDestino;
+    }
+
+    /**
+     * Moves the snake one tile and paints the tiles that changed.
+     */
+    @Benchmark
+    public BufferedImage paintStep() throws Throwable {
+        Object objDireccion = objDirecciones[Acceso.getSnakeCell(objEngine, 0)];
+        if (objDireccion != Acceso.getDirection(objEngine)) {
+            Acceso.steer(objEngine, objDireccion);
+        }
+        Acceso.updateSnake(objEngine);
+        Acceso.repaintChanges(objPanel);
+        Acceso.paintComponent(objPanel, g2dDestino);
+        return imgDestino;
+    }
+
+}
@@ -0,0 +1,95 @@
+package snakebench;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The {@code SaveLoadBenchmark} class measures saving a game and loading
+ * it back, the way {@code SnakeGame.Guardar(long, long)} and
+ * {@code SnakeGame.Cargar(long)} do it: open datos.dat, seek its channel to
+ * the record and write or read it through a buffered stream with
+ * {@code guardarEstado} and {@code cargarEstado}.
+ * The file is in a temporary directory that is deleted at the end, and the
+ * window and dialogs of the game are left out.
+ *
+ * @author Brendan Jones
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SaveLoadBenchmark {
+
+    /**
+     * The number of columns and rows of the board, it has to be even.
+     */
+    @Param({"24", "50", "100"})
+    public int iSize;
+
+    //el juego que se guarda y en el que se carga
+    private Object objGuardado;
+    private Object objCargado;
+
+    private File filDirectorio;
+    private File filDatos;
+
+    @Setup(Level.Trial)
+    public void setup() throws Throwable {
+        objGuardado = Acceso.newEngine(iSize, iSize);
+        objCargado = Acceso.newEngine(iSize, iSize);
+        int[] iSiguiente = Acceso.crearCiclo(iSize, iSize);
+        Acceso.cargarSnake(objGuardado, iSiguiente, iSize, 0, iSize * iSize / 4);
+        filDirectorio = Files.createTempDirectory("snakebench").toFile();
+        filDatos = new File(filDirectorio, "datos.dat");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(filDatos.toPath());
+        Files.deleteIfExists(filDirectorio.toPath());
+    }
+
+    @Benchmark
+    public Object guardarCargar() throws Throwable {
+        try (RandomAccessFile rafSalida = new RandomAccessFile(filDatos, "rw");
+                DataOutputStream dotSalida = new DataOutputStream(new BufferedOutputStream(
+                        Channels.newOutputStream(rafSalida.getChannel())))) {
+            rafSalida.getChannel().position(0);
+            Acceso.guardarEstado(objGuardado, dotSalida);
+            dotSalida.flush();
+        }
+        try (RandomAccessFile rafEntrada = new RandomAccessFile(filDatos, "r");
+                DataInputStream dinEntrada = new DataInputStream(new BufferedInputStream(
+                        Channels.newInputStream(rafEntrada.getChannel())))) {
+            rafEntrada.getChannel().position(0);
+            Acceso.cargarEstado(objCargado, dinEntrada);
+        }
+        return objCargado;
+    }
+
+}
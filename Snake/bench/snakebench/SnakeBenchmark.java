@@ -0,0 +1,95 @@
+package snakebench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The {@code SnakeBenchmark} class measures the two steps of a tick that
+ * touch the board: moving the snake ({@code updateSnake}) and placing a
+ * fruit on a random free tile ({@code spawnFruit}), on square boards of
+ * several sizes with snakes of several lengths.
+ *
+ * The snake runs along a cycle through every tile, so it never dies and
+ * keeps its length; the board has nothing else on it.
+ *
+ * @author Brendan Jones
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnakeBenchmark {
+
+    /**
+     * The number of columns and rows of the board, it has to be even.
+     */
+    @Param({"24", "50", "100"})
+    public int iSize;
+
+    /**
+     * The length of the snake, less than the number of tiles.
+     */
+    @Param({"8", "64", "256"})
+    public int iLength;
+
+    private Object objEngine;
+    private Object objBoard;
+
+    //la direccion que sigue el ciclo en cada tile
+    private Object[] objDirecciones;
+
+    //la celda de cada fruta, la escribe spawnFruit
+    private int[] iFruitCells;
+
+    @Setup(Level.Trial)
+    public void setup() throws Throwable {
+        objEngine = Acceso.newEngine(iSize, iSize);
+        objBoard = Acceso.getBoard(objEngine);
+        int[] iSiguiente = Acceso.crearCiclo(iSize, iSize);
+        objDirecciones = Acceso.crearDirecciones(iSiguiente, iSize);
+        Acceso.cargarSnake(objEngine, iSiguiente, iSize, iSize * iSize / 2, iLength);
+        iFruitCells = (int[]) Acceso.leerCampo(objEngine, "iFruitCells");
+    }
+
+    /**
+     * Moves the snake one tile along the cycle, steering it first at the
+     * ends of the rows.
+     */
+    @Benchmark
+    public Object updateSnake() throws Throwable {
+        Object objDireccion = objDirecciones[Acceso.getSnakeCell(objEngine, 0)];
+        if (objDireccion != Acceso.getDirection(objEngine)) {
+            Acceso.steer(objEngine, objDireccion);
+        }
+        return Acceso.updateSnake(objEngine);
+    }
+
+    /**
+     * Places a fruit, then clears its tile so the board stays the same.
+     */
+    @Benchmark
+    public int spawnFruit() throws Throwable {
+        Acceso.spawnFruit(objEngine);
+        int iCell = iFruitCells[0];
+        if (iCell >= 0) {
+            Acceso.setTile(objBoard, iCell, null);
+        }
+        return iCell;
+    }
+
+}
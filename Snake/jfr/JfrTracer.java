@@ -0,0 +1,268 @@
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The {@code JfrTracer} class records the game's events with the Java
+ * Flight Recorder, so a recording shows long ticks next to the GC, the saves
+ * and loads and the audio in JDK Mission Control.
+ *
+ * It is kept apart from the game's sources because jdk.jfr is not part of
+ * Java 8 before 8u262; {@code GameEvents} loads it by reflection and falls
+ * back to recording nothing when it cannot.
+ *
+ * An event is only created when a recording has its type enabled, so while
+ * nothing records, the hot paths allocate nothing for it.
+ *
+ * @author Brendan Jones
+ *
+ */
+public final class JfrTracer implements GameTracer {
+
+    //tipos de cada evento, para saber sin crear uno si se estan grabando
+    private final EventType evtTick = EventType.getEventType(TickEvent.class);
+    private final EventType evtSpawn = EventType.getEventType(SpawnEvent.class);
+    private final EventType evtSave = EventType.getEventType(SaveEvent.class);
+    private final EventType evtLoad = EventType.getEventType(LoadEvent.class);
+    private final EventType evtUserLookup = EventType.getEventType(UserLookupEvent.class);
+    private final EventType evtSoundPlay = EventType.getEventType(SoundPlayEvent.class);
+
+    /**
+     * Begins a new event.
+     */
+    private static Object begin(Event eveEvent) {
+        eveEvent.begin();
+        return eveEvent;
+    }
+
+    @Override
+    public Object beginTick() {
+        return evtTick.isEnabled() ? begin(new TickEvent()) : null;
+    }
+
+    @Override
+    public void commitTick(Object objEvent, long lTick, int iSnakeLength, TileType tltCollision) {
+        TickEvent tevTick = (TickEvent) objEvent;
+        tevTick.end();
+        if (tevTick.shouldCommit()) {
+            tevTick.lTick = lTick;
+            tevTick.iSnakeLength = iSnakeLength;
+            tevTick.sCollision = tltCollision == null ? null : tltCollision.name();
+            tevTick.commit();
+        }
+    }
+
+    @Override
+    public Object beginSpawn() {
+        return evtSpawn.isEnabled() ? begin(new SpawnEvent()) : null;
+    }
+
+    @Override
+    public void commitSpawn(Object objEvent, long lTick, TileType tltType, int iCell, int iFree) {
+        SpawnEvent sevSpawn = (SpawnEvent) objEvent;
+        sevSpawn.end();
+        if (sevSpawn.shouldCommit()) {
+            sevSpawn.lTick = lTick;
+            sevSpawn.sTile = tltType.name();
+            sevSpawn.iCell = iCell;
+            sevSpawn.iFree = iFree;
+            sevSpawn.commit();
+        }
+    }
+
+    @Override
+    public Object beginSave() {
+        return evtSave.isEnabled() ? begin(new SaveEvent()) : null;
+    }
+
+    @Override
+    public void commitSave(Object objEvent, long lTick, int iSnakeLength, long lOffset, long lBytes) {
+        SaveEvent sevGuardar = (SaveEvent) objEvent;
+        sevGuardar.end();
+        if (sevGuardar.shouldCommit()) {
+            sevGuardar.lTick = lTick;
+            sevGuardar.iSnakeLength = iSnakeLength;
+            sevGuardar.lOffset = lOffset;
+            sevGuardar.lBytes = lBytes;
+            sevGuardar.commit();
+        }
+    }
+
+    @Override
+    public Object beginLoad() {
+        return evtLoad.isEnabled() ? begin(new LoadEvent()) : null;
+    }
+
+    @Override
+    public void commitLoad(Object objEvent, long lTick, int iSnakeLength, long lOffset, long lBytes) {
+        LoadEvent levCargar = (LoadEvent) objEvent;
+        levCargar.end();
+        if (levCargar.shouldCommit()) {
+            levCargar.lTick = lTick;
+            levCargar.iSnakeLength = iSnakeLength;
+            levCargar.lOffset = lOffset;
+            levCargar.lBytes = lBytes;
+            levCargar.commit();
+        }
+    }
+
+    @Override
+    public Object beginUserLookup() {
+        return evtUserLookup.isEnabled() ? begin(new UserLookupEvent()) : null;
+    }
+
+    @Override
+    public void commitUserLookup(Object objEvent, int iUsers, boolean bFound, long lBytes) {
+        UserLookupEvent uevBusqueda = (UserLookupEvent) objEvent;
+        uevBusqueda.end();
+        if (uevBusqueda.shouldCommit()) {
+            uevBusqueda.iUsers = iUsers;
+            uevBusqueda.bFound = bFound;
+            uevBusqueda.lBytes = lBytes;
+            uevBusqueda.commit();
+        }
+    }
+
+    @Override
+    public Object beginSoundPlay() {
+        return evtSoundPlay.isEnabled() ? begin(new SoundPlayEvent()) : null;
+    }
+
+    @Override
+    public void commitSoundPlay(Object objEvent, String sFile, boolean bLooping) {
+        SoundPlayEvent spePlay = (SoundPlayEvent) objEvent;
+        spePlay.end();
+        if (spePlay.shouldCommit()) {
+            spePlay.sFile = sFile;
+            spePlay.bLooping = bLooping;
+            spePlay.commit();
+        }
+    }
+
+    /**
+     * One tick of a {@code SnakeEngine}.
+     */
+    @Name("snake.Tick")
+    @Label("Game Tick")
+    @Category("Snake")
+    @Description("One tick of the game logic")
+    public static class TickEvent extends Event {
+
+        @Label("Tick")
+        long lTick;
+
+        @Label("Snake Length")
+        int iSnakeLength;
+
+        @Label("Collision")
+        @Description("The tile the head moved into, if it was not empty")
+        String sCollision;
+    }
+
+    /**
+     * A tile placed on a random free space of the board.
+     */
+    @Name("snake.Spawn")
+    @Label("Tile Spawn")
+    @Category("Snake")
+    @Description("A fruit or venom placed on a free tile")
+    public static class SpawnEvent extends Event {
+
+        @Label("Tick")
+        long lTick;
+
+        @Label("Tile")
+        String sTile;
+
+        @Label("Cell")
+        @Description("The cell the tile was placed on, -1 if the board was full")
+        int iCell;
+
+        @Label("Free Tiles")
+        int iFree;
+    }
+
+    /**
+     * A game saved to datos.dat.
+     */
+    @Name("snake.Save")
+    @Label("Game Save")
+    @Category("Snake")
+    public static class SaveEvent extends Event {
+
+        @Label("Tick")
+        long lTick;
+
+        @Label("Snake Length")
+        int iSnakeLength;
+
+        @Label("Offset")
+        long lOffset;
+
+        @Label("Bytes Written")
+        @DataAmount
+        long lBytes;
+    }
+
+    /**
+     * A game loaded from datos.dat.
+     */
+    @Name("snake.Load")
+    @Label("Game Load")
+    @Category("Snake")
+    public static class LoadEvent extends Event {
+
+        @Label("Tick")
+        long lTick;
+
+        @Label("Snake Length")
+        int iSnakeLength;
+
+        @Label("Offset")
+        long lOffset;
+
+        @Label("Bytes Read")
+        @DataAmount
+        long lBytes;
+    }
+
+    /**
+     * A search of users.dat for the record of a user.
+     */
+    @Name("snake.UserLookup")
+    @Label("User Lookup")
+    @Category("Snake")
+    public static class UserLookupEvent extends Event {
+
+        @Label("Users Read")
+        int iUsers;
+
+        @Label("Found")
+        boolean bFound;
+
+        @Label("Bytes Read")
+        @DataAmount
+        long lBytes;
+    }
+
+    /**
+     * A {@code SoundClip} started from its beginning.
+     */
+    @Name("snake.SoundPlay")
+    @Label("Sound Play")
+    @Category("Snake")
+    public static class SoundPlayEvent extends Event {
+
+        @Label("File")
+        String sFile;
+
+        @Label("Looping")
+        boolean bLooping;
+    }
+
+}
@@ -0,0 +1,281 @@
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * The {@code AllocationMeter} class counts the bytes allocated by the
+ * game's ticks and paints, read from the JVM's count of bytes allocated by
+ * the current thread before and after each of them, and prints them with
+ * the garbage collections at a fixed interval.
+ *
+ * Each kind of sample must be added by a single thread (the ticks by the
+ * game loop, the paints by the event dispatch thread or by the game loop
+ * when it draws on a canvas); the report only reads the totals.
+ *
+ * Run from the command line it plays a headless game and fails if a tick
+ * allocates more than a given number of bytes, so the ticks can be held at
+ * zero.
+ *
+ * @author Brendan Jones
+ *
+ */
+public class AllocationMeter {
+
+    /**
+     * The JVM's count of allocated bytes per thread, or null if this JVM
+     * does not keep one.
+     */
+    private static final com.sun.management.ThreadMXBean thmTHREADS = createThreadBean();
+
+    /**
+     * The interval between two reports, in milliseconds.
+     */
+    private final long lInterval;
+
+    //totales de cada tipo de muestra, cada uno lo escribe un solo hilo
+    private volatile long lTicks;
+    private volatile long lTickBytes;
+    private volatile long lFrames;
+    private volatile long lFrameBytes;
+    private volatile long lPanels;
+    private volatile long lPanelBytes;
+
+    private Thread thrReport;
+
+    /**
+     * The number of steps {@code main} runs before it measures, the same
+     * for any number of measured ticks, so the JIT has compiled
+     * {@code step} and removed the objects that do not escape it.
+     */
+    private static final long lWARM_UP_TICKS = 2000000L;
+
+    /**
+     * Creates a new AllocationMeter.
+     *
+     * @param lInterval The interval between two reports, in milliseconds.
+     */
+    public AllocationMeter(long lInterval) {
+        if (lInterval < 1) {
+            throw new IllegalArgumentException("Invalid interval: " + lInterval);
+        }
+        this.lInterval = lInterval;
+    }
+
+    /**
+     * Gets the bean that counts the bytes allocated by each thread, and turns
+     * the count on.
+     */
+    private static com.sun.management.ThreadMXBean createThreadBean() {
+        ThreadMXBean thmBean = ManagementFactory.getThreadMXBean();
+        if (!(thmBean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean thmSun = (com.sun.management.ThreadMXBean) thmBean;
+        if (!thmSun.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        thmSun.setThreadAllocatedMemoryEnabled(true);
+        return thmSun;
+    }
+
+    /**
+     * Checks whether this JVM counts the bytes allocated by each thread.
+     *
+     * @return Whether allocations can be measured.
+     */
+    public static boolean isAvailable() {
+        return thmTHREADS != null;
+    }
+
+    /**
+     * Gets the number of bytes the current thread has allocated since it
+     * started. Taken before and after some work, the difference is what the
+     * work allocated.
+     *
+     * @return The number of bytes, 0 if this JVM does not count them.
+     */
+    public static long getAllocatedBytes() {
+        return thmTHREADS == null ? 0 : thmTHREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Adds the bytes allocated by one tick. Called by the game loop.
+     *
+     * @param lBytes The number of bytes.
+     */
+    public void addTick(long lBytes) {
+        lTickBytes = lTickBytes + lBytes;
+        lTicks = lTicks + 1;
+    }
+
+    /**
+     * Adds the bytes allocated by one paint of the board.
+     *
+     * @param lBytes The number of bytes.
+     */
+    public void addFrame(long lBytes) {
+        lFrameBytes = lFrameBytes + lBytes;
+        lFrames = lFrames + 1;
+    }
+
+    /**
+     * Adds the bytes allocated by one paint of the side panel.
+     *
+     * @param lBytes The number of bytes.
+     */
+    public void addPanel(long lBytes) {
+        lPanelBytes = lPanelBytes + lBytes;
+        lPanels = lPanels + 1;
+    }
+
+    /**
+     * Gets the bytes allocated per tick since the meter was created.
+     *
+     * @return The average, 0 if there was no tick.
+     */
+    public double getBytesPerTick() {
+        long lCount = lTicks;
+        return lCount == 0 ? 0 : (double) lTickBytes / lCount;
+    }
+
+    /**
+     * Starts printing a report every interval, on a daemon thread.
+     */
+    public void start() {
+        if (thrReport != null) {
+            return;
+        }
+        thrReport = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                report();
+            }
+
+        }, "allocation-report");
+        thrReport.setDaemon(true);
+        thrReport.start();
+    }
+
+    /**
+     * Prints the bytes per tick, per frame and per side panel paint, and
+     * the collections of every garbage collector, all since the last
+     * report.
+     */
+    private void report() {
+        long lLastTicks = 0;
+        long lLastTickBytes = 0;
+        long lLastFrames = 0;
+        long lLastFrameBytes = 0;
+        long lLastPanels = 0;
+        long lLastPanelBytes = 0;
+        long lLastCollections = 0;
+        long lLastCollectionTime = 0;
+        while (true) {
+            try {
+                Thread.sleep(lInterval);
+            } catch (InterruptedException e) {
+                return;
+            }
+            long lNowTicks = lTicks;
+            long lNowTickBytes = lTickBytes;
+            long lNowFrames = lFrames;
+            long lNowFrameBytes = lFrameBytes;
+            long lNowPanels = lPanels;
+            long lNowPanelBytes = lPanelBytes;
+            long lCollections = 0;
+            long lCollectionTime = 0;
+            for (GarbageCollectorMXBean gcbCollector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                lCollections += Math.max(0, gcbCollector.getCollectionCount());
+                lCollectionTime += Math.max(0, gcbCollector.getCollectionTime());
+            }
+
+            System.out.printf("alloc: %.1f B/tick (%d ticks), %.1f B/frame (%d frames),"
+                    + " %.1f B/panel (%d panels), GC %d (%d ms)%n",
+                    perSample(lNowTickBytes - lLastTickBytes, lNowTicks - lLastTicks),
+                    lNowTicks - lLastTicks,
+                    perSample(lNowFrameBytes - lLastFrameBytes, lNowFrames - lLastFrames),
+                    lNowFrames - lLastFrames,
+                    perSample(lNowPanelBytes - lLastPanelBytes, lNowPanels - lLastPanels),
+                    lNowPanels - lLastPanels,
+                    lCollections - lLastCollections, lCollectionTime - lLastCollectionTime);
+
+            lLastTicks = lNowTicks;
+            lLastTickBytes = lNowTickBytes;
+            lLastFrames = lNowFrames;
+            lLastFrameBytes = lNowFrameBytes;
+            lLastPanels = lNowPanels;
+            lLastPanelBytes = lNowPanelBytes;
+            lLastCollections = lCollections;
+            lLastCollectionTime = lCollectionTime;
+        }
+    }
+
+    private static double perSample(long lBytes, long lSamples) {
+        return lSamples == 0 ? 0 : (double) lBytes / lSamples;
+    }
+
+    /**
+     * Plays headless games with a {@code RandomPolicy} and prints the bytes
+     * allocated per tick, measured around every {@code step} after
+     * {@code lWARM_UP_TICKS} steps that are not measured. Exits with status
+     * 1 if they are over the limit.
+     *
+     * @param args The number of ticks to measure, optionally the most bytes
+     * a tick may allocate on average (0 by default), and the number of
+     * columns and rows.
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: AllocationMeter ticks [maxBytesPerTick [cols rows]]");
+            System.err.println("Measures after a warm up of " + lWARM_UP_TICKS + " unmeasured steps");
+            System.exit(1);
+        }
+        if (!isAvailable()) {
+            System.err.println("This JVM does not count the bytes allocated by each thread");
+            System.exit(1);
+        }
+        long lTicks = Long.parseLong(args[0]);
+        double dLimit = args.length >= 2 ? Double.parseDouble(args[1]) : 0;
+        int iColumns = GameBoard.iDEFAULT_COL_COUNT;
+        int iRows = GameBoard.iDEFAULT_ROW_COUNT;
+        if (args.length >= 4) {
+            iColumns = Integer.parseInt(args[2]);
+            iRows = Integer.parseInt(args[3]);
+        }
+
+        SnakeEngine sneEngine = new SnakeEngine(iColumns, iRows);
+        SnakePolicy splPolicy = new RandomPolicy(1);
+        sneEngine.resetGame(1);
+        //el calentamiento deja que el JIT quite los objetos que no escapan
+        AllocationMeter amtWarmUp = new AllocationMeter(1000);
+        play(sneEngine, splPolicy, amtWarmUp, lWARM_UP_TICKS);
+        AllocationMeter amtMeter = new AllocationMeter(1000);
+        play(sneEngine, splPolicy, amtMeter, lTicks);
+
+        double dBytes = amtMeter.getBytesPerTick();
+        System.out.printf("%.2f bytes per tick over %d ticks (limit %.2f)%n", dBytes, lTicks, dLimit);
+        if (dBytes > dLimit) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Steps a game, starting a new one when it ends, and adds the bytes each
+     * step allocated to a meter.
+     */
+    private static void play(SnakeEngine sneEngine, SnakePolicy splPolicy,
+            AllocationMeter amtMeter, long lTicks) {
+        for (long lT = 0; lT < lTicks; lT++) {
+            Direction dirNext = splPolicy.nextDirection(sneEngine);
+            long lBefore = getAllocatedBytes();
+            sneEngine.step(dirNext);
+            amtMeter.addTick(getAllocatedBytes() - lBefore);
+            if (sneEngine.isGameOver()) {
+                sneEngine.resetGame(sneEngine.getSeed() + 1);
+            }
+        }
+    }
+
+}
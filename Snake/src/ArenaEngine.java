@@ -0,0 +1,682 @@
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The {@code ArenaEngine} class plays many snakes on one large board, with
+ * no window and no sound. It follows the rules of {@code SnakeEngine} where
+ * they make sense for several snakes: the snakes grow to the minimum length
+ * first, each fruit type makes a snake grow by the same amount as in the
+ * single player game, and walls, venom and bodies (any snake's) kill.
+ *
+ * Every tick runs in three phases:
+ * <ol>
+ * <li>Plan, in parallel by snake: the policy picks each snake's direction
+ * and the next head cell is computed. Nothing is written to the board.</li>
+ * <li>Resolve, on the calling thread, in snake order: walls, venom, bodies
+ * and heads moving to the same tile are checked against the board as it was
+ * before the tick. A tail that moves away frees its tile for this tick's
+ * moves. Two or more heads on the same tile all die.</li>
+ * <li>Apply, in parallel by board stripe: each worker writes only the tiles
+ * in its own rows, and updates the snakes given to it.</li>
+ * </ol>
+ * Eaten fruits are then spawned again on the calling thread. The outcome of
+ * a tick depends only on the seed and the policy, not on the number of
+ * threads.
+ *
+ * @author Brendan Jones
+ *
+ */
+public class ArenaEngine {
+
+    /**
+     * The minimum length of a snake, as in {@code SnakeEngine}.
+     */
+    private static final int iMIN_SNAKE_LENGTH = 5;
+
+    /**
+     * The points a fruit is worth.
+     */
+    private static final int iFRUIT_SCORE = 100;
+
+    /**
+     * The fruit types spawned in the arena.
+     */
+    private static final TileType[] tltFRUITS = {
+        TileType.Fruit, TileType.Fruit2, TileType.Fruit3
+    };
+
+    /**
+     * How many tiles a snake grows after eating each fruit type, indexed
+     * like {@code tltFRUITS}. The same as in {@code SnakeEngine}.
+     */
+    private static final int[] iFRUIT_GROWTH = {2, 3, 1};
+
+    //resultado de cada snake en el tick actual
+    private static final byte bytIDLE = 0;
+    private static final byte bytMOVED = 1;
+    private static final byte bytDIED = 2;
+
+    //tamaño del tablero
+    private final int iColumns;
+    private final int iRows;
+
+    /**
+     * The board. It keeps no index of its empty tiles, so the apply phase
+     * can write it from several threads.
+     */
+    private final GameBoard gbdBoard;
+
+    //numero de frutas y venenos en el tablero
+    private final int iFruitCount;
+    private final int iVenomCount;
+
+    /**
+     * The random number generator for spawning.
+     */
+    private final Random ranRandom = new Random();
+
+    private long lSeed;
+    private long lTicks;
+
+    /**
+     * The policy that steers the snakes, may be null.
+     */
+    private ArenaPolicy arpPolicy;
+
+    /*
+	 * The state of the snakes, one entry per snake.
+     */
+    private final SnakeRing[] snrSnakes;
+    private final Direction[] dirDirections;
+    private final boolean[] bAlive;
+    private final int[] iScores;
+    private final int[] iGrowth;
+    private final DeathCause[] dthCauses;
+    private int iAliveCount;
+
+    /*
+	 * What the plan phase decided for each snake: the next head (-1 for a
+	 * wall), the head and tail before the move, whether the tail moves away
+	 * and which fruit the next head is on. The resolve phase adds the
+	 * outcome.
+     */
+    private final int[] iNextHeads;
+    private final int[] iOldHeads;
+    private final int[] iOldTails;
+    private final boolean[] bTailMoves;
+    private final int[] iEatenFruit;
+    private final byte[] bytOutcomes;
+
+    /**
+     * The stamp of the current tick in {@code iVacated} and {@code iClaimed}.
+     */
+    private int iStamp;
+
+    /**
+     * The stamp of the last tick in which each tile was a tail that moved
+     * away.
+     */
+    private final int[] iVacated;
+
+    /**
+     * {@code 2 * stamp} if one head moves to the tile this tick,
+     * {@code 2 * stamp + 1} if more than one does.
+     */
+    private final int[] iClaimed;
+
+    //fruits comidas de cada tipo en el tick actual
+    private final int[] iEaten = new int[tltFRUITS.length];
+
+    /*
+	 * The workers. With a single thread the phases run on the caller.
+     */
+    private final int iThreads;
+    private final ExecutorService exsPool;
+    private final List<Callable<Void>> lstPlan;
+    private final List<Callable<Void>> lstApply;
+
+    /**
+     * Creates a new ArenaEngine. The arena starts empty, call
+     * {@code resetGame} to place the snakes.
+     *
+     * @param iColumns The number of columns on the board.
+     * @param iRows The number of rows on the board.
+     * @param iSnakes The number of snakes.
+     * @param iThreads The number of threads the phases run on.
+     */
+    public ArenaEngine(int iColumns, int iRows, int iSnakes, int iThreads) {
+        if (iSnakes < 1 || iSnakes * 4L > (long) iColumns * iRows) {
+            throw new IllegalArgumentException("Invalid number of snakes: " + iSnakes);
+        }
+        if (iThreads < 1) {
+            throw new IllegalArgumentException("Invalid number of threads: " + iThreads);
+        }
+        this.iColumns = iColumns;
+        this.iRows = iRows;
+        this.gbdBoard = new GameBoard(iColumns, iRows, false);
+        this.iFruitCount = Math.max(tltFRUITS.length, iSnakes);
+        this.iVenomCount = Math.max(3, iSnakes / 2);
+
+        this.snrSnakes = new SnakeRing[iSnakes];
+        for (int iI = 0; iI < iSnakes; iI++) {
+            snrSnakes[iI] = new SnakeRing(16);
+        }
+        this.dirDirections = new Direction[iSnakes];
+        this.bAlive = new boolean[iSnakes];
+        this.iScores = new int[iSnakes];
+        this.iGrowth = new int[iSnakes];
+        this.dthCauses = new DeathCause[iSnakes];
+        this.iNextHeads = new int[iSnakes];
+        this.iOldHeads = new int[iSnakes];
+        this.iOldTails = new int[iSnakes];
+        this.bTailMoves = new boolean[iSnakes];
+        this.iEatenFruit = new int[iSnakes];
+        this.bytOutcomes = new byte[iSnakes];
+        this.iVacated = new int[iColumns * iRows];
+        this.iClaimed = new int[iColumns * iRows];
+
+        this.iThreads = Math.min(iThreads, iRows);
+        this.lstPlan = new ArrayList<>(this.iThreads);
+        this.lstApply = new ArrayList<>(this.iThreads);
+        for (int iW = 0; iW < this.iThreads; iW++) {
+            final int iWorker = iW;
+            lstPlan.add(() -> {
+                plan(iWorker);
+                return null;
+            });
+            lstApply.add(() -> {
+                apply(iWorker);
+                return null;
+            });
+        }
+        if (this.iThreads > 1) {
+            this.exsPool = Executors.newFixedThreadPool(this.iThreads, rnbTarea -> {
+                Thread thrWorker = new Thread(rnbTarea, "arena-worker");
+                thrWorker.setDaemon(true);
+                return thrWorker;
+            });
+        } else {
+            this.exsPool = null;
+        }
+    }
+
+    /**
+     * Sets the policy that steers the snakes. Without one the snakes keep
+     * moving in the same direction.
+     *
+     * @param arpPolicy The policy, may be null.
+     */
+    public void setPolicy(ArenaPolicy arpPolicy) {
+        this.arpPolicy = arpPolicy;
+    }
+
+    /**
+     * Stops the worker threads. The arena can't be stepped afterwards.
+     */
+    public void close() {
+        if (exsPool != null) {
+            exsPool.shutdownNow();
+        }
+    }
+
+    /**
+     * Clears the board and places the snakes, the fruits and the venom at
+     * random.
+     *
+     * @param lSeed The seed for the random number generator.
+     */
+    public void resetGame(long lSeed) {
+        this.lSeed = lSeed;
+        this.lTicks = 0;
+        ranRandom.setSeed(lSeed);
+        gbdBoard.clearBoard();
+
+        Direction[] dirValues = Direction.values();
+        for (int iS = 0; iS < snrSnakes.length; iS++) {
+            int iCell = findFreeCell();
+            snrSnakes[iS].clear();
+            snrSnakes[iS].pushHead(iCell);
+            gbdBoard.setTile(iCell, TileType.SnakeHead);
+            dirDirections[iS] = dirValues[ranRandom.nextInt(dirValues.length)];
+            bAlive[iS] = true;
+            iScores[iS] = 0;
+            iGrowth[iS] = 0;
+            dthCauses[iS] = null;
+        }
+        iAliveCount = snrSnakes.length;
+
+        for (int iI = 0; iI < iFruitCount; iI++) {
+            spawn(tltFRUITS[iI % tltFRUITS.length]);
+        }
+        for (int iI = 0; iI < iVenomCount; iI++) {
+            spawn(TileType.Venom);
+        }
+    }
+
+    /**
+     * Plays one tick.
+     *
+     * @return The number of snakes still alive.
+     * @throws InterruptedException If the thread was interrupted while
+     * waiting for the workers.
+     */
+    public int step() throws InterruptedException {
+        if (iAliveCount == 0) {
+            return 0;
+        }
+        lTicks++;
+        if (++iStamp == Integer.MAX_VALUE / 2) {
+            //los sellos se reinician antes de que 2 * sello se desborde
+            Arrays.fill(iVacated, 0);
+            Arrays.fill(iClaimed, 0);
+            iStamp = 1;
+        }
+
+        runPhase(lstPlan);
+        resolve();
+        runPhase(lstApply);
+
+        //se vuelven a poner las frutas comidas
+        for (int iF = 0; iF < tltFRUITS.length; iF++) {
+            for (; iEaten[iF] > 0; iEaten[iF]--) {
+                spawn(tltFRUITS[iF]);
+            }
+        }
+        return iAliveCount;
+    }
+
+    /**
+     * Runs one parallel phase and waits for all of its workers.
+     */
+    private void runPhase(List<Callable<Void>> lstTasks) throws InterruptedException {
+        if (exsPool == null) {
+            try {
+                lstTasks.get(0).call();
+            } catch (Exception e) {
+                throw new IllegalStateException("An arena phase failed", e);
+            }
+            return;
+        }
+        for (Future<Void> futResult : exsPool.invokeAll(lstTasks)) {
+            try {
+                futResult.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("An arena worker failed", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Plan phase: chooses the direction and the next head of every
+     * {@code iThreads}-th snake. Only reads the board.
+     */
+    private void plan(int iWorker) {
+        for (int iS = iWorker; iS < snrSnakes.length; iS += iThreads) {
+            bytOutcomes[iS] = bytIDLE;
+            if (!bAlive[iS]) {
+                continue;
+            }
+            SnakeRing snrSnake = snrSnakes[iS];
+            if (arpPolicy != null) {
+                Direction dirNew = arpPolicy.nextDirection(this, iS);
+                //no se puede dar la vuelta sobre el propio cuerpo
+                if (dirNew != null && (snrSnake.size() == 1
+                        || dirNew.ordinal() != (dirDirections[iS].ordinal() + 2) % 4)) {
+                    dirDirections[iS] = dirNew;
+                }
+            }
+            iOldHeads[iS] = snrSnake.peekHead();
+            int iNext = neighbour(iOldHeads[iS], dirDirections[iS]);
+            iNextHeads[iS] = iNext;
+            iOldTails[iS] = snrSnake.get(snrSnake.size() - 1);
+            iEatenFruit[iS] = iNext == -1 ? -1 : fruitIndex(gbdBoard.getTile(iNext));
+            bTailMoves[iS] = iEatenFruit[iS] == -1 && iGrowth[iS] == 0
+                    && snrSnake.size() > iMIN_SNAKE_LENGTH;
+        }
+    }
+
+    /**
+     * Resolve phase: decides which snakes die and which move, in snake
+     * order.
+     */
+    private void resolve() {
+        //las colas que se mueven liberan su tile
+        for (int iS = 0; iS < snrSnakes.length; iS++) {
+            if (bAlive[iS] && bTailMoves[iS]) {
+                iVacated[iOldTails[iS]] = iStamp;
+            }
+        }
+        //las cabezas reclaman su siguiente tile
+        int iOnce = 2 * iStamp;
+        for (int iS = 0; iS < snrSnakes.length; iS++) {
+            int iNext = iNextHeads[iS];
+            if (bAlive[iS] && iNext != -1) {
+                iClaimed[iNext] = iClaimed[iNext] == iOnce || iClaimed[iNext] == iOnce + 1
+                        ? iOnce + 1 : iOnce;
+            }
+        }
+
+        for (int iS = 0; iS < snrSnakes.length; iS++) {
+            if (!bAlive[iS]) {
+                continue;
+            }
+            int iNext = iNextHeads[iS];
+            DeathCause dthCause = null;
+            if (iNext == -1) {
+                dthCause = DeathCause.Wall;
+            } else if (iClaimed[iNext] == iOnce + 1) {
+                dthCause = DeathCause.HeadOn;
+            } else {
+                TileType tltType = gbdBoard.getTile(iNext);
+                if (tltType == TileType.Venom) {
+                    dthCause = DeathCause.Venom;
+                } else if ((tltType == TileType.SnakeBody || tltType == TileType.SnakeHead)
+                        && iVacated[iNext] != iStamp) {
+                    dthCause = DeathCause.Body;
+                }
+            }
+
+            if (dthCause != null) {
+                bytOutcomes[iS] = bytDIED;
+                dthCauses[iS] = dthCause;
+                bAlive[iS] = false;
+                iAliveCount--;
+            } else {
+                bytOutcomes[iS] = bytMOVED;
+                int iFruit = iEatenFruit[iS];
+                if (iFruit != -1) {
+                    iScores[iS] += iFRUIT_SCORE;
+                    iGrowth[iS] += iFRUIT_GROWTH[iFruit] - 1;
+                    iEaten[iFruit]++;
+                } else if (!bTailMoves[iS] && iGrowth[iS] > 0) {
+                    iGrowth[iS]--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Apply phase: writes the tiles in one stripe of rows, and moves every
+     * {@code iThreads}-th snake. Tiles are cleared before any is set, so a
+     * head can move onto a tail that left on the same tick. The writes only
+     * use what the plan phase stored, and the bodies of the snakes that
+     * died, which no worker changes.
+     */
+    private void apply(int iWorker) {
+        int iFirst = (int) ((long) iRows * iWorker / iThreads) * iColumns;
+        int iEnd = (int) ((long) iRows * (iWorker + 1) / iThreads) * iColumns;
+
+        for (int iS = 0; iS < snrSnakes.length; iS++) {
+            if (bytOutcomes[iS] == bytDIED) {
+                //los cuerpos de las snakes que murieron se quitan
+                SnakeRing snrSnake = snrSnakes[iS];
+                for (int iI = 0; iI < snrSnake.size(); iI++) {
+                    int iCell = snrSnake.get(iI);
+                    if (iCell >= iFirst && iCell < iEnd) {
+                        gbdBoard.setTile(iCell, null);
+                    }
+                }
+            } else if (bytOutcomes[iS] == bytMOVED && bTailMoves[iS]) {
+                int iCell = iOldTails[iS];
+                if (iCell >= iFirst && iCell < iEnd) {
+                    gbdBoard.setTile(iCell, null);
+                }
+            }
+        }
+        for (int iS = 0; iS < snrSnakes.length; iS++) {
+            if (bytOutcomes[iS] == bytMOVED) {
+                int iOldHead = iOldHeads[iS];
+                if (iOldHead >= iFirst && iOldHead < iEnd) {
+                    gbdBoard.setTile(iOldHead, TileType.SnakeBody);
+                }
+                int iNext = iNextHeads[iS];
+                if (iNext >= iFirst && iNext < iEnd) {
+                    gbdBoard.setTile(iNext, TileType.SnakeHead);
+                }
+            }
+        }
+
+        //mueve las snakes de este worker
+        for (int iS = iWorker; iS < snrSnakes.length; iS += iThreads) {
+            if (bytOutcomes[iS] == bytMOVED) {
+                snrSnakes[iS].pushHead(iNextHeads[iS]);
+                if (bTailMoves[iS]) {
+                    snrSnakes[iS].popTail();
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the index of a fruit type in {@code tltFRUITS}, or -1 if the tile
+     * is not a fruit.
+     */
+    private static int fruitIndex(TileType tltType) {
+        for (int iF = 0; iF < tltFRUITS.length; iF++) {
+            if (tltFRUITS[iF] == tltType) {
+                return iF;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Places a tile on a random empty tile, if there is any.
+     */
+    private void spawn(TileType tltType) {
+        int iCell = findFreeCell();
+        if (iCell != -1) {
+            gbdBoard.setTile(iCell, tltType);
+        }
+    }
+
+    /**
+     * Finds a random empty tile. The arena is mostly empty, so a few random
+     * tries almost always find one; otherwise the board is scanned from a
+     * random tile.
+     *
+     * @return The tile, or -1 if the board is full.
+     */
+    private int findFreeCell() {
+        int iTiles = gbdBoard.getTileCount();
+        for (int iTry = 0; iTry < 64; iTry++) {
+            int iCell = ranRandom.nextInt(iTiles);
+            if (gbdBoard.getTile(iCell) == null) {
+                return iCell;
+            }
+        }
+        int iStart = ranRandom.nextInt(iTiles);
+        for (int iI = 0; iI < iTiles; iI++) {
+            int iCell = (iStart + iI) % iTiles;
+            if (gbdBoard.getTile(iCell) == null) {
+                return iCell;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the tile next to another one.
+     *
+     * @param iCell The tile, {@code y * columns + x}.
+     * @param dirDirection The direction to look in.
+     * @return The next tile, or -1 if it is off the board.
+     */
+    public int neighbour(int iCell, Direction dirDirection) {
+        switch (dirDirection) {
+            case North:
+                return iCell >= iColumns ? iCell - iColumns : -1;
+            case South:
+                return iCell + iColumns < iColumns * iRows ? iCell + iColumns : -1;
+            case West:
+                return iCell % iColumns != 0 ? iCell - 1 : -1;
+            default:
+                return iCell % iColumns != iColumns - 1 ? iCell + 1 : -1;
+        }
+    }
+
+    /**
+     * Gets the board. It must not be changed.
+     *
+     * @return The board.
+     */
+    public GameBoard getBoard() {
+        return gbdBoard;
+    }
+
+    /**
+     * Gets the seed the current game was started with.
+     *
+     * @return The seed.
+     */
+    public long getSeed() {
+        return lSeed;
+    }
+
+    /**
+     * Gets the number of ticks played in the current game.
+     *
+     * @return The number of ticks.
+     */
+    public long getTicks() {
+        return lTicks;
+    }
+
+    /**
+     * Gets the number of snakes, alive or not.
+     *
+     * @return The number of snakes.
+     */
+    public int getSnakeCount() {
+        return snrSnakes.length;
+    }
+
+    /**
+     * Gets the number of snakes still alive.
+     *
+     * @return The number of snakes.
+     */
+    public int getAliveCount() {
+        return iAliveCount;
+    }
+
+    /**
+     * Checks whether a snake is alive.
+     *
+     * @param iSnake The snake.
+     * @return Whether it is alive.
+     */
+    public boolean isAlive(int iSnake) {
+        return bAlive[iSnake];
+    }
+
+    /**
+     * Gets what a snake hit.
+     *
+     * @param iSnake The snake.
+     * @return The cause of death, or null if the snake is alive.
+     */
+    public DeathCause getDeathCause(int iSnake) {
+        return dthCauses[iSnake];
+    }
+
+    /**
+     * Gets the score of a snake.
+     *
+     * @param iSnake The snake.
+     * @return The score.
+     */
+    public int getScore(int iSnake) {
+        return iScores[iSnake];
+    }
+
+    /**
+     * Gets the direction a snake is moving in.
+     *
+     * @param iSnake The snake.
+     * @return The direction.
+     */
+    public Direction getDirection(int iSnake) {
+        return dirDirections[iSnake];
+    }
+
+    /**
+     * Gets the length of a snake. A dead snake keeps the length it died
+     * with.
+     *
+     * @param iSnake The snake.
+     * @return The number of tiles of the snake.
+     */
+    public int getSnakeLength(int iSnake) {
+        return snrSnakes[iSnake].size();
+    }
+
+    /**
+     * Gets a tile of a snake.
+     *
+     * @param iSnake The snake.
+     * @param iIndex 0 for the head, up to {@code getSnakeLength() - 1} for
+     * the tail.
+     * @return The tile, {@code y * columns + x}.
+     */
+    public int getSnakeCell(int iSnake, int iIndex) {
+        return snrSnakes[iSnake].get(iIndex);
+    }
+
+    /**
+     * Plays an arena from the command line and prints how fast it ran.
+     *
+     * @param args The number of columns and rows, the number of snakes, and
+     * optionally the number of threads, the number of ticks and the seed.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 3) {
+            System.err.println("Usage: ArenaEngine cols rows snakes [threads [ticks [seed]]]");
+            System.exit(1);
+        }
+        int iColumns = Integer.parseInt(args[0]);
+        int iRows = Integer.parseInt(args[1]);
+        int iSnakes = Integer.parseInt(args[2]);
+        int iThreads = args.length >= 4 ? Integer.parseInt(args[3])
+                : Runtime.getRuntime().availableProcessors();
+        long lMaxTicks = args.length >= 5 ? Long.parseLong(args[4]) : 10000;
+        long lSeed = args.length >= 6 ? Long.parseLong(args[5]) : 0;
+
+        ArenaEngine aenArena = new ArenaEngine(iColumns, iRows, iSnakes, iThreads);
+        aenArena.setPolicy(new ArenaRandomPolicy(iSnakes, lSeed));
+        aenArena.resetGame(lSeed);
+        long lStart = System.nanoTime();
+        while (aenArena.getTicks() < lMaxTicks && aenArena.getAliveCount() > 0) {
+            aenArena.step();
+        }
+        double dSeconds = (System.nanoTime() - lStart) / 1e9;
+        aenArena.close();
+
+        int[] iDeaths = new int[DeathCause.values().length];
+        long lScore = 0;
+        for (int iS = 0; iS < iSnakes; iS++) {
+            lScore += aenArena.getScore(iS);
+            if (!aenArena.isAlive(iS)) {
+                iDeaths[aenArena.getDeathCause(iS).ordinal()]++;
+            }
+        }
+        System.out.printf("%d ticks, %d of %d snakes alive, total score %d%n",
+                aenArena.getTicks(), aenArena.getAliveCount(), iSnakes, lScore);
+        System.out.print("Deaths:");
+        for (DeathCause dthCause : DeathCause.values()) {
+            System.out.print(" " + dthCause + " " + iDeaths[dthCause.ordinal()]);
+        }
+        System.out.println();
+        System.out.printf("%d threads, %.2f s, %.0f ticks/s%n", iThreads, dSeconds,
+                aenArena.getTicks() / dSeconds);
+    }
+
+}
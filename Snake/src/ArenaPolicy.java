@@ -0,0 +1,24 @@
+
+/**
+ * The {@code ArenaPolicy} interface decides where each snake of an
+ * {@code ArenaEngine} goes.
+ *
+ * The arena asks for the directions of different snakes from several
+ * threads at the same time, while nothing on the board changes. A policy
+ * may read the arena freely, but any state it keeps must be kept per snake.
+ *
+ * @author Brendan Jones
+ *
+ */
+public interface ArenaPolicy {
+
+    /**
+     * Chooses the direction a snake moves in on the next tick.
+     *
+     * @param aenArena The arena, in the state before the tick.
+     * @param iSnake The snake, between 0 and {@code getSnakeCount() - 1}.
+     * @return The direction, or null to keep the current one.
+     */
+    Direction nextDirection(ArenaEngine aenArena, int iSnake);
+
+}
@@ -0,0 +1,70 @@
+
+import java.util.Random;
+
+/**
+ * The {@code ArenaRandomPolicy} class moves every snake of an arena at
+ * random, but never into a wall, a snake or a venom tile when there is any
+ * other choice. Each snake has its own random number generator, so the
+ * choices do not depend on the order the snakes are asked in.
+ *
+ * @author Brendan Jones
+ *
+ */
+public class ArenaRandomPolicy implements ArenaPolicy {
+
+    /**
+     * The directions, indexed by ordinal.
+     */
+    private static final Direction[] dirVALUES = Direction.values();
+
+    /**
+     * The random number generator of each snake.
+     */
+    private final Random[] ranRandoms;
+
+    /**
+     * Creates a new ArenaRandomPolicy.
+     *
+     * @param iSnakes The number of snakes in the arena.
+     * @param lSeed The seed for the random number generators.
+     */
+    public ArenaRandomPolicy(int iSnakes, long lSeed) {
+        this.ranRandoms = new Random[iSnakes];
+        for (int iI = 0; iI < iSnakes; iI++) {
+            ranRandoms[iI] = new Random(lSeed * 31 + iI);
+        }
+    }
+
+    @Override
+    public Direction nextDirection(ArenaEngine aenArena, int iSnake) {
+        GameBoard gbdBoard = aenArena.getBoard();
+        int iHead = aenArena.getSnakeCell(iSnake, 0);
+
+        //un bit por cada direccion segura
+        int iSafe = 0;
+        int iCount = 0;
+        for (Direction dirDirection : dirVALUES) {
+            int iNext = aenArena.neighbour(iHead, dirDirection);
+            if (iNext == -1) {
+                continue;
+            }
+            TileType tltType = gbdBoard.getTile(iNext);
+            if (tltType != TileType.SnakeBody && tltType != TileType.SnakeHead
+                    && tltType != TileType.Venom) {
+                iSafe |= 1 << dirDirection.ordinal();
+                iCount++;
+            }
+        }
+        if (iCount == 0) {
+            return null;
+        }
+        int iPick = ranRandoms[iSnake].nextInt(iCount);
+        for (Direction dirDirection : dirVALUES) {
+            if ((iSafe & (1 << dirDirection.ordinal())) != 0 && iPick-- == 0) {
+                return dirDirection;
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,476 @@
+
+import java.util.Arrays;
+
+/**
+ * The {@code Autopilot} class steers the snake towards the nearest fruit
+ * while avoiding venom, walls and its own body.
+ *
+ * Every decision runs an A* search from the head to the closest fruit
+ * (Manhattan distance to the nearest fruit as the heuristic). Before taking
+ * the first step of the path, it checks that the snake would not trap
+ * itself: from the new head position the tail must still be reachable, or
+ * the open area around it must be at least as big as the snake. If not, it
+ * takes the safest neighbour instead.
+ *
+ * All search state lives in arrays sized to the board and allocated once,
+ * so a decision allocates nothing. Cells are marked as visited with an
+ * epoch stamp instead of clearing the arrays, and the A* search stops after
+ * {@code iMaxExpansions} cells so a decision takes bounded time even on very
+ * large boards; when it gives up, it heads for the explored cell closest to
+ * a fruit. The path found is followed on the next ticks without searching
+ * again, until it ends, a fruit is eaten or the snake leaves it.
+ *
+ * @author Brendan Jones
+ *
+ */
+public class Autopilot implements SnakePolicy {
+
+    /**
+     * The default number of cells the A* search may expand per decision.
+     */
+    public static final int iDEFAULT_MAX_EXPANSIONS = 1 << 12;
+
+    /**
+     * The directions, indexed by ordinal.
+     */
+    private static final Direction[] dirVALUES = Direction.values();
+
+    //tamaño del tablero para el que se reservaron los arreglos
+    private final int iColumns;
+    private final int iRows;
+
+    /**
+     * The number of cells the A* search may expand per decision.
+     */
+    private final int iMaxExpansions;
+
+    /**
+     * The A* open list as a binary heap of cells, and the BFS queue of the
+     * safety check. The two are never used at the same time.
+     */
+    private final int[] iFrontier;
+
+    /**
+     * The cell each visited cell was reached from.
+     */
+    private final int[] iParent;
+
+    /**
+     * The epoch in which each cell was last visited. A cell whose stamp is
+     * not {@code iEpoch} has not been visited by the current search.
+     */
+    private final int[] iStamp;
+
+    /**
+     * The distance from the head to each visited cell.
+     */
+    private final int[] iCost;
+
+    /**
+     * The estimated length of the path through each visited cell.
+     */
+    private final int[] iEstimate;
+
+    /**
+     * The position of each cell in the heap, or -1 once it was expanded.
+     */
+    private final int[] iHeapPos;
+
+    /**
+     * The stamp of the current search.
+     */
+    private int iEpoch;
+
+    //tamaño actual del heap
+    private int iHeapSize;
+
+    /**
+     * The cells of the path being followed, first step first.
+     */
+    private final int[] iPath;
+
+    //largo del camino, siguiente paso, y la partida, el tick y las frutas
+    //comidas cuando se calculo; si algo de esto cambio el camino ya no sirve
+    private int iPathLength;
+    private int iPathIndex;
+    private long lPathSeed;
+    private long lPathTick;
+    private int iPathFruits;
+
+    //las frutas de la decision actual, como coordenadas (hay a lo mas una
+    //fruta de cada tipo de tile)
+    private final int[] iFruitX;
+    private final int[] iFruitY;
+    private int iFruits;
+
+    /**
+     * Creates a new Autopilot for a board size.
+     *
+     * @param iColumns The number of columns on the board.
+     * @param iRows The number of rows on the board.
+     */
+    public Autopilot(int iColumns, int iRows) {
+        this(iColumns, iRows, iDEFAULT_MAX_EXPANSIONS);
+    }
+
+    /**
+     * Creates a new Autopilot for a board size.
+     *
+     * @param iColumns The number of columns on the board.
+     * @param iRows The number of rows on the board.
+     * @param iMaxExpansions The number of cells the A* search may expand per
+     * decision.
+     */
+    public Autopilot(int iColumns, int iRows, int iMaxExpansions) {
+        if (iMaxExpansions < 1) {
+            throw new IllegalArgumentException("Invalid expansion limit: " + iMaxExpansions);
+        }
+        int iTiles = iColumns * iRows;
+        this.iColumns = iColumns;
+        this.iRows = iRows;
+        this.iMaxExpansions = iMaxExpansions;
+        this.iFrontier = new int[iTiles];
+        this.iParent = new int[iTiles];
+        this.iStamp = new int[iTiles];
+        this.iCost = new int[iTiles];
+        this.iEstimate = new int[iTiles];
+        this.iHeapPos = new int[iTiles];
+        this.iPath = new int[iTiles];
+        this.iFruitX = new int[TileType.values().length];
+        this.iFruitY = new int[TileType.values().length];
+    }
+
+    /**
+     * Checks whether this Autopilot was created for the size of a board.
+     *
+     * @param gbdBoard The board.
+     * @return Whether the board has the columns and rows of this Autopilot.
+     */
+    public boolean fitsBoard(GameBoard gbdBoard) {
+        return gbdBoard.getColumns() == iColumns && gbdBoard.getRows() == iRows;
+    }
+
+    @Override
+    public Direction nextDirection(SnakeEngine sneEngine) {
+        GameBoard gbdBoard = sneEngine.getBoard();
+        if (!fitsBoard(gbdBoard)) {
+            throw new IllegalArgumentException("The autopilot was created for a "
+                    + iColumns + "x" + iRows + " board");
+        }
+        int iHead = sneEngine.getSnakeCell(0);
+        int iTail = sneEngine.getSnakeCell(sneEngine.getSnakeLength() - 1);
+        int iLength = sneEngine.getSnakeLength();
+
+        //sigue el camino anterior mientras siga siendo valido
+        if (isPathValid(sneEngine, gbdBoard, iHead)) {
+            int iStep = iPath[iPathIndex];
+            if (isSafe(gbdBoard, iStep, iTail, iLength)) {
+                iPathIndex++;
+                return directionTo(iHead, iStep);
+            }
+        }
+        iPathLength = 0;
+
+        iFruits = 0;
+        for (int iI = 0; iI < sneEngine.getFruitCount(); iI++) {
+            int iCell = sneEngine.getFruitCell(iI);
+            if (iCell != -1) {
+                iFruitX[iFruits] = iCell % iColumns;
+                iFruitY[iFruits] = iCell / iColumns;
+                iFruits++;
+            }
+        }
+
+        //primero el camino hacia la fruta mas cercana
+        if (iFruits > 0) {
+            int iGoal = search(gbdBoard, iHead);
+            if (iGoal != iHead) {
+                storePath(iHead, iGoal);
+                int iStep = iPath[0];
+                if (isSafe(gbdBoard, iStep, iTail, iLength)) {
+                    iPathIndex = 1;
+                    lPathSeed = sneEngine.getSeed();
+                    lPathTick = sneEngine.getTicks();
+                    iPathFruits = sneEngine.getFruitsEaten();
+                    return directionTo(iHead, iStep);
+                }
+                iPathLength = 0;
+            }
+        }
+
+        /*
+		 * The path is blocked or would trap the snake. Take the neighbour
+		 * from which the tail can be reached, or failing that the one with
+		 * the most room around it.
+         */
+        Direction dirBest = null;
+        int iBestRoom = -1;
+        for (Direction dirDirection : dirVALUES) {
+            int iNext = neighbour(iHead, dirDirection);
+            if (iNext == -1 || isBlocked(gbdBoard, iNext)) {
+                continue;
+            }
+            int iRoom = room(gbdBoard, iNext, iTail, iLength);
+            if (iRoom > iBestRoom) {
+                iBestRoom = iRoom;
+                dirBest = dirDirection;
+            }
+        }
+        return dirBest;
+    }
+
+    /**
+     * Checks whether the snake is still on the stored path: same game, one
+     * step taken per tick since it was found, no fruit eaten and the next
+     * cell still free.
+     */
+    private boolean isPathValid(SnakeEngine sneEngine, GameBoard gbdBoard, int iHead) {
+        if (iPathIndex >= iPathLength || sneEngine.getSeed() != lPathSeed
+                || sneEngine.getTicks() != lPathTick + iPathIndex
+                || sneEngine.getFruitsEaten() != iPathFruits) {
+            return false;
+        }
+        return iHead == iPath[iPathIndex - 1] && !isBlocked(gbdBoard, iPath[iPathIndex]);
+    }
+
+    /**
+     * Copies the path from the head to a cell, following the parents left
+     * by {@code search}, into {@code iPath}.
+     */
+    private void storePath(int iHead, int iGoal) {
+        iPathLength = 0;
+        for (int iCell = iGoal; iCell != iHead; iCell = iParent[iCell]) {
+            iPath[iPathLength++] = iCell;
+        }
+        //los pasos quedaron del ultimo al primero
+        for (int iI = 0, iJ = iPathLength - 1; iI < iJ; iI++, iJ--) {
+            int iSwap = iPath[iI];
+            iPath[iI] = iPath[iJ];
+            iPath[iJ] = iSwap;
+        }
+    }
+
+    /**
+     * Runs an A* search from the head to the nearest fruit.
+     *
+     * @return The fruit cell that was reached or, if no fruit was reached,
+     * the explored cell closest to a fruit (the head itself if nothing could
+     * be explored).
+     */
+    private int search(GameBoard gbdBoard, int iHead) {
+        nextEpoch();
+        iHeapSize = 0;
+        iStamp[iHead] = iEpoch;
+        iCost[iHead] = 0;
+        iEstimate[iHead] = heuristic(iHead);
+        push(iHead);
+
+        int iBest = iHead;
+        int iBestDistance = iEstimate[iHead];
+        for (int iExpanded = 0; iHeapSize > 0 && iExpanded < iMaxExpansions; iExpanded++) {
+            int iCell = pop();
+            int iDistance = iEstimate[iCell] - iCost[iCell];
+            if (iDistance == 0) {
+                return iCell;
+            }
+            if (iDistance < iBestDistance) {
+                iBest = iCell;
+                iBestDistance = iDistance;
+            }
+            for (Direction dirDirection : dirVALUES) {
+                int iNext = neighbour(iCell, dirDirection);
+                if (iNext == -1 || isBlocked(gbdBoard, iNext)) {
+                    continue;
+                }
+                int iNewCost = iCost[iCell] + 1;
+                if (iStamp[iNext] != iEpoch) {
+                    iStamp[iNext] = iEpoch;
+                    iParent[iNext] = iCell;
+                    iCost[iNext] = iNewCost;
+                    iEstimate[iNext] = iNewCost + heuristic(iNext);
+                    push(iNext);
+                } else if (iNewCost < iCost[iNext] && iHeapPos[iNext] != -1) {
+                    iParent[iNext] = iCell;
+                    iEstimate[iNext] -= iCost[iNext] - iNewCost;
+                    iCost[iNext] = iNewCost;
+                    siftUp(iHeapPos[iNext]);
+                }
+            }
+        }
+        return iBest;
+    }
+
+    /**
+     * Checks whether moving the head to a cell keeps the snake out of a
+     * dead end.
+     */
+    private boolean isSafe(GameBoard gbdBoard, int iStart, int iTail, int iLength) {
+        return room(gbdBoard, iStart, iTail, iLength) >= iLength;
+    }
+
+    /**
+     * Measures the room the head would have after moving to a cell, with a
+     * flood fill that stops as soon as the answer is known.
+     *
+     * @return {@code iLength} if the tail can be reached (the tail moves
+     * away as the snake does, so reaching it means the snake can follow it
+     * forever), otherwise the number of free cells reachable, at most
+     * {@code iLength}.
+     */
+    private int room(GameBoard gbdBoard, int iStart, int iTail, int iLength) {
+        nextEpoch();
+        int iHeadQ = 0;
+        int iTailQ = 0;
+        iFrontier[iTailQ++] = iStart;
+        iStamp[iStart] = iEpoch;
+        while (iHeadQ < iTailQ && iTailQ < iLength) {
+            int iCell = iFrontier[iHeadQ++];
+            for (Direction dirDirection : dirVALUES) {
+                int iNext = neighbour(iCell, dirDirection);
+                if (iNext == -1 || iStamp[iNext] == iEpoch) {
+                    continue;
+                }
+                if (iNext == iTail) {
+                    return iLength;
+                }
+                if (!isBlocked(gbdBoard, iNext)) {
+                    iStamp[iNext] = iEpoch;
+                    iFrontier[iTailQ++] = iNext;
+                }
+            }
+        }
+        return Math.min(iTailQ, iLength);
+    }
+
+    /**
+     * Checks whether the snake can't move onto a cell.
+     */
+    private static boolean isBlocked(GameBoard gbdBoard, int iCell) {
+        TileType tltType = gbdBoard.getTile(iCell);
+        return tltType == TileType.SnakeBody || tltType == TileType.SnakeHead
+                || tltType == TileType.Venom;
+    }
+
+    /**
+     * Gets the cell next to another one, or -1 if it is off the board.
+     */
+    private int neighbour(int iCell, Direction dirDirection) {
+        switch (dirDirection) {
+            case North:
+                return iCell >= iColumns ? iCell - iColumns : -1;
+            case South:
+                return iCell + iColumns < iColumns * iRows ? iCell + iColumns : -1;
+            case West:
+                return iCell % iColumns != 0 ? iCell - 1 : -1;
+            default:
+                return iCell % iColumns != iColumns - 1 ? iCell + 1 : -1;
+        }
+    }
+
+    /**
+     * Gets the direction from a cell to one of its neighbours.
+     */
+    private Direction directionTo(int iFrom, int iTo) {
+        if (iTo == iFrom - iColumns) {
+            return Direction.North;
+        } else if (iTo == iFrom + iColumns) {
+            return Direction.South;
+        } else if (iTo == iFrom - 1) {
+            return Direction.West;
+        }
+        return Direction.East;
+    }
+
+    /**
+     * Gets the Manhattan distance from a cell to the nearest fruit.
+     */
+    private int heuristic(int iCell) {
+        int iX = iCell % iColumns;
+        int iY = iCell / iColumns;
+        int iMin = Integer.MAX_VALUE;
+        for (int iI = 0; iI < iFruits; iI++) {
+            iMin = Math.min(iMin, Math.abs(iX - iFruitX[iI]) + Math.abs(iY - iFruitY[iI]));
+        }
+        return iMin;
+    }
+
+    /**
+     * Starts a new search. The stamps are only cleared when the epoch
+     * counter wraps around.
+     */
+    private void nextEpoch() {
+        if (++iEpoch == 0) {
+            Arrays.fill(iStamp, 0);
+            iEpoch = 1;
+        }
+    }
+
+    /**
+     * Checks whether a cell should leave the heap before another one: lower
+     * estimate first, and on a tie the one further from the head, which
+     * keeps A* from exploring every equally good path.
+     */
+    private boolean isBefore(int iA, int iB) {
+        if (iEstimate[iA] != iEstimate[iB]) {
+            return iEstimate[iA] < iEstimate[iB];
+        }
+        return iCost[iA] > iCost[iB];
+    }
+
+    private void push(int iCell) {
+        iFrontier[iHeapSize] = iCell;
+        iHeapPos[iCell] = iHeapSize;
+        siftUp(iHeapSize++);
+    }
+
+    private int pop() {
+        int iTop = iFrontier[0];
+        iHeapPos[iTop] = -1;
+        int iLast = iFrontier[--iHeapSize];
+        if (iHeapSize > 0) {
+            iFrontier[0] = iLast;
+            iHeapPos[iLast] = 0;
+            siftDown(0);
+        }
+        return iTop;
+    }
+
+    private void siftUp(int iPos) {
+        int iCell = iFrontier[iPos];
+        while (iPos > 0) {
+            int iUp = (iPos - 1) >>> 1;
+            int iUpCell = iFrontier[iUp];
+            if (!isBefore(iCell, iUpCell)) {
+                break;
+            }
+            iFrontier[iPos] = iUpCell;
+            iHeapPos[iUpCell] = iPos;
+            iPos = iUp;
+        }
+        iFrontier[iPos] = iCell;
+        iHeapPos[iCell] = iPos;
+    }
+
+    private void siftDown(int iPos) {
+        int iCell = iFrontier[iPos];
+        while (true) {
+            int iChild = 2 * iPos + 1;
+            if (iChild >= iHeapSize) {
+                break;
+            }
+            if (iChild + 1 < iHeapSize && isBefore(iFrontier[iChild + 1], iFrontier[iChild])) {
+                iChild++;
+            }
+            int iChildCell = iFrontier[iChild];
+            if (!isBefore(iChildCell, iCell)) {
+                break;
+            }
+            iFrontier[iPos] = iChildCell;
+            iHeapPos[iChildCell] = iPos;
+            iPos = iChild;
+        }
+        iFrontier[iPos] = iCell;
+        iHeapPos[iCell] = iPos;
+    }
+
+}
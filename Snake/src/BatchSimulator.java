@@ -0,0 +1,199 @@
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The {@code BatchSimulator} class plays many games without a window, using
+ * the same rules as the game ({@code SnakeEngine}) and a {@code SnakePolicy}
+ * instead of a player, and reports their statistics. It is used to balance
+ * the item scores.
+ *
+ * The games are split between a fixed pool of workers, one per core by
+ * default. Game {@code i} is played by worker {@code i % threads} and
+ * started with the seed {@code baseSeed + i}, so the results do not depend
+ * on the number of workers. Each worker has its own engine and its own
+ * {@code BatchStats}, and each game its own policy; nothing is shared until
+ * the stripes are merged at the end.
+ *
+ * @author Brendan Jones
+ *
+ */
+public class BatchSimulator {
+
+    /**
+     * The default number of ticks after which a game that is still alive is
+     * stopped.
+     */
+    public static final long lDEFAULT_MAX_TICKS = 100000;
+
+    /**
+     * Creates the policy of a game. Each game gets its own policy, so the
+     * policies do not need to be thread safe.
+     */
+    public interface PolicyFactory {
+
+        /**
+         * Creates a policy.
+         *
+         * @param lSeed A seed for any randomness the policy uses, different
+         * from the seed of the game.
+         * @return The policy.
+         */
+        SnakePolicy create(long lSeed);
+    }
+
+    //configuracion de la simulacion
+    private final int iColumns;
+    private final int iRows;
+    private final int iThreads;
+    private final long lMaxTicks;
+    private final PolicyFactory pofFactory;
+
+    /**
+     * Creates a new BatchSimulator.
+     *
+     * @param iColumns The number of columns on the board.
+     * @param iRows The number of rows on the board.
+     * @param iThreads The number of workers.
+     * @param lMaxTicks The number of ticks after which a game is stopped.
+     * @param pofFactory Creates the policy of each game.
+     */
+    public BatchSimulator(int iColumns, int iRows, int iThreads, long lMaxTicks,
+            PolicyFactory pofFactory) {
+        if (iThreads < 1) {
+            throw new IllegalArgumentException("Invalid number of threads: " + iThreads);
+        }
+        this.iColumns = iColumns;
+        this.iRows = iRows;
+        this.iThreads = iThreads;
+        this.lMaxTicks = lMaxTicks;
+        this.pofFactory = pofFactory;
+    }
+
+    /**
+     * Plays a number of games and merges their statistics.
+     *
+     * @param iGames The number of games to play.
+     * @param lBaseSeed The seed of the first game.
+     * @return The statistics of every game.
+     * @throws InterruptedException If the thread was interrupted while
+     * waiting for the workers.
+     */
+    public BatchStats run(int iGames, long lBaseSeed) throws InterruptedException {
+        int iWorkers = Math.max(1, Math.min(iThreads, iGames));
+        ExecutorService exsPool = Executors.newFixedThreadPool(iWorkers);
+        try {
+            List<Future<BatchStats>> lstResults = new ArrayList<>(iWorkers);
+            for (int iW = 0; iW < iWorkers; iW++) {
+                lstResults.add(exsPool.submit(new Worker(iW, iWorkers, iGames, lBaseSeed)));
+            }
+            BatchStats btsTotal = new BatchStats();
+            for (Future<BatchStats> futResult : lstResults) {
+                try {
+                    btsTotal.merge(futResult.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("A simulation worker failed", e.getCause());
+                }
+            }
+            return btsTotal;
+        } finally {
+            exsPool.shutdownNow();
+        }
+    }
+
+    /**
+     * Plays one game to the end or to the tick limit.
+     *
+     * @param sneEngine The engine to play on. It is reset first.
+     * @param splPolicy The policy that steers the snake.
+     * @param lSeed The seed of the game.
+     * @param lMaxTicks The number of ticks after which the game is stopped.
+     */
+    public static void playGame(SnakeEngine sneEngine, SnakePolicy splPolicy,
+            long lSeed, long lMaxTicks) {
+        sneEngine.resetGame(lSeed);
+        while (!sneEngine.isGameOver() && sneEngine.getTicks() < lMaxTicks) {
+            sneEngine.step(splPolicy.nextDirection(sneEngine));
+        }
+    }
+
+    /**
+     * Plays every {@code iWorkers}-th game, starting at {@code iFirst}, on its
+     * own engine and into its own stripe.
+     */
+    private class Worker implements Callable<BatchStats> {
+
+        private final int iFirst;
+        private final int iWorkers;
+        private final int iGames;
+        private final long lBaseSeed;
+
+        Worker(int iFirst, int iWorkers, int iGames, long lBaseSeed) {
+            this.iFirst = iFirst;
+            this.iWorkers = iWorkers;
+            this.iGames = iGames;
+            this.lBaseSeed = lBaseSeed;
+        }
+
+        @Override
+        public BatchStats call() {
+            SnakeEngine sneEngine = new SnakeEngine(iColumns, iRows);
+            BatchStats btsStripe = new BatchStats();
+            for (int iI = iFirst; iI < iGames; iI += iWorkers) {
+                long lSeed = lBaseSeed + iI;
+                SnakePolicy splPolicy = pofFactory.create(lSeed * 0x9E3779B97F4A7C15L + 1);
+                playGame(sneEngine, splPolicy, lSeed, lMaxTicks);
+                btsStripe.add(sneEngine);
+            }
+            return btsStripe;
+        }
+    }
+
+    /**
+     * Runs a batch from the command line and prints its statistics.
+     *
+     * @param args The number of games, and optionally the number of columns
+     * and rows, the number of threads, the maximum ticks per game and the
+     * base seed.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 1) {
+            System.err.println("Usage: BatchSimulator games [cols rows [threads [maxTicks [seed]]]]");
+            System.exit(1);
+        }
+        int iGames = Integer.parseInt(args[0]);
+        int iColumns = GameBoard.iDEFAULT_COL_COUNT;
+        int iRows = GameBoard.iDEFAULT_ROW_COUNT;
+        int iThreads = Runtime.getRuntime().availableProcessors();
+        long lMaxTicks = lDEFAULT_MAX_TICKS;
+        long lSeed = 0;
+        if (args.length >= 3) {
+            iColumns = Integer.parseInt(args[1]);
+            iRows = Integer.parseInt(args[2]);
+        }
+        if (args.length >= 4) {
+            iThreads = Integer.parseInt(args[3]);
+        }
+        if (args.length >= 5) {
+            lMaxTicks = Long.parseLong(args[4]);
+        }
+        if (args.length >= 6) {
+            lSeed = Long.parseLong(args[5]);
+        }
+
+        BatchSimulator bsmSimulator = new BatchSimulator(iColumns, iRows, iThreads,
+                lMaxTicks, RandomPolicy::new);
+        long lStart = System.nanoTime();
+        BatchStats btsStats = bsmSimulator.run(iGames, lSeed);
+        double dSeconds = (System.nanoTime() - lStart) / 1e9;
+        System.out.print(btsStats);
+        System.out.printf("%d threads, %.2f s, %.0f ticks/s%n", iThreads, dSeconds,
+                btsStats.getTicks() / dSeconds);
+    }
+
+}
@@ -0,0 +1,162 @@
+
+/**
+ * The {@code BatchStats} class adds up the results of simulated games. Each
+ * worker of the {@code BatchSimulator} fills its own instance (its own
+ * stripe), so workers never write to the same counters; the stripes are
+ * merged once all games are done.
+ *
+ * @author Brendan Jones
+ *
+ */
+public class BatchStats {
+
+    /**
+     * The width of each bucket of the score histogram.
+     */
+    public static final int iSCORE_BUCKET = 100;
+
+    /**
+     * The number of buckets of the score histogram. The last one also holds
+     * every score above it.
+     */
+    public static final int iSCORE_BUCKETS = 64;
+
+    //totales de las partidas
+    private long lGames;
+    private long lTicks;
+    private long lScore;
+    private long lFruits;
+    private long lLength;
+    private int iMaxScore;
+    private int iMaxLength;
+
+    //partidas que terminaron por cada causa, y las que llegaron al limite
+    //de ticks sin morir
+    private final long[] lDeaths = new long[DeathCause.values().length];
+    private long lTimeouts;
+
+    //histograma de scores
+    private final long[] lScoreHistogram = new long[iSCORE_BUCKETS];
+
+    /**
+     * Adds the result of one game.
+     *
+     * @param sneEngine The engine, in the state the game ended in.
+     */
+    public void add(SnakeEngine sneEngine) {
+        int iScore = sneEngine.getScore();
+        int iLength = sneEngine.getSnakeLength();
+        lGames++;
+        lTicks += sneEngine.getTicks();
+        lScore += iScore;
+        lFruits += sneEngine.getFruitsEaten();
+        lLength += iLength;
+        iMaxScore = Math.max(iMaxScore, iScore);
+        iMaxLength = Math.max(iMaxLength, iLength);
+        if (sneEngine.getDeathCause() == null) {
+            lTimeouts++;
+        } else {
+            lDeaths[sneEngine.getDeathCause().ordinal()]++;
+        }
+        lScoreHistogram[Math.min(iScore / iSCORE_BUCKET, iSCORE_BUCKETS - 1)]++;
+    }
+
+    /**
+     * Adds the totals of another stripe to this one.
+     *
+     * @param btsOther The other stripe.
+     */
+    public void merge(BatchStats btsOther) {
+        lGames += btsOther.lGames;
+        lTicks += btsOther.lTicks;
+        lScore += btsOther.lScore;
+        lFruits += btsOther.lFruits;
+        lLength += btsOther.lLength;
+        iMaxScore = Math.max(iMaxScore, btsOther.iMaxScore);
+        iMaxLength = Math.max(iMaxLength, btsOther.iMaxLength);
+        for (int iI = 0; iI < lDeaths.length; iI++) {
+            lDeaths[iI] += btsOther.lDeaths[iI];
+        }
+        lTimeouts += btsOther.lTimeouts;
+        for (int iI = 0; iI < iSCORE_BUCKETS; iI++) {
+            lScoreHistogram[iI] += btsOther.lScoreHistogram[iI];
+        }
+    }
+
+    /**
+     * Gets the number of games added.
+     *
+     * @return The number of games.
+     */
+    public long getGames() {
+        return lGames;
+    }
+
+    /**
+     * Gets the number of ticks played by all games.
+     *
+     * @return The number of ticks.
+     */
+    public long getTicks() {
+        return lTicks;
+    }
+
+    /**
+     * Gets the number of games that ended for the given cause.
+     *
+     * @param dthCause The cause of death.
+     * @return The number of games.
+     */
+    public long getDeaths(DeathCause dthCause) {
+        return lDeaths[dthCause.ordinal()];
+    }
+
+    /**
+     * Gets the number of games that reached the tick limit alive.
+     *
+     * @return The number of games.
+     */
+    public long getTimeouts() {
+        return lTimeouts;
+    }
+
+    /**
+     * Gets the number of games whose score fell in a histogram bucket.
+     *
+     * @param iBucket The bucket, scores from {@code iBucket * iSCORE_BUCKET}.
+     * @return The number of games.
+     */
+    public long getScoreCount(int iBucket) {
+        return lScoreHistogram[iBucket];
+    }
+
+    /**
+     * Describes the totals in a few lines of text.
+     *
+     * @return The report.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sbdSalida = new StringBuilder();
+        double dGames = Math.max(1, lGames);
+        sbdSalida.append("Games: ").append(lGames)
+                .append(", ticks: ").append(lTicks).append('\n');
+        sbdSalida.append(String.format("Score: avg %.1f, max %d%n", lScore / dGames, iMaxScore));
+        sbdSalida.append(String.format("Fruit eaten: avg %.2f%n", lFruits / dGames));
+        sbdSalida.append(String.format("Length: avg %.1f, max %d%n", lLength / dGames, iMaxLength));
+        sbdSalida.append("Deaths:");
+        for (DeathCause dthCause : DeathCause.values()) {
+            sbdSalida.append(' ').append(dthCause).append(' ').append(lDeaths[dthCause.ordinal()]);
+        }
+        sbdSalida.append(", alive at tick limit ").append(lTimeouts).append('\n');
+        sbdSalida.append("Score histogram:\n");
+        for (int iI = 0; iI < iSCORE_BUCKETS; iI++) {
+            if (lScoreHistogram[iI] != 0) {
+                sbdSalida.append(String.format("  %6d%s %d%n", iI * iSCORE_BUCKET,
+                        iI == iSCORE_BUCKETS - 1 ? "+" : " ", lScoreHistogram[iI]));
+            }
+        }
+        return sbdSalida.toString();
+    }
+
+}
@@ -0,0 +1,138 @@
+
+import java.awt.Canvas;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+
+/**
+ * The {@code BoardCanvas} class shows the board and the side panel by
+ * drawing them from the game loop itself (active rendering), instead of
+ * asking Swing to repaint them on the event dispatch thread. Each frame is
+ * drawn into the back buffer of a {@code BufferStrategy} and shown right
+ * away, so the pixels follow the tick with no wait for Swing to get to the
+ * repaint.
+ *
+ * The drawing itself is done by a {@code BoardPanel} and a
+ * {@code SidePanel} that are not shown, so both ways of rendering look the
+ * same.
+ *
+ * @author Brendan Jones
+ *
+ */
+public class BoardCanvas extends Canvas {
+
+    /**
+     * Serial Version UID.
+     */
+    private static final long lSerialVersionUID = 3150718224690581773L;
+
+    /**
+     * What draws the board and the side panel.
+     */
+    private final BoardPanel bpnBoard;
+    private final SidePanel spnSide;
+
+    //tamaño del tablero y del panel de al lado
+    private final int iBoardWidth;
+    private final int iSideWidth;
+    private final int iHeight;
+
+    /**
+     * The number of buffers, 2 for double and 3 for triple buffering.
+     */
+    private final int iBuffers;
+
+    /**
+     * Set when the window system asks for the canvas to be painted (it was
+     * uncovered or resized), so the game loop draws a frame even if the game
+     * did not change.
+     */
+    private volatile boolean bExpuesto = true;
+
+    /**
+     * Creates a new BoardCanvas.
+     *
+     * @param bpnBoard Draws the board.
+     * @param spnSide Draws the side panel.
+     * @param iBuffers The number of buffers: 2 for double buffering, 3 for
+     * triple buffering.
+     */
+    public BoardCanvas(BoardPanel bpnBoard, SidePanel spnSide, int iBuffers) {
+        if (iBuffers < 2) {
+            throw new IllegalArgumentException("Invalid number of buffers: " + iBuffers);
+        }
+        this.bpnBoard = bpnBoard;
+        this.spnSide = spnSide;
+        this.iBuffers = iBuffers;
+        this.iBoardWidth = bpnBoard.getPreferredSize().width;
+        this.iSideWidth = spnSide.getPreferredSize().width;
+        this.iHeight = Math.max(bpnBoard.getPreferredSize().height,
+                spnSide.getPreferredSize().height);
+        setPreferredSize(new Dimension(iBoardWidth + iSideWidth, iHeight));
+        setBackground(Color.BLACK);
+        //las teclas las sigue recibiendo la ventana
+        setFocusable(false);
+    }
+
+    @Override
+    public void paint(Graphics g) {
+        //el game loop dibuja el proximo frame
+        bExpuesto = true;
+    }
+
+    @Override
+    public void update(Graphics g) {
+        paint(g);
+    }
+
+    /**
+     * Checks whether the window system asked for a frame since the last one
+     * was drawn.
+     *
+     * @return Whether a frame has to be drawn even if the game is the same.
+     */
+    public boolean isExposed() {
+        return bExpuesto;
+    }
+
+    /**
+     * Draws a frame and shows it. Called by the game loop. Nothing is drawn
+     * until the canvas is in a window that is shown.
+     */
+    public void render() {
+        if (!isDisplayable()) {
+            return;
+        }
+        BufferStrategy bstBuffers = getBufferStrategy();
+        if (bstBuffers == null) {
+            createBufferStrategy(iBuffers);
+            bstBuffers = getBufferStrategy();
+        }
+        bExpuesto = false;
+
+        /*
+		 * The buffers may lose their contents at any time (in video memory),
+		 * in that case the frame is drawn again.
+         */
+        do {
+            do {
+                Graphics g = bstBuffers.getDrawGraphics();
+                try {
+                    bpnBoard.render(g, getGraphicsConfiguration());
+                    Graphics gSide = g.create(iBoardWidth, 0, iSideWidth, iHeight);
+                    gSide.setColor(Color.BLACK);
+                    gSide.fillRect(0, 0, iSideWidth, iHeight);
+                    spnSide.render(gSide, iSideWidth);
+                    gSide.dispose();
+                } finally {
+                    g.dispose();
+                }
+            } while (bstBuffers.contentsRestored());
+            bstBuffers.show();
+        } while (bstBuffers.contentsLost());
+        Toolkit.getDefaultToolkit().sync();
+    }
+
+}
@@ -3,10 +3,19 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
 import java.awt.Image;
-import java.awt.Point;
-import java.awt.Toolkit;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.TexturePaint;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.io.IOException;
 import java.net.URL;
+import javax.imageio.ImageIO;
 import javax.swing.JPanel;
 
 /**
@@ -23,18 +32,6 @@ public class BoardPanel extends JPanel {
      */
     private static final long lSerialVersionUID = -1102632585936750607L;
 
-    /**
-     * The number of columns on the board. (Should be odd so we can start in the
-     * center).
-     */
-    public static final int iCOL_COUNT = 25;
-
-    /**
-     * The number of rows on the board. (Should be odd so we can start in the
-     * center).
-     */
-    public static final int iROW_COUNT = 25;
-
     /**
      * The size of each tile in pixels.
      */
@@ -60,30 +57,125 @@ public class BoardPanel extends JPanel {
      */
     private static final Font fntFONT = new Font("Tahoma", Font.BOLD, 25);
 
+    /**
+     * The font to draw the latency percentiles with.
+     */
+    private static final Font fntLATENCY_FONT = new Font("Monospaced", Font.PLAIN, 11);
+
+    /**
+     * The number of paints the latency percentiles are shown for before
+     * they are read again.
+     */
+    private static final int iLATENCY_REFRESH = 25;
+
+    /**
+     * The most tiles waiting to be redrawn. A paint with more redraws the
+     * whole board, so the lists do not grow with the board.
+     */
+    private static final int iMAX_PENDIENTES = 1024;
+
     /**
      * The SnakeGame instance.
      */
     private SnakeGame snkGame;
 
     /**
-     * The array of tiles that make up this board.
+     * The colors to draw the snake body with, indexed by the palette index
+     * stored in the {@code GameBoard}.
      */
-    private TileType[] tltTiles;
-
-    //imagen de los objetos malos
-    private Image imaMalo;
-    
-    //imagen del objeto bueno1
-    private Image imaBueno1;
-    
-    //imagen del objeto bueno2
-    private Image imaBueno2;
-    
-    //imagen del objeto bueno3
-    private Image imaBueno3;
-
-    //arreglo de colores para saber que color modificar una tile
-    private Color[] colColores;
+    private static final Color[] colPALETTE = {
+        Color.GREEN, Color.RED, Color.YELLOW, Color.ORANGE
+    };
+
+    /**
+     * The images of the tiles drawn from a file (the fruits and the venom),
+     * already scaled to a tile, indexed by {@code TileType} ordinal. Null
+     * for the other tiles, or if the file could not be read.
+     */
+    private final Image[] imaSprites = new Image[TileType.values().length];
+
+    /**
+     * One empty tile: the black background and the grid lines of its top
+     * and left edges. Drawn once, every tile is cleared by copying it, and
+     * the whole board by filling it with {@code tpaFondo}, so it is the same
+     * size on any board.
+     */
+    private BufferedImage imgFondo;
+    private TexturePaint tpaFondo;
+
+    /**
+     * The board as last painted, without the head. Only the tiles that
+     * changed are redrawn on it; painting copies it to the screen. It lives
+     * in video memory when it can, so its contents may be lost, and then
+     * every tile is redrawn.
+     *
+     * It only covers {@code rctSuperficie}, the part of the board that can
+     * be seen, so redrawing every tile costs what fits on the screen and not
+     * the whole board.
+     */
+    private VolatileImage vimTablero;
+
+    /**
+     * The part of the board {@code vimTablero} covers, in pixels: from the
+     * first tile of the visible part of the panel, as big as that part but
+     * never bigger than the screen. What is past it is off the screen and
+     * is not drawn.
+     */
+    private final Rectangle rctSuperficie = new Rectangle();
+
+    //la parte visible del panel, y el tamaño de la pantalla en que se leyo
+    //mas un tile, porque la superficie empieza en el borde de un tile
+    private final Rectangle rctVisible = new Rectangle();
+    private GraphicsConfiguration gcfUltima;
+    private int iPantallaAncho;
+    private int iPantallaAlto;
+
+    /**
+     * Guards the tiles to redraw, added by the game loop and taken by the
+     * event dispatch thread.
+     */
+    private final Object objCandado = new Object();
+
+    //tiles que hay que redibujar en el proximo paint, y el arreglo con que
+    //se intercambia al pintar
+    private int[] iPendientes;
+    private int iPendienteCount;
+    private int[] iDibujando;
+
+    //los tiles antes de este ya pidieron su repaint
+    private int iRepaintStart;
+
+    //si hay que redibujar todo el tablero en el proximo paint
+    private boolean bRedibujarTodo = true;
+
+    //copia de la snake que toma el game loop con el candado: las celdas
+    //pintadas por las ondas con su color, la cabeza y la celda de la que
+    //viene (-1 si no hay), el paint solo dibuja de aqui y nunca lee la snake
+    private final int[] iWaveCells = new int[64];
+    private final int[] iWaveColors = new int[iWaveCells.length];
+    private int iWaveCellCount;
+    private int iHeadCell = -1;
+    private int iPreviousCell = -1;
+
+    //estado que solo usa el game loop: donde estaba la cabeza y si habia un
+    //mensaje encima del tablero
+    private final Rectangle rctHead = new Rectangle();
+    private boolean bLastOverlay;
+
+    //lo que copia el paint de la snake, y donde dibuja la cabeza
+    private final int[] iOndasPintadas = new int[iWaveCells.length];
+    private final int[] iColoresPintados = new int[iWaveCells.length];
+    private final Rectangle rctPintada = new Rectangle();
+
+    /**
+     * Where the latency percentiles are shown, at the top left corner.
+     */
+    private final Rectangle rctLatencias = new Rectangle(4, 4, 330, 70);
+    private boolean bLastLatencias;
+
+    //las lineas de percentiles que se muestran y los paints que les quedan
+    private final String[] sLatencias = new String[4];
+    private int iLatenciasFrames;
     /**
      * Creates a new BoardPanel instance.
      *
@@ -91,110 +183,359 @@ public class BoardPanel extends JPanel {
      */
     public BoardPanel(SnakeGame snkGame) {
         this.snkGame = snkGame;
-        //inicializa las tiles
-        this.tltTiles = new TileType[iROW_COUNT * iCOL_COUNT];
-        //inicializa los colores
-        this.colColores = new Color[tltTiles.length];
-        //por default todas las tiles se deben de pintar en verde
-        //si se ocupa en ellas una tile del cuerpo de la snake
-        for(int iI=0;iI<colColores.length;iI++){
-            colColores[iI] = Color.GREEN;
-        }
-        setPreferredSize(new Dimension(iCOL_COUNT * iTILE_SIZE, iROW_COUNT * iTILE_SIZE));
+        GameBoard gbdBoard = snkGame.getEngine().getBoard();
+        setPreferredSize(new Dimension(gbdBoard.getColumns() * iTILE_SIZE,
+                gbdBoard.getRows() * iTILE_SIZE));
         setBackground(Color.BLACK);
-        //inicializar la imagen de los malos
-        URL urlMalo = this.getClass().getResource("skull.png");
-        imaMalo = Toolkit.getDefaultToolkit().getImage(urlMalo);
-        
-        //inicializo las imagenes de los buenos
-        URL urlBueno1 = this.getClass().getResource("strawberry.png");
-        imaBueno1 = Toolkit.getDefaultToolkit().getImage(urlBueno1);
-        URL urlBueno2 = this.getClass().getResource("peach.png");
-        imaBueno2 = Toolkit.getDefaultToolkit().getImage(urlBueno2);
-        URL urlBueno3 = this.getClass().getResource("banana.png");
-        imaBueno3 = Toolkit.getDefaultToolkit().getImage(urlBueno3);
+        //la imagen de los malos sobresale un poco del tile, las de los buenos
+        //empiezan un poco adentro
+        cargarSprite(TileType.Venom, "skull.png", -2, 24);
+        cargarSprite(TileType.Fruit, "strawberry.png", 2, iTILE_SIZE);
+        cargarSprite(TileType.Fruit2, "peach.png", 2, iTILE_SIZE);
+        cargarSprite(TileType.Fruit3, "banana.png", 2, iTILE_SIZE);
+
+        int iTiles = gbdBoard.getTileCount();
+        this.iPendientes = new int[Math.min(iMAX_PENDIENTES, Math.max(64, iTiles / 4))];
+        this.iDibujando = new int[iPendientes.length];
 
     }
 
     /**
-     * Clears all of the tiles on the board and sets their values to null.
+     * Reads an image and scales it once into a tile sized sprite, in the
+     * format of the screen. Only the part of the image that falls inside
+     * the tile is kept.
+     *
+     * @param tltType The tile the sprite is drawn for.
+     * @param sArchivo The name of the image, next to this class.
+     * @param iOffset Where the image starts in the tile, in pixels.
+     * @param iSize The size the image is scaled to, in pixels.
      */
-    public void clearBoard() {
-        for (int i = 0; i < tltTiles.length; i++) {
-            tltTiles[i] = null;
+    private void cargarSprite(TileType tltType, String sArchivo, int iOffset, int iSize) {
+        URL urlArchivo = getClass().getResource(sArchivo);
+        BufferedImage imgOriginal = null;
+        try {
+            imgOriginal = urlArchivo == null ? null : ImageIO.read(urlArchivo);
+        } catch (IOException e) {
+            System.out.println("Error en " + e.toString());
         }
+        if (imgOriginal == null) {
+            System.out.println("No se pudo leer " + sArchivo);
+            return;
+        }
+        //se achica a la mitad mientras sea grande, de una vez se veria serruchada
+        while (imgOriginal.getWidth() >= 2 * iSize && imgOriginal.getHeight() >= 2 * iSize) {
+            BufferedImage imgMitad = new BufferedImage(imgOriginal.getWidth() / 2,
+                    imgOriginal.getHeight() / 2, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g2dMitad = imgMitad.createGraphics();
+            g2dMitad.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                    RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2dMitad.drawImage(imgOriginal, 0, 0, imgMitad.getWidth(), imgMitad.getHeight(), null);
+            g2dMitad.dispose();
+            imgOriginal = imgMitad;
+        }
+        BufferedImage imgSprite;
+        if (GraphicsEnvironment.isHeadless()) {
+            imgSprite = new BufferedImage(iTILE_SIZE, iTILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+        } else {
+            imgSprite = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                    .getDefaultScreenDevice().getDefaultConfiguration()
+                    .createCompatibleImage(iTILE_SIZE, iTILE_SIZE, Transparency.TRANSLUCENT);
+        }
+        Graphics2D g2dSprite = imgSprite.createGraphics();
+        g2dSprite.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2dSprite.drawImage(imgOriginal, iOffset, iOffset, iSize, iSize, null);
+        g2dSprite.dispose();
+        imaSprites[tltType.ordinal()] = imgSprite;
     }
 
     /**
-     * Sets the tile at the desired coordinate.
-     *
-     * @param pntPoint The coordinate of the tile.
-     * @param tltType The type to set the tile to.
+     * Requests a repaint of the tiles that changed since the last call, and
+     * clears the board's list of changes. Called by the game loop after it
+     * ran its ticks; the whole board is repainted if it was cleared, if too
+     * many tiles changed, or while a message is shown on top of it.
      */
-    public void setTile(Point pntPoint, TileType tltType) {
-        setTile(pntPoint.x, pntPoint.y, tltType);
+    public void repaintChanges() {
+        SnakeEngine sneEngine = snkGame.getEngine();
+        GameBoard gbdBoard = sneEngine.getBoard();
+        boolean bOverlay = snkGame.isGameOver() || snkGame.isNewGame() || snkGame.isPaused();
+        synchronized (objCandado) {
+            if (gbdBoard.isAllChanged() || gbdBoard.getChangeCount() > iPendientes.length / 2) {
+                bRedibujarTodo = true;
+            }
+            for (int iN = 0; iN < gbdBoard.getChangeCount() && !bRedibujarTodo; iN++) {
+                addPendiente(gbdBoard.getChange(iN));
+            }
+
+            //las celdas de las ondas de antes y las de ahora
+            for (int iN = 0; iN < iWaveCellCount; iN++) {
+                addPendiente(iWaveCells[iN]);
+            }
+            iWaveCellCount = 0;
+            for (int iW = 0; iW < sneEngine.getWaveCount(); iW++) {
+                ColorWave cwvWave = sneEngine.getWave(iW);
+                if (!cwvWave.isActive()) {
+                    continue;
+                }
+                for (int iI = cwvWave.getFirstSegment(); iI <= cwvWave.getLastSegment()
+                        && iI < sneEngine.getSnakeLength()
+                        && iWaveCellCount < iWaveCells.length; iI++) {
+                    int iCell = sneEngine.getSnakeCell(iI);
+                    iWaveColors[iWaveCellCount] = cwvWave.getColor();
+                    iWaveCells[iWaveCellCount++] = iCell;
+                    addPendiente(iCell);
+                }
+            }
+
+            //la cabeza, y de donde viene mientras el juego corre
+            iHeadCell = -1;
+            iPreviousCell = -1;
+            if (sneEngine.getSnakeLength() >= 1
+                    && gbdBoard.getTile(sneEngine.getSnakeCell(0)) == TileType.SnakeHead) {
+                iHeadCell = sneEngine.getSnakeCell(0);
+                if (!bOverlay && sneEngine.getSnakeLength() >= 2) {
+                    iPreviousCell = sneEngine.getSnakeCell(1);
+                }
+            }
+
+            //la cabeza de antes y la de ahora
+            repaint(rctHead);
+            getHeadBounds(iHeadCell, iPreviousCell, rctHead);
+            repaint(rctHead);
+
+            if (bRedibujarTodo || bOverlay || bOverlay != bLastOverlay) {
+                repaint();
+            } else {
+                for (int iN = iRepaintStart; iN < iPendienteCount; iN++) {
+                    repaintCell(iPendientes[iN]);
+                }
+            }
+            iRepaintStart = iPendienteCount;
+        }
+        gbdBoard.clearChanges();
+
+        bLastOverlay = bOverlay;
+
+        //las latencias se actualizan aunque no cambie el tablero
+        boolean bLatencias = snkGame.isLatencyShown();
+        if (bLatencias || bLastLatencias) {
+            repaint(rctLatencias);
+        }
+        bLastLatencias = bLatencias;
     }
 
     /**
-     * Sets the tile at the desired coordinate.
-     *
-     * @param iX The x coordinate of the tile.
-     * @param iY The y coordinate of the tile.
-     * @param tltType The type to set the tile to.
+     * Adds a tile to redraw on the next paint. Called holding the lock.
      */
-    public void setTile(int iX, int iY, TileType tltType) {
-        tltTiles[iY * iROW_COUNT + iX] = tltType;
+    private void addPendiente(int iCell) {
+        if (bRedibujarTodo) {
+            return;
+        }
+        if (iPendienteCount == iPendientes.length) {
+            bRedibujarTodo = true;
+            return;
+        }
+        iPendientes[iPendienteCount++] = iCell;
     }
-    public void setColor(int iX, int iY, Color colColor){
-        colColores[iY*iROW_COUNT+iX] = colColor;
+
+    /**
+     * Requests a repaint of the rectangle of one tile.
+     */
+    private void repaintCell(int iCell) {
+        int iColumns = snkGame.getEngine().getBoard().getColumns();
+        repaint((iCell % iColumns) * iTILE_SIZE, (iCell / iColumns) * iTILE_SIZE,
+                iTILE_SIZE, iTILE_SIZE);
     }
+
     /**
-     * Gets the tile at the desired coordinate.
+     * Gets where the head is drawn. While the game runs the head is drawn
+     * between the tile it left and the one it is on, as far as the logic
+     * timer is towards the next tick, so it moves smoothly at any frame
+     * rate.
      *
-     * @param iX The x coordinate of the tile.
-     * @param iY The y coordinate of the tile.
-     * @return
+     * @param iCell The cell of the head, -1 if there is no head on the
+     * board.
+     * @param iPrevious The cell the head left, -1 to draw it on its cell.
+     * @param rctBounds Set to the head's rectangle, empty if there is no
+     * head on the board.
      */
-    public TileType getTile(int iX, int iY) {
-        return tltTiles[iY * iROW_COUNT + iX];
-    }
-    //regresa el color asociado a una tile en especifico
-    //misma logica de getTile
-    public Color getColor(int iX, int iY){
-        return colColores[iY*iROW_COUNT+iX];
+    private void getHeadBounds(int iCell, int iPrevious, Rectangle rctBounds) {
+        rctBounds.setBounds(0, 0, 0, 0);
+        if (iCell < 0) {
+            return;
+        }
+        int iColumns = snkGame.getEngine().getBoard().getColumns();
+        rctBounds.setBounds((iCell % iColumns) * iTILE_SIZE, (iCell / iColumns) * iTILE_SIZE,
+                iTILE_SIZE, iTILE_SIZE);
+        if (iPrevious >= 0) {
+            int iDX = iCell % iColumns - iPrevious % iColumns;
+            int iDY = iCell / iColumns - iPrevious / iColumns;
+            if (Math.abs(iDX) + Math.abs(iDY) == 1) {
+                float fAlpha = snkGame.getAlpha();
+                rctBounds.x = (iPrevious % iColumns) * iTILE_SIZE
+                        + Math.round(iDX * iTILE_SIZE * fAlpha);
+                rctBounds.y = (iPrevious / iColumns) * iTILE_SIZE
+                        + Math.round(iDY * iTILE_SIZE * fAlpha);
+            }
+        }
     }
+
     @Override
     public void paintComponent(Graphics g) {
-        super.paintComponent(g);
+        render(g, getGraphicsConfiguration());
+    }
+
+    /**
+     * Draws the board. Used by {@code paintComponent}, and by a
+     * {@code BoardCanvas} that draws the board from the game loop.
+     *
+     * @param g The graphics object to draw to.
+     * @param gcfPantalla The configuration of the screen it is shown on.
+     */
+    public void render(Graphics g, GraphicsConfiguration gcfPantalla) {
+        long lStart = System.nanoTime();
+        AllocationMeter amtMedidor = snkGame.getAllocationMeter();
+        long lAsignados = amtMedidor == null ? 0 : AllocationMeter.getAllocatedBytes();
+        GameBoard gbdBoard = snkGame.getEngine().getBoard();
+
+        /*
+		 * Take the tiles that changed since the last paint, and the snake as
+		 * the game loop last saw it: the snake itself is never read here,
+		 * the loop may be moving it.
+         */
+        boolean bTodo;
+        int iCount;
+        int iOndas;
+        int iCabeza;
+        int iAnterior;
+        synchronized (objCandado) {
+            iOndas = iWaveCellCount;
+            System.arraycopy(iWaveCells, 0, iOndasPintadas, 0, iOndas);
+            System.arraycopy(iWaveColors, 0, iColoresPintados, 0, iOndas);
+            iCabeza = iHeadCell;
+            iAnterior = iPreviousCell;
+            bTodo = bRedibujarTodo;
+            iCount = iPendienteCount;
+            int[] iTemp = iDibujando;
+            iDibujando = iPendientes;
+            iPendientes = iTemp;
+            iPendienteCount = 0;
+            iRepaintStart = 0;
+            bRedibujarTodo = false;
+        }
 
         /*
-		 * Loop through each tile on the board and draw it if it
-		 * is not null.
+		 * Redraw those tiles on the image of the board, or all of them if
+		 * the board was cleared. The head is not part of the image, it is
+		 * drawn on top wherever it is between two tiles.
          */
-        for (int iX = 0; iX < iCOL_COUNT; iX++) {
-            for (int iY = 0; iY < iROW_COUNT; iY++) {
-                TileType tltType = getTile(iX, iY);
-                Color colColor = getColor(iX,iY);
-                if (tltType != null) {
-                    drawTile(iX * iTILE_SIZE, iY * iTILE_SIZE, tltType
-                            ,colColor, g);
+        int iWidth = gbdBoard.getColumns() * iTILE_SIZE;
+        int iHeight = gbdBoard.getRows() * iTILE_SIZE;
+        if (imgFondo == null) {
+            imgFondo = createFondo(gcfPantalla);
+            tpaFondo = new TexturePaint(imgFondo, new Rectangle(0, 0, iTILE_SIZE, iTILE_SIZE));
+        }
+        if (gcfPantalla != gcfUltima) {
+            Rectangle rctPantalla = gcfPantalla.getBounds();
+            iPantallaAncho = (int) Math.min((long) rctPantalla.width + iTILE_SIZE, Integer.MAX_VALUE);
+            iPantallaAlto = (int) Math.min((long) rctPantalla.height + iTILE_SIZE, Integer.MAX_VALUE);
+            gcfUltima = gcfPantalla;
+        }
+        //sin ventana (en un BoardCanvas) se ve desde la esquina del tablero
+        if (isShowing()) {
+            computeVisibleRect(rctVisible);
+        } else {
+            rctVisible.setBounds(0, 0, iWidth, iHeight);
+        }
+        int iSupX = Math.min(rctVisible.x / iTILE_SIZE * iTILE_SIZE, iWidth - iTILE_SIZE);
+        int iSupY = Math.min(rctVisible.y / iTILE_SIZE * iTILE_SIZE, iHeight - iTILE_SIZE);
+        int iSupAncho = Math.max(iTILE_SIZE, Math.min(rctVisible.x + rctVisible.width - iSupX,
+                Math.min(iPantallaAncho, iWidth - iSupX)));
+        int iSupAlto = Math.max(iTILE_SIZE, Math.min(rctVisible.y + rctVisible.height - iSupY,
+                Math.min(iPantallaAlto, iHeight - iSupY)));
+        if (iSupX != rctSuperficie.x || iSupY != rctSuperficie.y) {
+            rctSuperficie.setLocation(iSupX, iSupY);
+            bTodo = true;
+        }
+        rctSuperficie.setSize(iSupAncho, iSupAlto);
+
+        int iEstado = vimTablero == null || vimTablero.getWidth() != iSupAncho
+                || vimTablero.getHeight() != iSupAlto ? VolatileImage.IMAGE_INCOMPATIBLE
+                : vimTablero.validate(gcfPantalla);
+        if (iEstado == VolatileImage.IMAGE_INCOMPATIBLE) {
+            vimTablero = gcfPantalla.createCompatibleVolatileImage(iSupAncho, iSupAlto);
+            bTodo = true;
+        } else if (iEstado == VolatileImage.IMAGE_RESTORED) {
+            bTodo = true;
+        }
+        Graphics2D g2dTablero = vimTablero.createGraphics();
+        //se dibuja en coordenadas del tablero
+        g2dTablero.translate(-iSupX, -iSupY);
+        int iColumns = gbdBoard.getColumns();
+        if (bTodo) {
+            g2dTablero.setPaint(tpaFondo);
+            g2dTablero.fillRect(iSupX, iSupY, iSupAncho, iSupAlto);
+            g2dTablero.setColor(Color.DARK_GRAY);
+            g2dTablero.drawRect(0, 0, iWidth - 1, iHeight - 1);
+            //solo los tiles que caen en la superficie
+            int iPrimera = iSupX / iTILE_SIZE;
+            int iUltima = Math.min(iColumns, (iSupX + iSupAncho + iTILE_SIZE - 1) / iTILE_SIZE);
+            int iUltimaFila = Math.min(gbdBoard.getRows(), (iSupY + iSupAlto + iTILE_SIZE - 1) / iTILE_SIZE);
+            for (int iR = iSupY / iTILE_SIZE; iR < iUltimaFila; iR++) {
+                for (int iC = iR * iColumns + iPrimera; iC < iR * iColumns + iUltima; iC++) {
+                    if (gbdBoard.getTile(iC) != null) {
+                        drawCell(iC, gbdBoard, g2dTablero);
+                    }
+                }
+            }
+        } else {
+            for (int iN = 0; iN < iCount; iN++) {
+                int iCell = iDibujando[iN];
+                if (rctSuperficie.contains((iCell % iColumns) * iTILE_SIZE,
+                        (iCell / iColumns) * iTILE_SIZE)) {
+                    drawCell(iCell, gbdBoard, g2dTablero);
                 }
             }
         }
 
         /*
-		 * Draw the grid on the board. This makes it easier to see exactly
-		 * where we in relation to the fruit.
-		 * 
-		 * The panel is one pixel too small to draw the bottom and right
-		 * outlines, so we outline the board with a rectangle separately.
+		 * Paint the body segments covered by the running color waves on
+		 * top, only those segments are visited.
          */
-        g.setColor(Color.DARK_GRAY);
-        g.drawRect(0, 0, getWidth() - 1, getHeight() - 1);
-        for (int iX = 0; iX < iCOL_COUNT; iX++) {
-            for (int iY = 0; iY < iROW_COUNT; iY++) {
-                g.drawLine(iX * iTILE_SIZE, 0, iX * iTILE_SIZE, getHeight());
-                g.drawLine(0, iY * iTILE_SIZE, getWidth(), iY * iTILE_SIZE);
+        for (int iN = 0; iN < iOndas; iN++) {
+            int iCell = iOndasPintadas[iN];
+            if (gbdBoard.getTile(iCell) == TileType.SnakeBody) {
+                int iX = (iCell % gbdBoard.getColumns()) * iTILE_SIZE;
+                int iY = (iCell / gbdBoard.getColumns()) * iTILE_SIZE;
+                g2dTablero.setClip(iX, iY, iTILE_SIZE, iTILE_SIZE);
+                drawTile(iX, iY, TileType.SnakeBody, colPALETTE[iColoresPintados[iN]], g2dTablero);
+                drawGrid(iCell, gbdBoard, g2dTablero);
+            }
+        }
+        g2dTablero.dispose();
+
+        /*
+		 * Copy the part of the image that has to be painted, then draw the
+		 * head and the grid lines it covers.
+         */
+        g.drawImage(vimTablero, iSupX, iSupY, null);
+        if (vimTablero.contentsLost()) {
+            synchronized (objCandado) {
+                bRedibujarTodo = true;
+            }
+            repaint();
+        }
+        getHeadBounds(iCabeza, iAnterior, rctPintada);
+        if (!rctPintada.isEmpty()) {
+            drawTile(rctPintada.x, rctPintada.y, TileType.SnakeHead,
+                    colPALETTE[GameBoard.iCOLOR_GREEN], g);
+            int iCell = (rctPintada.y / iTILE_SIZE) * iColumns + rctPintada.x / iTILE_SIZE;
+            drawGrid(iCell, gbdBoard, g);
+            if (rctPintada.x % iTILE_SIZE != 0) {
+                drawGrid(iCell + 1, gbdBoard, g);
+            }
+            if (rctPintada.y % iTILE_SIZE != 0) {
+                drawGrid(iCell + iColumns, gbdBoard, g);
             }
         }
 
@@ -207,8 +548,8 @@ public class BoardPanel extends JPanel {
             /*
 			 * Get the center coordinates of the board.
              */
-            int iCenterX = getWidth() / 2;
-            int iCenterY = getHeight() / 2;
+            int iCenterX = iWidth / 2;
+            int iCenterY = iHeight / 2;
 
             /*
 			 * Allocate the messages for and set their values based on the game
@@ -234,6 +575,109 @@ public class BoardPanel extends JPanel {
             g.drawString(sLargeMessage, iCenterX - g.getFontMetrics().stringWidth(sLargeMessage) / 2, iCenterY - 50);
             g.drawString(sSmallMessage, iCenterX - g.getFontMetrics().stringWidth(sSmallMessage) / 2, iCenterY + 50);
         }
+
+        if (snkGame.isLatencyShown()) {
+            drawLatencies(g);
+        }
+        snkGame.getFrameLatency().record(System.nanoTime() - lStart);
+        if (amtMedidor != null) {
+            amtMedidor.addFrame(AllocationMeter.getAllocatedBytes() - lAsignados);
+        }
+    }
+
+    /**
+     * Draws the percentiles of the game's latencies at the top left corner.
+     * They are read again every {@code iLATENCY_REFRESH} paints, so they can
+     * be followed by eye and the text is not built on every paint.
+     */
+    private void drawLatencies(Graphics g) {
+        if (iLatenciasFrames-- <= 0 || sLatencias[0] == null) {
+            LatencyHistogram[] lhsLatencias = snkGame.getLatencies();
+            for (int iI = 0; iI < sLatencias.length; iI++) {
+                LatencyHistogram lhsLatencia = lhsLatencias[iI];
+                sLatencias[iI] = String.format("%-15s %7.2f %7.2f %7.2f %7.2f",
+                        lhsLatencia.getName(), lhsLatencia.getPercentile(0.5) / 1e6,
+                        lhsLatencia.getPercentile(0.99) / 1e6,
+                        lhsLatencia.getPercentile(0.999) / 1e6, lhsLatencia.getMax() / 1e6);
+            }
+            iLatenciasFrames = iLATENCY_REFRESH;
+        }
+        g.setColor(Color.BLACK);
+        g.fillRect(rctLatencias.x, rctLatencias.y, rctLatencias.width, rctLatencias.height);
+        g.setColor(Color.WHITE);
+        g.setFont(fntLATENCY_FONT);
+        int iDrawY = rctLatencias.y + 13;
+        g.drawString("ms                  p50     p99   p99.9     max", rctLatencias.x + 4, iDrawY);
+        for (String sLinea : sLatencias) {
+            g.drawString(sLinea, rctLatencias.x + 4, iDrawY += 13);
+        }
+    }
+
+    /**
+     * Redraws one tile, its background and its grid lines, on the image of
+     * the board. Nothing is drawn outside the tile.
+     */
+    private void drawCell(int iCell, GameBoard gbdBoard, Graphics2D g2dTablero) {
+        int iX = (iCell % gbdBoard.getColumns()) * iTILE_SIZE;
+        int iY = (iCell / gbdBoard.getColumns()) * iTILE_SIZE;
+        g2dTablero.setClip(iX, iY, iTILE_SIZE, iTILE_SIZE);
+        g2dTablero.drawImage(imgFondo, iX, iY, null);
+        TileType tltType = gbdBoard.getTile(iCell);
+        if (tltType != null && tltType != TileType.SnakeHead) {
+            drawTile(iX, iY, tltType, colPALETTE[GameBoard.iCOLOR_GREEN], g2dTablero);
+            drawGrid(iCell, gbdBoard, g2dTablero);
+        } else if (iX + iTILE_SIZE == gbdBoard.getColumns() * iTILE_SIZE
+                || iY + iTILE_SIZE == gbdBoard.getRows() * iTILE_SIZE) {
+            //el borde del tablero no esta en el tile vacio
+            drawGrid(iCell, gbdBoard, g2dTablero);
+        }
+    }
+
+    /**
+     * Draws an empty tile, in the format of the screen so copying it is as
+     * cheap as it gets.
+     */
+    private BufferedImage createFondo(GraphicsConfiguration gcfPantalla) {
+        BufferedImage imgNuevo = gcfPantalla.createCompatibleImage(iTILE_SIZE, iTILE_SIZE);
+        Graphics2D g2dFondo = imgNuevo.createGraphics();
+        g2dFondo.setColor(Color.BLACK);
+        g2dFondo.fillRect(0, 0, iTILE_SIZE, iTILE_SIZE);
+
+        /*
+		 * Draw the grid on the board. This makes it easier to see exactly
+		 * where we in relation to the fruit.
+		 * 
+		 * Each tile has the lines of its top and left edges; the bottom and
+		 * right outlines of the board are drawn with the tiles of the last
+		 * row and column.
+         */
+        g2dFondo.setColor(Color.DARK_GRAY);
+        g2dFondo.drawLine(0, 0, 0, iTILE_SIZE - 1);
+        g2dFondo.drawLine(0, 0, iTILE_SIZE - 1, 0);
+        g2dFondo.dispose();
+        return imgNuevo;
+    }
+
+    /**
+     * Draws the grid lines of one tile over what was drawn on it: its top
+     * and left edges, and the outline of the board if it is on the last row
+     * or column.
+     */
+    private void drawGrid(int iCell, GameBoard gbdBoard, Graphics g) {
+        int iColumn = iCell % gbdBoard.getColumns();
+        int iRow = iCell / gbdBoard.getColumns();
+        int iX = iColumn * iTILE_SIZE;
+        int iY = iRow * iTILE_SIZE;
+        int iLast = iTILE_SIZE - 1;
+        g.setColor(Color.DARK_GRAY);
+        g.drawLine(iX, iY, iX, iY + iLast);
+        g.drawLine(iX, iY, iX + iLast, iY);
+        if (iColumn == gbdBoard.getColumns() - 1) {
+            g.drawLine(iX + iLast, iY, iX + iLast, iY + iLast);
+        }
+        if (iRow == gbdBoard.getRows() - 1) {
+            g.drawLine(iX, iY + iLast, iX + iLast, iY + iLast);
+        }
     }
 
     /**
@@ -254,19 +698,17 @@ public class BoardPanel extends JPanel {
         switch (tltType) {
 
             /*
-		 * A fruit is depicted as a small red circle that with a bit of padding
-		 * on each side.
+		 * The fruits and the venom are depicted by their sprites, already
+		 * scaled to the tile.
              */
             case Fruit:
-                g.drawImage(imaBueno1, iX + 2, iY + 2, iTILE_SIZE, iTILE_SIZE,this);
-                break;
-                
             case Fruit2:
-                g.drawImage(imaBueno2, iX + 2, iY + 2, iTILE_SIZE, iTILE_SIZE,this);
-                break;
-                
             case Fruit3:
-                g.drawImage(imaBueno3, iX + 2, iY + 2, iTILE_SIZE, iTILE_SIZE,this);
+            case Venom:
+                Image imaSprite = imaSprites[tltType.ordinal()];
+                if (imaSprite != null) {
+                    g.drawImage(imaSprite, iX, iY, null);
+                }
                 break;
 
             /*
@@ -348,91 +790,7 @@ public class BoardPanel extends JPanel {
 
                 }
                 break;
-            case Venom:
-                g.drawImage(imaMalo,iX - 2, iY - 2, 24, 24,this);
-                break;
 
         }
     }
-    /**
-     * funcion que sirve para traducir el tablero de tiles
-     * a un arreglo de integers que se pueda guardar en un archivo binario
-     * para poder hacer save/load
-     * 
-     * @return int[]
-     */
-    public int[] getTablero(){
-        int iarrSalida[] = new int[tltTiles.length];
-        for(int iC=0;iC<tltTiles.length;iC++){
-            if(tltTiles[iC]==null){
-                iarrSalida[iC]=-1; //si la tile es null se usa un -1
-            }else{
-                //se traduce cada tile a un equivalente numerico
-            switch(tltTiles[iC]){
-                case Fruit:
-                    iarrSalida[iC] = 1;
-                    break;
-                case SnakeHead:
-                    iarrSalida[iC] = 2;
-                    break;
-                case SnakeBody:
-                    iarrSalida[iC] = 3;
-                    break;
-                case Venom:
-                    iarrSalida[iC] = 4;
-                    break;
-                case Fruit2:
-                    iarrSalida[iC] = 5;
-                    break;
-                case Fruit3:
-                    iarrSalida[iC] = 6;
-                    break;
-                    
-            }
-            }
-        }
-        return iarrSalida;
-    }
-    /**
-     * Funcion opuesta al get tablero
-     * en este caso traduce un arreglo de integers al arreglo de tiles
-     * 
-     * 
-     * 
-     * @param iArrEntrada 
-     */
-    public void setTablero(int[] iArrEntrada){
-        tltTiles = new TileType[iArrEntrada.length];//se crean de nuevo los arreglos
-        colColores = new Color[tltTiles.length];
-        for(int iI=0;iI<colColores.length;iI++){
-            //Se reinician los colores que se dibujan cada tile
-            colColores[iI] = Color.GREEN;
-        }
-        this.clearBoard(); //se limpia el tablero
-        for(int iC=0;iC<iArrEntrada.length;iC++){
-            switch(iArrEntrada[iC]){ //se procede a traducir el tablero con los equivalente numericos
-                case -1:
-                    tltTiles[iC] = null;
-                    break;
-                case 1:
-                    tltTiles[iC] = TileType.Fruit;
-                    break;
-                case 2:
-                    tltTiles[iC] = TileType.SnakeHead;
-                    break;
-                case 3:
-                    tltTiles[iC] = TileType.SnakeBody;
-                    break;
-                case 4:
-                    tltTiles[iC] = TileType.Venom;
-                    break;
-                case 5:
-                    tltTiles[iC] = TileType.Fruit2;
-                    break;
-                case 6:
-                    tltTiles[iC] = TileType.Fruit3;
-                    break;
-            }
-        }
-    }
 }
@@ -1,15 +1,20 @@
 /**
  * The {@code Clock} class is responsible for tracking the number of cycles
  * that have elapsed over time. 
+ * 
+ * Time is kept in whole nanoseconds, so the remainder carried from one
+ * update to the next never drifts. The fraction of a cycle that has elapsed
+ * since the last one ({@code getAlpha}) lets a renderer draw between two
+ * ticks.
  * @author Brendan Jones
  *
  */
 public class Clock {
 	
 	/**
-	 * The number of milliseconds that make up one cycle.
+	 * The number of nanoseconds that make up one cycle.
 	 */
-	private float fMillisPerCycle;
+	private long lNanosPerCycle;
 	
 	/**
 	 * The last time that the clock was updated (used for calculating the
@@ -23,9 +28,22 @@ public class Clock {
 	private int iElapsedCycles;
 	
 	/**
-	 * The amount of excess time towards the next elapsed cycle.
+	 * The amount of excess time towards the next elapsed cycle, in
+	 * nanoseconds.
 	 */
-	private float fExcessCycles;
+	private long lExcessNanos;
+	
+	/**
+	 * The most cycles that may be pending at once. Past it, the cycles are
+	 * dropped, so the game slows down after a long pause instead of running
+	 * a burst of cycles to catch up.
+	 */
+	private int iMaxElapsedCycles = Integer.MAX_VALUE;
+	
+	/**
+	 * The number of cycles dropped because of {@code iMaxElapsedCycles}.
+	 */
+	private long lDroppedCycles;
 	
 	/**
 	 * Whether or not the clock is paused.
@@ -46,7 +64,19 @@ public class Clock {
 	 * @param cyclesPerSecond The number of cycles per second.
 	 */
 	public void setCyclesPerSecond(float fCyclesPerSecond) {
-		this.fMillisPerCycle = (1.0f / fCyclesPerSecond) * 1000;
+		this.lNanosPerCycle = Math.max(1L, Math.round(1000000000.0 / fCyclesPerSecond));
+	}
+	
+	/**
+	 * Sets the most cycles that may be pending at once, to bound how many
+	 * cycles are run to catch up after a pause such as a long GC.
+	 * @param iMaxElapsedCycles The number of cycles, at least 1.
+	 */
+	public void setMaxElapsedCycles(int iMaxElapsedCycles) {
+		if (iMaxElapsedCycles < 1) {
+			throw new IllegalArgumentException("Invalid number of cycles: " + iMaxElapsedCycles);
+		}
+		this.iMaxElapsedCycles = iMaxElapsedCycles;
 	}
 	
 	/**
@@ -56,7 +86,7 @@ public class Clock {
 	 */
 	public void reset() {
 		this.iElapsedCycles = 0;
-		this.fExcessCycles = 0.0f;
+		this.lExcessNanos = 0;
 		this.lLastUpdate = getCurrentTime();
 		this.bIsPaused = false;
 	}
@@ -70,12 +100,17 @@ public class Clock {
 	public void update() {
 		//Get the current time and calculate the delta time.
 		long lCurrUpdate = getCurrentTime();
-		float fDelta = (float)(lCurrUpdate - lLastUpdate) + fExcessCycles;
+		long lDelta = (lCurrUpdate - lLastUpdate) + lExcessNanos;
 		
 		//Update the number of elapsed and excess ticks if we're not paused.
 		if(!bIsPaused) {
-			this.iElapsedCycles += (int)Math.floor(fDelta / fMillisPerCycle);
-			this.fExcessCycles = fDelta % fMillisPerCycle;
+			long lCycles = iElapsedCycles + lDelta / lNanosPerCycle;
+			if(lCycles > iMaxElapsedCycles) {
+				this.lDroppedCycles += lCycles - iMaxElapsedCycles;
+				lCycles = iMaxElapsedCycles;
+			}
+			this.iElapsedCycles = (int)lCycles;
+			this.lExcessNanos = lDelta % lNanosPerCycle;
 		}
 		
 		//Set the last update time for the next update cycle.
@@ -126,14 +161,31 @@ public class Clock {
 	}
 	
 	/**
-	 * Calculates the current time in milliseconds using the computer's high
+	 * Gets how far the clock is between the last cycle and the next one, as
+	 * of the last update. A renderer uses it to draw between two ticks.
+	 * @return A number between 0 (inclusive) and 1 (exclusive).
+	 */
+	public float getAlpha() {
+		return (float)lExcessNanos / lNanosPerCycle;
+	}
+	
+	/**
+	 * Gets the number of cycles dropped because too many were pending.
+	 * @return The number of cycles.
+	 * @see setMaxElapsedCycles
+	 */
+	public long getDroppedCycles() {
+		return lDroppedCycles;
+	}
+	
+	/**
+	 * Gets the current time in nanoseconds using the computer's high
 	 * resolution clock. This is much more reliable than
-	 * {@code System.getCurrentTimeMillis()}, and quicker than
-	 * {@code System.nanoTime()}.
-	 * @return The current time in milliseconds.
+	 * {@code System.getCurrentTimeMillis()}.
+	 * @return The current time in nanoseconds.
 	 */
 	private static final long getCurrentTime() {
-		return (System.nanoTime() / 1000000L);
+		return System.nanoTime();
 	}
 
 }
@@ -0,0 +1,98 @@
+
+/**
+ * The {@code ColorWave} class describes the color effect that runs down the
+ * snake after it eats a fruit. A wave is a run of segments painted in a
+ * special color that moves one segment towards the tail every tick.
+ *
+ * The wave does not write colors anywhere: whoever draws the snake asks it
+ * which segments it covers and paints those, so advancing a wave costs the
+ * same no matter how long the snake is.
+ *
+ * @author Brendan Jones
+ *
+ */
+public class ColorWave {
+
+    //posicion (segmento) del frente de la onda
+    private int iPos;
+
+    //cantidad de segmentos que pinta la onda
+    private int iLength;
+
+    //indice de la paleta con que se pinta la onda
+    private int iColor;
+
+    //si la onda se sigue moviendo por la snake
+    private boolean bActive;
+
+    /**
+     * Starts (or restarts) the wave.
+     *
+     * @param iPos The segment the front of the wave starts at.
+     * @param iLength The number of segments the wave paints.
+     * @param iColor The palette index to paint with.
+     */
+    public void start(int iPos, int iLength, int iColor) {
+        this.iPos = iPos;
+        this.iLength = iLength;
+        this.iColor = iColor;
+        this.bActive = true;
+    }
+
+    /**
+     * Moves the wave one segment towards the tail. The wave stops once its
+     * front goes past the tail.
+     *
+     * @param iSnakeLength The current length of the snake.
+     */
+    public void advance(int iSnakeLength) {
+        if (bActive && ++iPos >= iSnakeLength) {
+            bActive = false;
+        }
+    }
+
+    /**
+     * Stops the wave.
+     */
+    public void stop() {
+        this.bActive = false;
+    }
+
+    /**
+     * Checks whether the wave is still running.
+     *
+     * @return Whether the wave paints any segment.
+     */
+    public boolean isActive() {
+        return bActive;
+    }
+
+    /**
+     * Gets the palette index the wave paints with.
+     *
+     * @return The palette index.
+     */
+    public int getColor() {
+        return iColor;
+    }
+
+    /**
+     * Gets the first (closest to the head) segment the wave paints.
+     *
+     * @return The segment index, 0 being the head.
+     */
+    public int getFirstSegment() {
+        return Math.max(0, iPos - iLength + 1);
+    }
+
+    /**
+     * Gets the last (closest to the tail) segment the wave paints. It may be
+     * past the tail if the snake got shorter.
+     *
+     * @return The segment index, 0 being the head.
+     */
+    public int getLastSegment() {
+        return iPos;
+    }
+
+}
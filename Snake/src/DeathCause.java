@@ -0,0 +1,30 @@
+
+/**
+ * The {@code DeathCause} enum tells what the snake hit when the game ended.
+ * @author Brendan Jones
+ *
+ */
+public enum DeathCause {
+
+	/**
+	 * The snake left the board.
+	 */
+	Wall,
+	
+	/**
+	 * The snake ran into its own body (or, in the arena, another snake's).
+	 */
+	Body,
+	
+	/**
+	 * The snake ate a venom tile.
+	 */
+	Venom,
+	
+	/**
+	 * In the arena, the snake's head moved to the same tile as another
+	 * snake's head.
+	 */
+	HeadOn
+	
+}
@@ -0,0 +1,563 @@
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The {@code GameBoard} class holds the contents of the game board without
+ * any knowledge of how it is drawn. It can be used on machines without a
+ * display, the {@code BoardPanel} only reads from it.
+ *
+ * Each tile is stored in a single byte holding the tile type
+ * ({@code ordinal() + 1}, 0 meaning empty).
+ *
+ * By default the board also keeps an index of its empty tiles. A board can
+ * be created without it; then {@code setTile} only writes the tile's byte,
+ * so different threads may set different tiles at the same time.
+ *
+ * The board can also keep a list of the tiles that changed since the list
+ * was last cleared, which is what the network protocol sends each tick.
+ * A tile already in the list is flagged with a spare bit of its byte, so
+ * it is only listed once. The list holds at most {@code iMAX_CHANGES}
+ * tiles; past that the board is flagged as all changed instead.
+ *
+ * @author Brendan Jones
+ *
+ */
+public class GameBoard {
+
+    /**
+     * The default number of columns on the board. (Should be odd so we can
+     * start in the center).
+     */
+    public static final int iDEFAULT_COL_COUNT = 25;
+
+    /**
+     * The default number of rows on the board. (Should be odd so we can start
+     * in the center).
+     */
+    public static final int iDEFAULT_ROW_COUNT = 25;
+
+    /**
+     * The smallest number of columns or rows a board can have.
+     */
+    public static final int iMIN_SIZE = 5;
+
+    /**
+     * The largest number of columns or rows a board can have.
+     *
+     * A board takes one byte per tile, plus 8 bytes per tile for the index
+     * of empty tiles (two ints, since a board this size has more tiles than
+     * a short can count): about 600 MB at 8192x8192. Boards that do not
+     * spawn tiles can be created without the index.
+     */
+    public static final int iMAX_SIZE = 8192;
+
+    /**
+     * Palette index of the default snake color (green). The palette indexes
+     * are used by the {@code ColorWave} effect.
+     */
+    public static final int iCOLOR_GREEN = 0;
+
+    /**
+     * Palette index of the color used after eating a {@code Fruit} (red).
+     */
+    public static final int iCOLOR_RED = 1;
+
+    /**
+     * Palette index of the color used after eating a {@code Fruit2} (yellow).
+     */
+    public static final int iCOLOR_YELLOW = 2;
+
+    /**
+     * Palette index of the color used after eating a {@code Fruit3} (orange).
+     */
+    public static final int iCOLOR_ORANGE = 3;
+
+    /**
+     * The bits of a tile byte that hold the tile type.
+     */
+    private static final int iTYPE_MASK = 0x07;
+
+    /**
+     * The bit of a tile byte set while the tile is in the list of changes.
+     */
+    private static final int iCHANGED_BIT = 0x80;
+
+    /**
+     * The most tiles the list of changes holds. A tick changes a handful of
+     * tiles, so a larger list would only cost memory on big boards.
+     */
+    private static final int iMAX_CHANGES = 4096;
+
+    /**
+     * The number of tiles {@code writeTiles} copies at a time.
+     */
+    private static final int iBLOCK_SIZE = 8192;
+
+    /**
+     * The tile types, indexed by the value stored in the low bits of a tile
+     * byte. Index 0 (an empty tile) is null.
+     */
+    private static final TileType[] tltTYPES = new TileType[TileType.values().length + 1];
+
+    static {
+        for (TileType tltType : TileType.values()) {
+            tltTYPES[tltType.ordinal() + 1] = tltType;
+        }
+    }
+
+    /**
+     * The number of columns on this board.
+     */
+    private final int iColumns;
+
+    /**
+     * The number of rows on this board.
+     */
+    private final int iRows;
+
+    /**
+     * The tiles that make up this board, one byte per tile.
+     */
+    private final byte[] bytTiles;
+
+    /**
+     * The indexes of every empty tile, packed at the front of the array. The
+     * first {@code iFreeCount} entries are valid. Null if the board keeps no
+     * index of its empty tiles.
+     */
+    private final int[] iFreeCells;
+
+    /**
+     * The position of each tile inside {@code iFreeCells}, or -1 if the tile
+     * is not empty. Null if the board keeps no index of its empty tiles.
+     */
+    private final int[] iFreePos;
+
+    /**
+     * The number of empty tiles.
+     */
+    private int iFreeCount;
+
+    /**
+     * The tiles that changed since {@code clearChanges}, at most
+     * {@code iMAX_CHANGES}, or null if changes are not tracked.
+     */
+    private int[] iChanges;
+
+    /**
+     * The number of entries in {@code iChanges}.
+     */
+    private int iChangeCount;
+
+    /**
+     * Whether every tile may have changed since {@code clearChanges} (the
+     * board was cleared or loaded).
+     */
+    private boolean bAllChanged;
+
+    /**
+     * Checks that a board of the given size can be created, without creating
+     * it.
+     *
+     * @param iColumns The number of columns.
+     * @param iRows The number of rows.
+     * @throws IllegalArgumentException If either is not between
+     * {@code iMIN_SIZE} and {@code iMAX_SIZE}.
+     */
+    public static void checkSize(int iColumns, int iRows) {
+        if (iColumns < iMIN_SIZE || iColumns > iMAX_SIZE
+                || iRows < iMIN_SIZE || iRows > iMAX_SIZE) {
+            throw new IllegalArgumentException("Invalid board size: "
+                    + iColumns + "x" + iRows);
+        }
+    }
+
+    /**
+     * Creates a new, empty GameBoard of the default size.
+     */
+    public GameBoard() {
+        this(iDEFAULT_COL_COUNT, iDEFAULT_ROW_COUNT);
+    }
+
+    /**
+     * Creates a new, empty GameBoard.
+     *
+     * @param iColumns The number of columns, between {@code iMIN_SIZE} and
+     * {@code iMAX_SIZE}.
+     * @param iRows The number of rows, between {@code iMIN_SIZE} and
+     * {@code iMAX_SIZE}.
+     */
+    public GameBoard(int iColumns, int iRows) {
+        this(iColumns, iRows, true);
+    }
+
+    /**
+     * Creates a new, empty GameBoard.
+     *
+     * @param iColumns The number of columns, between {@code iMIN_SIZE} and
+     * {@code iMAX_SIZE}.
+     * @param iRows The number of rows, between {@code iMIN_SIZE} and
+     * {@code iMAX_SIZE}.
+     * @param bFreeIndex Whether to keep an index of the empty tiles.
+     * Without it {@code getFreeCount} and {@code getFreeCell} can't be used,
+     * but different threads may set different tiles at the same time.
+     */
+    public GameBoard(int iColumns, int iRows, boolean bFreeIndex) {
+        checkSize(iColumns, iRows);
+        this.iColumns = iColumns;
+        this.iRows = iRows;
+        //inicializa las tiles, todas vacias
+        this.bytTiles = new byte[iColumns * iRows];
+        if (bFreeIndex) {
+            this.iFreeCells = new int[bytTiles.length];
+            this.iFreePos = new int[bytTiles.length];
+            resetFreeCells();
+        } else {
+            this.iFreeCells = null;
+            this.iFreePos = null;
+        }
+    }
+
+    /**
+     * Gets the number of columns on this board.
+     *
+     * @return The number of columns.
+     */
+    public int getColumns() {
+        return iColumns;
+    }
+
+    /**
+     * Gets the number of rows on this board.
+     *
+     * @return The number of rows.
+     */
+    public int getRows() {
+        return iRows;
+    }
+
+    /**
+     * Gets the number of tiles on this board.
+     *
+     * @return {@code getColumns() * getRows()}.
+     */
+    public int getTileCount() {
+        return bytTiles.length;
+    }
+
+    /**
+     * Marks every tile as free. Only valid when the board is empty.
+     */
+    private void resetFreeCells() {
+        if (iFreeCells == null) {
+            return;
+        }
+        for (int iI = 0; iI < iFreeCells.length; iI++) {
+            iFreeCells[iI] = iI;
+            iFreePos[iI] = iI;
+        }
+        iFreeCount = iFreeCells.length;
+    }
+
+    /**
+     * Clears all of the tiles on the board and sets their values to null.
+     */
+    public void clearBoard() {
+        for (int i = 0; i < bytTiles.length; i++) {
+            bytTiles[i] = 0;
+        }
+        resetFreeCells();
+        markAllChanged();
+    }
+
+    /**
+     * Sets the tile at the desired coordinate.
+     *
+     * @param iX The x coordinate of the tile.
+     * @param iY The y coordinate of the tile.
+     * @param tltType The type to set the tile to.
+     */
+    public void setTile(int iX, int iY, TileType tltType) {
+        setTile(iY * iColumns + iX, tltType);
+    }
+
+    /**
+     * Sets the tile at the desired index.
+     *
+     * @param iIndex The index of the tile, {@code y * getColumns() + x}.
+     * @param tltType The type to set the tile to.
+     */
+    public void setTile(int iIndex, TileType tltType) {
+        int iOld = bytTiles[iIndex];
+        int iType = tltType == null ? 0 : tltType.ordinal() + 1;
+        if (iChanges == null) {
+            bytTiles[iIndex] = (byte) iType;
+        } else if ((iOld & iCHANGED_BIT) != 0) {
+            bytTiles[iIndex] = (byte) (iType | iCHANGED_BIT);
+        } else if ((iOld & iTYPE_MASK) != iType) {
+            if (!bAllChanged && iChangeCount == iChanges.length) {
+                //la lista se lleno, se vuelve a leer todo el tablero
+                markAllChanged();
+            }
+            if (bAllChanged) {
+                bytTiles[iIndex] = (byte) iType;
+            } else {
+                bytTiles[iIndex] = (byte) (iType | iCHANGED_BIT);
+                iChanges[iChangeCount++] = iIndex;
+            }
+        }
+        if (iFreeCells == null) {
+            return;
+        }
+
+        /*
+		 * Keep the free list in sync. A tile that becomes occupied is swapped
+		 * with the last free entry and dropped, a tile that becomes empty is
+		 * appended.
+         */
+        boolean bWasFree = (iOld & iTYPE_MASK) == 0;
+        if (bWasFree && iType != 0) {
+            int iPos = iFreePos[iIndex];
+            int iLast = iFreeCells[--iFreeCount];
+            iFreeCells[iPos] = iLast;
+            iFreePos[iLast] = iPos;
+            iFreePos[iIndex] = -1;
+        } else if (!bWasFree && iType == 0) {
+            iFreeCells[iFreeCount] = iIndex;
+            iFreePos[iIndex] = iFreeCount++;
+        }
+    }
+
+    /**
+     * Gets the number of empty tiles on the board.
+     *
+     * @return The number of empty tiles.
+     */
+    public int getFreeCount() {
+        checkFreeIndex();
+        return iFreeCount;
+    }
+
+    /**
+     * Gets one of the empty tiles. The order of the empty tiles changes every
+     * time a tile is set, so this is only useful to pick a random one.
+     *
+     * @param iN A number between 0 (inclusive) and {@code getFreeCount()}
+     * (exclusive).
+     * @return The index of the tile, {@code y * getColumns() + x}.
+     */
+    public int getFreeCell(int iN) {
+        checkFreeIndex();
+        return iFreeCells[iN];
+    }
+
+    /**
+     * Throws if the board keeps no index of its empty tiles.
+     */
+    private void checkFreeIndex() {
+        if (iFreeCells == null) {
+            throw new IllegalStateException("The board has no index of its empty tiles");
+        }
+    }
+
+    /**
+     * Starts or stops keeping the list of changed tiles. Starting it clears
+     * the list and flags the whole board as changed.
+     *
+     * @param bTrack Whether to keep the list.
+     */
+    public void setTrackChanges(boolean bTrack) {
+        if (bTrack == (iChanges != null)) {
+            return;
+        }
+        for (int iC = 0; iC < bytTiles.length; iC++) {
+            bytTiles[iC] &= iTYPE_MASK;
+        }
+        iChanges = bTrack ? new int[Math.min(bytTiles.length, iMAX_CHANGES)] : null;
+        iChangeCount = 0;
+        bAllChanged = bTrack;
+    }
+
+    /**
+     * Gets the number of tiles listed as changed.
+     *
+     * @return The number of tiles.
+     */
+    public int getChangeCount() {
+        return iChangeCount;
+    }
+
+    /**
+     * Gets a tile listed as changed. Each tile is listed at most once, and
+     * may have changed back to what it was.
+     *
+     * @param iN A number between 0 (inclusive) and {@code getChangeCount()}
+     * (exclusive).
+     * @return The index of the tile, {@code y * getColumns() + x}.
+     */
+    public int getChange(int iN) {
+        return iChanges[iN];
+    }
+
+    /**
+     * Checks whether every tile may have changed since the list was last
+     * cleared, because the board was cleared or loaded or more tiles changed
+     * than the list holds. The list of changes is empty in that case.
+     *
+     * @return Whether the whole board has to be read again.
+     */
+    public boolean isAllChanged() {
+        return bAllChanged;
+    }
+
+    /**
+     * Empties the list of changed tiles.
+     */
+    public void clearChanges() {
+        if (iChanges == null) {
+            return;
+        }
+        for (int iN = 0; iN < iChangeCount; iN++) {
+            bytTiles[iChanges[iN]] &= iTYPE_MASK;
+        }
+        iChangeCount = 0;
+        bAllChanged = false;
+    }
+
+    /**
+     * Replaces the list of changes by the flag that the whole board changed.
+     */
+    private void markAllChanged() {
+        if (iChanges == null) {
+            return;
+        }
+        //los tiles de la lista dejan de estar marcados
+        for (int iN = 0; iN < iChangeCount; iN++) {
+            bytTiles[iChanges[iN]] &= iTYPE_MASK;
+        }
+        iChangeCount = 0;
+        bAllChanged = true;
+    }
+
+    /**
+     * Gets the tile at the desired coordinate.
+     *
+     * @param iX The x coordinate of the tile.
+     * @param iY The y coordinate of the tile.
+     * @return The tile, or null if it is empty.
+     */
+    public TileType getTile(int iX, int iY) {
+        return tltTYPES[bytTiles[iY * iColumns + iX] & iTYPE_MASK];
+    }
+
+    /**
+     * Gets the tile at the desired index.
+     *
+     * @param iIndex The index of the tile, {@code y * getColumns() + x}.
+     * @return The tile, or null if it is empty.
+     */
+    public TileType getTile(int iIndex) {
+        return tltTYPES[bytTiles[iIndex] & iTYPE_MASK];
+    }
+
+    /**
+     * funcion que sirve para traducir el tablero de tiles
+     * a un arreglo de integers que se pueda guardar en un archivo binario
+     * para poder hacer save/load
+     *
+     * Los valores son los mismos que se guardan en cada
+     * tile (Fruit = 1, SnakeHead = 2, SnakeBody = 3, Venom = 4, Fruit2 = 5,
+     * Fruit3 = 6) y -1 para una tile vacia
+     *
+     * @return int[]
+     */
+    public int[] getTablero() {
+        int iarrSalida[] = new int[bytTiles.length];
+        for (int iC = 0; iC < bytTiles.length; iC++) {
+            int iType = bytTiles[iC] & iTYPE_MASK;
+            iarrSalida[iC] = iType == 0 ? -1 : iType; //si la tile es null se usa un -1
+        }
+        return iarrSalida;
+    }
+
+    /**
+     * Funcion opuesta al get tablero
+     * en este caso traduce un arreglo de integers al arreglo de tiles
+     *
+     * @param iArrEntrada Un arreglo con una entrada por cada tile del tablero.
+     */
+    public void setTablero(int[] iArrEntrada) {
+        if (iArrEntrada.length != bytTiles.length) {
+            throw new IllegalArgumentException("Expected " + bytTiles.length
+                    + " tiles, got " + iArrEntrada.length);
+        }
+        //se traducen los equivalentes numericos
+        for (int iC = 0; iC < iArrEntrada.length; iC++) {
+            int iType = iArrEntrada[iC];
+            if (iType < 1 || iType >= tltTYPES.length) {
+                iType = 0;
+            }
+            bytTiles[iC] = (byte) iType;
+        }
+        cargarLibres();
+    }
+
+    /**
+     * Escribe el tablero en la salida, un byte por tile con los mismos
+     * valores de getTablero y 0 para una tile vacia.
+     *
+     * @param dotSalida
+     * @throws IOException
+     */
+    public void writeTiles(DataOutput dotSalida) throws IOException {
+        //se escribe por bloques para no crear un arreglo del tamaño del tablero
+        byte[] bytBloque = new byte[Math.min(bytTiles.length, iBLOCK_SIZE)];
+        for (int iC = 0; iC < bytTiles.length; iC += bytBloque.length) {
+            int iLargo = Math.min(bytBloque.length, bytTiles.length - iC);
+            for (int iN = 0; iN < iLargo; iN++) {
+                bytBloque[iN] = (byte) (bytTiles[iC + iN] & iTYPE_MASK);
+            }
+            dotSalida.write(bytBloque, 0, iLargo);
+        }
+    }
+
+    /**
+     * Funcion opuesta a writeTiles, lee un byte por cada tile del tablero.
+     *
+     * @param dinEntrada
+     * @throws IOException Si no se pudo leer o hay un valor que no es una tile.
+     */
+    public void readTiles(DataInput dinEntrada) throws IOException {
+        dinEntrada.readFully(bytTiles);
+        for (int iC = 0; iC < bytTiles.length; iC++) {
+            if (bytTiles[iC] < 0 || bytTiles[iC] >= tltTYPES.length) {
+                //se deja un tablero valido antes de avisar
+                clearBoard();
+                throw new IOException("Tile invalida: " + bytTiles[iC]);
+            }
+        }
+        cargarLibres();
+    }
+
+    /*
+    Despues de escribir todos los bytes se reconstruye la lista de tiles
+    libres y se marca todo el tablero como cambiado
+    */
+    private void cargarLibres() {
+        markAllChanged();
+        iFreeCount = 0;
+        if (iFreeCells == null) {
+            return;
+        }
+        for (int iC = 0; iC < bytTiles.length; iC++) {
+            if (bytTiles[iC] == 0) {
+                iFreeCells[iFreeCount] = iC;
+                iFreePos[iC] = iFreeCount++;
+            } else {
+                iFreePos[iC] = -1;
+            }
+        }
+    }
+}
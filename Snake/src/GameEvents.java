@@ -0,0 +1,98 @@
+
+/**
+ * The {@code GameEvents} class holds the {@code GameTracer} the game records
+ * its events with: the Java Flight Recorder's when the JVM has it, and one
+ * that records nothing otherwise.
+ *
+ * The Flight Recorder tracer is built from the jfr source folder and loaded
+ * by reflection, so the game still compiles and runs on Java 8 without
+ * jdk.jfr.
+ *
+ * @author Brendan Jones
+ *
+ */
+public final class GameEvents {
+
+    /**
+     * The tracer of the game's events.
+     */
+    public static final GameTracer gtrTRACER = createTracer();
+
+    private GameEvents() {
+    }
+
+    /**
+     * Loads the Flight Recorder tracer, or one that records nothing if it is
+     * not there or this JVM has no jdk.jfr.
+     */
+    private static GameTracer createTracer() {
+        try {
+            return (GameTracer) Class.forName("JfrTracer").getConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            //sin jdk.jfr (Java 8 antes de 8u262) no se graba nada
+            return new NullTracer();
+        }
+    }
+
+    /**
+     * A tracer that records nothing: every event is null.
+     */
+    private static final class NullTracer implements GameTracer {
+
+        @Override
+        public Object beginTick() {
+            return null;
+        }
+
+        @Override
+        public void commitTick(Object objEvent, long lTick, int iSnakeLength, TileType tltCollision) {
+        }
+
+        @Override
+        public Object beginSpawn() {
+            return null;
+        }
+
+        @Override
+        public void commitSpawn(Object objEvent, long lTick, TileType tltType, int iCell, int iFree) {
+        }
+
+        @Override
+        public Object beginSave() {
+            return null;
+        }
+
+        @Override
+        public void commitSave(Object objEvent, long lTick, int iSnakeLength, long lOffset, long lBytes) {
+        }
+
+        @Override
+        public Object beginLoad() {
+            return null;
+        }
+
+        @Override
+        public void commitLoad(Object objEvent, long lTick, int iSnakeLength, long lOffset, long lBytes) {
+        }
+
+        @Override
+        public Object beginUserLookup() {
+            return null;
+        }
+
+        @Override
+        public void commitUserLookup(Object objEvent, int iUsers, boolean bFound, long lBytes) {
+        }
+
+        @Override
+        public Object beginSoundPlay() {
+            return null;
+        }
+
+        @Override
+        public void commitSoundPlay(Object objEvent, String sFile, boolean bLooping) {
+        }
+
+    }
+
+}
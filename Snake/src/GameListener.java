@@ -0,0 +1,24 @@
+
+/**
+ * The {@code GameListener} interface is notified by the {@code SnakeEngine}
+ * when something happens that a front end may want to react to (for example
+ * by playing a sound). The engine itself never plays sounds or draws.
+ *
+ * @author Brendan Jones
+ *
+ */
+public interface GameListener {
+
+    /**
+     * Called after the snake ate a fruit.
+     *
+     * @param tltFruit The type of fruit that was eaten.
+     */
+    void fruitEaten(TileType tltFruit);
+
+    /**
+     * Called after the snake hit a wall, its own body or a venom tile.
+     */
+    void snakeDied();
+
+}
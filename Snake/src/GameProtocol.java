@@ -0,0 +1,220 @@
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The {@code GameProtocol} class holds the wire format spoken between the
+ * {@code GameServer} and its clients.
+ *
+ * A client sends single byte commands: a direction ordinal (0 to 3) to
+ * turn, {@code bytCMD_START} to start a new game once the current one is
+ * over (or has not started) and {@code bytCMD_PAUSE} to pause or resume it.
+ *
+ * The server sends frames, each one prefixed with its length. A keyframe
+ * holds the whole state of the game:
+ * <pre>
+ * int     length of the rest of the frame
+ * byte    frame type (bytFRAME_STATE)
+ * long    ticks played
+ * int     score
+ * int     fruits eaten
+ * int     next fruit score
+ * byte    flags (iFLAG_NEW_GAME | iFLAG_GAME_OVER | iFLAG_PAUSED)
+ * int     columns, rows
+ * byte    one per tile, row by row: TileType ordinal + 1, or 0 if empty
+ * </pre>
+ * Between keyframes the server only sends the tiles that changed since the
+ * previous frame it sent ("varint" being an unsigned LEB128):
+ * <pre>
+ * int     length of the rest of the frame
+ * byte    frame type (bytFRAME_DELTA)
+ * varint  ticks played, score, fruits eaten, next fruit score
+ * byte    flags
+ * varint  number of tiles
+ * varint  (tile index &lt;&lt; 3) | (TileType ordinal + 1, or 0), once per tile
+ * </pre>
+ * A delta is usually the new head, the old head and the tail, about 20
+ * bytes in total. TCP delivers every frame in order, so a frame that was
+ * sent is a frame the client will apply; the server only has to remember
+ * which tiles changed since the last frame it managed to queue.
+ *
+ * @author Brendan Jones
+ *
+ */
+public final class GameProtocol {
+
+    /**
+     * Client command: start a new game.
+     */
+    public static final byte bytCMD_START = 16;
+
+    /**
+     * Client command: pause or resume the game.
+     */
+    public static final byte bytCMD_PAUSE = 17;
+
+    /**
+     * Frame type: the whole state of a game.
+     */
+    public static final byte bytFRAME_STATE = 1;
+
+    /**
+     * Frame type: the tiles that changed since the previous frame.
+     */
+    public static final byte bytFRAME_DELTA = 2;
+
+    /**
+     * Flag set while the game has not started.
+     */
+    public static final int iFLAG_NEW_GAME = 1;
+
+    /**
+     * Flag set once the game is over.
+     */
+    public static final int iFLAG_GAME_OVER = 2;
+
+    /**
+     * Flag set while the game is paused.
+     */
+    public static final int iFLAG_PAUSED = 4;
+
+    /**
+     * The bytes of a state frame before its tiles, length prefix included.
+     */
+    private static final int iSTATE_HEADER = 4 + 1 + 8 + 4 + 4 + 4 + 1 + 4 + 4;
+
+    /**
+     * The most bytes a delta frame takes before its tiles, length prefix
+     * included.
+     */
+    private static final int iDELTA_HEADER = 4 + 1 + 10 + 5 + 5 + 5 + 1 + 5;
+
+    /**
+     * The most bytes a tile takes in a delta frame.
+     */
+    private static final int iDELTA_TILE = 5;
+
+    private GameProtocol() {
+    }
+
+    /**
+     * Gets the size of a state frame, length prefix included.
+     *
+     * @param iColumns The number of columns on the board.
+     * @param iRows The number of rows on the board.
+     * @return The number of bytes.
+     */
+    public static int getStateFrameSize(int iColumns, int iRows) {
+        return iSTATE_HEADER + iColumns * iRows;
+    }
+
+    /**
+     * Gets the most bytes a delta frame can take, length prefix included.
+     *
+     * @param iTiles The number of changed tiles it holds.
+     * @return The number of bytes.
+     */
+    public static int getMaxDeltaFrameSize(int iTiles) {
+        return iDELTA_HEADER + iTiles * iDELTA_TILE;
+    }
+
+    /**
+     * Gets the flags of a game.
+     *
+     * @param sneEngine The game.
+     * @return The flags, as sent in the frames.
+     */
+    public static int getFlags(SnakeEngine sneEngine) {
+        return (sneEngine.isNewGame() ? iFLAG_NEW_GAME : 0)
+                | (sneEngine.isGameOver() ? iFLAG_GAME_OVER : 0)
+                | (sneEngine.isPaused() ? iFLAG_PAUSED : 0);
+    }
+
+    /**
+     * Writes a state frame.
+     *
+     * @param sneEngine The game.
+     * @param bbfSalida Where to write the frame. It must have room for
+     * {@code getStateFrameSize} bytes.
+     */
+    public static void writeState(SnakeEngine sneEngine, ByteBuffer bbfSalida) {
+        GameBoard gbdBoard = sneEngine.getBoard();
+        int iTiles = gbdBoard.getTileCount();
+        bbfSalida.putInt(iSTATE_HEADER - 4 + iTiles);
+        bbfSalida.put(bytFRAME_STATE);
+        bbfSalida.putLong(sneEngine.getTicks());
+        bbfSalida.putInt(sneEngine.getScore());
+        bbfSalida.putInt(sneEngine.getFruitsEaten());
+        bbfSalida.putInt(sneEngine.getNextFruitScore());
+        bbfSalida.put((byte) getFlags(sneEngine));
+        bbfSalida.putInt(gbdBoard.getColumns());
+        bbfSalida.putInt(gbdBoard.getRows());
+        for (int iC = 0; iC < iTiles; iC++) {
+            TileType tltType = gbdBoard.getTile(iC);
+            bbfSalida.put((byte) (tltType == null ? 0 : tltType.ordinal() + 1));
+        }
+    }
+
+    /**
+     * Writes a delta frame with the tiles the board listed as changed. The
+     * board must keep its list of changes and not be flagged as all
+     * changed.
+     *
+     * @param sneEngine The game.
+     * @param bbfSalida Where to write the frame. It must have room for
+     * {@code getMaxDeltaFrameSize(board.getChangeCount())} bytes.
+     */
+    public static void writeDelta(SnakeEngine sneEngine, ByteBuffer bbfSalida) {
+        GameBoard gbdBoard = sneEngine.getBoard();
+        int iStart = bbfSalida.position();
+        bbfSalida.putInt(0);
+        bbfSalida.put(bytFRAME_DELTA);
+        putVarint(bbfSalida, sneEngine.getTicks());
+        putVarint(bbfSalida, sneEngine.getScore());
+        putVarint(bbfSalida, sneEngine.getFruitsEaten());
+        putVarint(bbfSalida, sneEngine.getNextFruitScore());
+        bbfSalida.put((byte) getFlags(sneEngine));
+        int iCount = gbdBoard.getChangeCount();
+        putVarint(bbfSalida, iCount);
+        for (int iN = 0; iN < iCount; iN++) {
+            int iCell = gbdBoard.getChange(iN);
+            TileType tltType = gbdBoard.getTile(iCell);
+            putVarint(bbfSalida, ((long) iCell << 3) | (tltType == null ? 0 : tltType.ordinal() + 1));
+        }
+        bbfSalida.putInt(iStart, bbfSalida.position() - iStart - 4);
+    }
+
+    /**
+     * Writes an unsigned varint.
+     *
+     * @param bbfSalida Where to write it.
+     * @param lValue The value, not negative.
+     */
+    public static void putVarint(ByteBuffer bbfSalida, long lValue) {
+        while ((lValue & ~0x7FL) != 0) {
+            bbfSalida.put((byte) ((lValue & 0x7F) | 0x80));
+            lValue >>>= 7;
+        }
+        bbfSalida.put((byte) lValue);
+    }
+
+    /**
+     * Reads an unsigned varint.
+     *
+     * @param bbfEntrada Where to read it from.
+     * @return The value.
+     * @throws IOException If the varint is longer than 64 bits.
+     */
+    public static long getVarint(ByteBuffer bbfEntrada) throws IOException {
+        long lValue = 0;
+        for (int iShift = 0; iShift < 64; iShift += 7) {
+            int iByte = bbfEntrada.get() & 0xFF;
+            lValue |= (long) (iByte & 0x7F) << iShift;
+            if ((iByte & 0x80) == 0) {
+                return lValue;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+}
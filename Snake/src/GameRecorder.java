@@ -0,0 +1,176 @@
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The {@code GameRecorder} class records everything needed to play a game
+ * again: the board size, the seed of the random number generator and every
+ * direction the engine accepted (queued with {@code addDirection} or set
+ * with {@code steer}) together with the tick it was accepted before.
+ * Nothing about the board itself is stored, {@code GameReplayer} runs the
+ * rules again to rebuild it.
+ *
+ * Log format (all numbers big endian, "varint" being an unsigned LEB128):
+ * <pre>
+ * int     magic "SNKR"
+ * byte    version (2)
+ * int     columns, rows
+ * long    seed
+ * long    ticks played
+ * int     final score
+ * int     number of directions
+ * varint  ((ticks since previous direction) &lt;&lt; 3) | (steer ? 4 : 0)
+ *         | direction ordinal, once per direction
+ * </pre>
+ * Version 1 logs had no steer bit: ((ticks since previous) &lt;&lt; 2) |
+ * direction ordinal.
+ *
+ * @author Brendan Jones
+ *
+ */
+public class GameRecorder {
+
+    /**
+     * The first four bytes of every log ("SNKR").
+     */
+    public static final int iMAGIC = 0x534E4B52;
+
+    /**
+     * The version of the log format.
+     */
+    public static final int iVERSION = 2;
+
+    //tamaño del tablero de la partida grabada
+    private int iColumns;
+    private int iRows;
+
+    //semilla con que se inicio la partida
+    private long lSeed;
+
+    //si la grabacion corresponde a una partida que se puede repetir
+    private boolean bValid;
+
+    //las direcciones ya codificadas como varints
+    private byte[] bytEntries;
+    private int iLength;
+    private int iCount;
+
+    //tick de la ultima direccion grabada
+    private long lLastTick;
+
+    /**
+     * Creates a new GameRecorder with nothing recorded.
+     */
+    public GameRecorder() {
+        this.bytEntries = new byte[256];
+    }
+
+    /**
+     * Starts recording a new game. Called by the engine when a game is reset.
+     *
+     * @param iColumns The number of columns on the board.
+     * @param iRows The number of rows on the board.
+     * @param lSeed The seed the game was started with.
+     */
+    public void start(int iColumns, int iRows, long lSeed) {
+        this.iColumns = iColumns;
+        this.iRows = iRows;
+        this.lSeed = lSeed;
+        this.iLength = 0;
+        this.iCount = 0;
+        this.lLastTick = 0;
+        this.bValid = true;
+    }
+
+    /**
+     * Marks the current recording as not replayable, for example because a
+     * saved game was loaded into the engine.
+     */
+    public void discard() {
+        this.bValid = false;
+    }
+
+    /**
+     * Checks whether the current recording can be replayed.
+     *
+     * @return Whether a game is being recorded and it can be replayed.
+     */
+    public boolean isValid() {
+        return bValid;
+    }
+
+    /**
+     * Records a direction queued with {@code SnakeEngine.addDirection}.
+     *
+     * @param lTick The number of ticks played before the direction was
+     * accepted.
+     * @param dirDirection The direction.
+     */
+    public void record(long lTick, Direction dirDirection) {
+        record(lTick, dirDirection, 0);
+    }
+
+    /**
+     * Records a direction set with {@code SnakeEngine.steer}.
+     *
+     * @param lTick The number of ticks played before the direction was
+     * accepted.
+     * @param dirDirection The direction.
+     */
+    public void recordSteer(long lTick, Direction dirDirection) {
+        record(lTick, dirDirection, 4);
+    }
+
+    /**
+     * Appends one entry to the recording.
+     */
+    private void record(long lTick, Direction dirDirection, int iKind) {
+        if (!bValid) {
+            return;
+        }
+        writeVarint(((lTick - lLastTick) << 3) | iKind | dirDirection.ordinal());
+        lLastTick = lTick;
+        iCount++;
+    }
+
+    /**
+     * Appends an unsigned varint to the entries, growing the array if
+     * needed.
+     */
+    private void writeVarint(long lValue) {
+        if (iLength + 10 > bytEntries.length) {
+            byte[] bytNew = new byte[bytEntries.length * 2];
+            System.arraycopy(bytEntries, 0, bytNew, 0, iLength);
+            bytEntries = bytNew;
+        }
+        while ((lValue & ~0x7FL) != 0) {
+            bytEntries[iLength++] = (byte) ((lValue & 0x7F) | 0x80);
+            lValue >>>= 7;
+        }
+        bytEntries[iLength++] = (byte) lValue;
+    }
+
+    /**
+     * Writes the log of the current recording.
+     *
+     * @param dotSalida Where to write the log.
+     * @param lTicks The number of ticks that were played.
+     * @param iScore The score at the end of the recording.
+     * @throws IOException If the log could not be written.
+     */
+    public void writeTo(DataOutput dotSalida, long lTicks, int iScore) throws IOException {
+        if (!bValid) {
+            throw new IllegalStateException("The recording can't be replayed");
+        }
+        dotSalida.writeInt(iMAGIC);
+        dotSalida.writeByte(iVERSION);
+        dotSalida.writeInt(iColumns);
+        dotSalida.writeInt(iRows);
+        dotSalida.writeLong(lSeed);
+        dotSalida.writeLong(lTicks);
+        dotSalida.writeInt(iScore);
+        dotSalida.writeInt(iCount);
+        dotSalida.write(bytEntries, 0, iLength);
+    }
+
+}
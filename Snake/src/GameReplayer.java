@@ -0,0 +1,146 @@
+
+import java.io.BufferedInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * The {@code GameReplayer} class plays a log written by
+ * {@code GameRecorder} through the game rules again, as fast as possible:
+ * there is no clock, no window and no sound. It is used to check that a
+ * reported score is the score the recorded inputs really give.
+ *
+ * @author Brendan Jones
+ *
+ */
+public class GameReplayer {
+
+    /**
+     * The directions, indexed by ordinal.
+     */
+    private static final Direction[] dirVALUES = Direction.values();
+
+    //la partida que se repite y el score que se reporto en el log
+    private SnakeEngine sneEngine;
+    private int iReportedScore;
+
+    /**
+     * Plays a log from the start to the end.
+     *
+     * @param dinEntrada The log.
+     * @throws IOException If the log could not be read or is not a log.
+     */
+    public void replay(DataInput dinEntrada) throws IOException {
+        if (dinEntrada.readInt() != GameRecorder.iMAGIC) {
+            throw new IOException("Not a game log");
+        }
+        int iVersion = dinEntrada.readUnsignedByte();
+        if (iVersion != 1 && iVersion != GameRecorder.iVERSION) {
+            throw new IOException("Unsupported game log version " + iVersion);
+        }
+        //los logs de la version 1 no tienen el bit de steer
+        int iShift = iVersion == 1 ? 2 : 3;
+        int iColumns = dinEntrada.readInt();
+        int iRows = dinEntrada.readInt();
+        long lSeed = dinEntrada.readLong();
+        long lTicks = dinEntrada.readLong();
+        this.iReportedScore = dinEntrada.readInt();
+        int iCount = dinEntrada.readInt();
+
+        this.sneEngine = new SnakeEngine(iColumns, iRows);
+        sneEngine.resetGame(lSeed);
+
+        /*
+		 * Run the ticks in order. Before each tick, hand over every direction
+		 * that was accepted while that many ticks had been played.
+         */
+        long lNextTick = 0;
+        long lEntry = -1;
+        if (iCount > 0) {
+            lEntry = readVarint(dinEntrada);
+            lNextTick = lEntry >>> iShift;
+        }
+        for (long lTick = 0; lTick < lTicks && !sneEngine.isGameOver(); lTick++) {
+            while (lEntry != -1 && lNextTick == lTick) {
+                Direction dirDirection = dirVALUES[(int) (lEntry & 3)];
+                if (iShift == 3 && (lEntry & 4) != 0) {
+                    sneEngine.steer(dirDirection);
+                } else {
+                    sneEngine.addDirection(dirDirection);
+                }
+                if (--iCount > 0) {
+                    lEntry = readVarint(dinEntrada);
+                    lNextTick += lEntry >>> iShift;
+                } else {
+                    lEntry = -1;
+                }
+            }
+            sneEngine.step(null);
+        }
+    }
+
+    /**
+     * Reads an unsigned varint.
+     */
+    private static long readVarint(DataInput dinEntrada) throws IOException {
+        long lValue = 0;
+        for (int iShift = 0; iShift < 64; iShift += 7) {
+            int iByte = dinEntrada.readUnsignedByte();
+            lValue |= (long) (iByte & 0x7F) << iShift;
+            if ((iByte & 0x80) == 0) {
+                return lValue;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * Gets the engine in the state the replay ended in.
+     *
+     * @return The engine.
+     */
+    public SnakeEngine getEngine() {
+        return sneEngine;
+    }
+
+    /**
+     * Gets the score written in the log.
+     *
+     * @return The reported score.
+     */
+    public int getReportedScore() {
+        return iReportedScore;
+    }
+
+    /**
+     * Checks whether replaying the log gave the score written in it.
+     *
+     * @return Whether the reported score is the real one.
+     */
+    public boolean isScoreValid() {
+        return sneEngine != null && sneEngine.getScore() == iReportedScore;
+    }
+
+    /**
+     * Replays every log given on the command line and prints whether the
+     * score written in it is valid.
+     *
+     * @param args The log files.
+     */
+    public static void main(String[] args) {
+        GameReplayer grpReplayer = new GameReplayer();
+        for (String sArchivo : args) {
+            try (DataInputStream dinEntrada = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(sArchivo)))) {
+                grpReplayer.replay(dinEntrada);
+                System.out.println(sArchivo + ": score " + grpReplayer.getReportedScore()
+                        + (grpReplayer.isScoreValid() ? " OK" : " INVALID (replay gives "
+                        + grpReplayer.getEngine().getScore() + ")"));
+            } catch (IOException e) {
+                System.out.println(sArchivo + ": " + e);
+            }
+        }
+    }
+
+}
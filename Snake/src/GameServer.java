@@ -0,0 +1,489 @@
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code GameServer} class hosts one game per connected player, all in
+ * the same process. Every game is a {@code SnakeEngine} run by the server
+ * (the clients only send keys and draw what they are sent), ticking at the
+ * same rate as the desktop game.
+ *
+ * Connections are spread over a few event loops. Each loop owns a
+ * {@code Selector}, the non-blocking channels given to it and their games,
+ * so a game is only ever touched by one thread. The loops read commands as
+ * they arrive, tick their games on a {@code Clock} and write one frame per
+ * game per tick (see {@code GameProtocol}): the tiles that changed since
+ * the last frame, with a keyframe of the whole board every few seconds and
+ * whenever the board was cleared. Nothing is sent for a tick in which
+ * nothing happened. A client that does not read fast enough has frames
+ * skipped instead of making the server buffer without limit; the tiles
+ * changed in the meantime go out with the next frame that fits.
+ *
+ * @author Brendan Jones
+ *
+ */
+public class GameServer {
+
+    /**
+     * The default port.
+     */
+    public static final int iDEFAULT_PORT = 7777;
+
+    /**
+     * The directions, indexed by ordinal.
+     */
+    private static final Direction[] dirVALUES = Direction.values();
+
+    /**
+     * The ticks per second of every game, the same as the desktop game.
+     */
+    public static final float fTICKS_PER_SECOND = 9.0f;
+
+    /**
+     * How long a loop waits in {@code select} at most, in milliseconds.
+     */
+    private static final long lSELECT_TIMEOUT = 5;
+
+    /**
+     * How many frames a client may fall behind before frames are skipped.
+     */
+    private static final int iMAX_PENDING_FRAMES = 4;
+
+    /**
+     * The ticks between two keyframes of a running game.
+     */
+    private static final long lKEYFRAME_INTERVAL = 90;
+
+    //configuracion del servidor
+    private final int iPort;
+    private final int iColumns;
+    private final int iRows;
+
+    /**
+     * The event loops.
+     */
+    private final EventLoop[] evlLoops;
+
+    //contadores de todo el servidor, solo para el reporte
+    private final AtomicLong alnSessions = new AtomicLong();
+    private final AtomicLong alnFrames = new AtomicLong();
+    private final AtomicLong alnSkipped = new AtomicLong();
+
+    private ServerSocketChannel sscServer;
+    private volatile boolean bRunning;
+
+    /**
+     * Creates a new GameServer.
+     *
+     * @param iPort The port to listen on.
+     * @param iThreads The number of event loops.
+     * @param iColumns The number of columns of every game's board.
+     * @param iRows The number of rows of every game's board.
+     * @throws IOException If a selector could not be opened.
+     */
+    public GameServer(int iPort, int iThreads, int iColumns, int iRows) throws IOException {
+        if (iThreads < 1) {
+            throw new IllegalArgumentException("Invalid number of threads: " + iThreads);
+        }
+        //revisa el tamaño del tablero antes de aceptar a nadie
+        new GameBoard(iColumns, iRows, false);
+        this.iPort = iPort;
+        this.iColumns = iColumns;
+        this.iRows = iRows;
+        this.evlLoops = new EventLoop[iThreads];
+        for (int iI = 0; iI < iThreads; iI++) {
+            evlLoops[iI] = new EventLoop(iI);
+        }
+    }
+
+    /**
+     * Starts the event loops and accepts connections on the calling thread
+     * until {@code stop} is called.
+     *
+     * @throws IOException If the port could not be opened.
+     */
+    public void run() throws IOException {
+        sscServer = ServerSocketChannel.open();
+        sscServer.bind(new InetSocketAddress(iPort), 1024);
+        bRunning = true;
+        for (EventLoop evlLoop : evlLoops) {
+            evlLoop.thrThread.start();
+        }
+
+        //reparte las conexiones entre los loops
+        int iNext = 0;
+        try {
+            while (bRunning) {
+                SocketChannel scnCliente = sscServer.accept();
+                scnCliente.configureBlocking(false);
+                scnCliente.socket().setTcpNoDelay(true);
+                evlLoops[iNext].add(scnCliente);
+                iNext = (iNext + 1) % evlLoops.length;
+            }
+        } catch (IOException e) {
+            if (bRunning) {
+                throw e;
+            }
+        } finally {
+            stop();
+        }
+    }
+
+    /**
+     * Stops accepting connections and closes every session.
+     */
+    public void stop() {
+        bRunning = false;
+        try {
+            if (sscServer != null) {
+                sscServer.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        for (EventLoop evlLoop : evlLoops) {
+            evlLoop.selSelector.wakeup();
+        }
+    }
+
+    /**
+     * Gets the number of sessions connected right now.
+     *
+     * @return The number of sessions.
+     */
+    public long getSessionCount() {
+        return alnSessions.get();
+    }
+
+    /**
+     * Gets the number of frames sent so far.
+     *
+     * @return The number of frames.
+     */
+    public long getFramesSent() {
+        return alnFrames.get();
+    }
+
+    /**
+     * Gets the number of frames skipped because a client was behind.
+     *
+     * @return The number of frames.
+     */
+    public long getFramesSkipped() {
+        return alnSkipped.get();
+    }
+
+    /**
+     * A connected player and their game. Only used by its event loop.
+     */
+    private class Session {
+
+        private final SocketChannel scnChannel;
+        private final SelectionKey slkKey;
+        private final SnakeEngine sneEngine;
+
+        /**
+         * The position of this session in its loop's list.
+         */
+        private int iIndex;
+
+        /**
+         * The frames not yet written to the channel, ready to be read
+         * (between position and limit).
+         */
+        private final ByteBuffer bbfSalida;
+
+        //lo que el cliente ya recibio: el tick del ultimo keyframe y el tick
+        //y las banderas del ultimo frame
+        private boolean bSentKeyframe;
+        private long lKeyframeTick;
+        private long lSentTick;
+        private int iSentFlags;
+
+        Session(SocketChannel scnChannel, SelectionKey slkKey) {
+            this.scnChannel = scnChannel;
+            this.slkKey = slkKey;
+            this.sneEngine = new SnakeEngine(iColumns, iRows);
+            sneEngine.getBoard().setTrackChanges(true);
+            this.bbfSalida = ByteBuffer.allocate(
+                    iMAX_PENDING_FRAMES * GameProtocol.getStateFrameSize(iColumns, iRows));
+            bbfSalida.flip();
+        }
+
+        /**
+         * Applies one command the client sent.
+         */
+        void command(byte bytCommand) {
+            if (bytCommand >= 0 && bytCommand < 4) {
+                sneEngine.addDirection(dirVALUES[bytCommand]);
+            } else if (bytCommand == GameProtocol.bytCMD_START) {
+                if (sneEngine.isNewGame() || sneEngine.isGameOver()) {
+                    sneEngine.resetGame();
+                }
+            } else if (bytCommand == GameProtocol.bytCMD_PAUSE) {
+                if (!sneEngine.isNewGame() && !sneEngine.isGameOver()) {
+                    sneEngine.setPaused(!sneEngine.isPaused());
+                }
+            }
+        }
+
+        /**
+         * Checks whether anything changed since the last frame was queued.
+         */
+        boolean hasNews() {
+            GameBoard gbdBoard = sneEngine.getBoard();
+            return !bSentKeyframe || gbdBoard.isAllChanged() || gbdBoard.getChangeCount() > 0
+                    || sneEngine.getTicks() != lSentTick
+                    || GameProtocol.getFlags(sneEngine) != iSentFlags;
+        }
+
+        /**
+         * Queues the frame of this tick, a delta or a keyframe, unless the
+         * client is too far behind.
+         *
+         * @return Whether the frame was queued.
+         */
+        boolean queueFrame() {
+            GameBoard gbdBoard = sneEngine.getBoard();
+            long lTicks = sneEngine.getTicks();
+            //un keyframe si el delta seria casi tan grande
+            boolean bKeyframe = !bSentKeyframe || gbdBoard.isAllChanged()
+                    || lTicks - lKeyframeTick >= lKEYFRAME_INTERVAL
+                    || gbdBoard.getChangeCount() > gbdBoard.getTileCount() / 8;
+            int iSize = bKeyframe ? GameProtocol.getStateFrameSize(iColumns, iRows)
+                    : GameProtocol.getMaxDeltaFrameSize(gbdBoard.getChangeCount());
+            bbfSalida.compact();
+            boolean bQueued = bbfSalida.remaining() >= iSize;
+            if (bQueued) {
+                if (bKeyframe) {
+                    GameProtocol.writeState(sneEngine, bbfSalida);
+                    bSentKeyframe = true;
+                    lKeyframeTick = lTicks;
+                } else {
+                    GameProtocol.writeDelta(sneEngine, bbfSalida);
+                }
+                gbdBoard.clearChanges();
+                lSentTick = lTicks;
+                iSentFlags = GameProtocol.getFlags(sneEngine);
+            }
+            bbfSalida.flip();
+            return bQueued;
+        }
+
+        /**
+         * Writes as much of the pending frames as the channel takes, and
+         * asks the selector for a write event if anything is left.
+         */
+        void flush() throws IOException {
+            scnChannel.write(bbfSalida);
+            int iInterest = bbfSalida.hasRemaining()
+                    ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+            if (slkKey.interestOps() != iInterest) {
+                slkKey.interestOps(iInterest);
+            }
+        }
+    }
+
+    /**
+     * One thread with its selector and the sessions registered on it.
+     */
+    private class EventLoop implements Runnable {
+
+        private final Selector selSelector;
+        private final Thread thrThread;
+
+        /**
+         * The channels accepted for this loop, not registered yet.
+         */
+        private final Queue<SocketChannel> queNuevos = new ConcurrentLinkedQueue<>();
+
+        private final List<Session> lstSessions = new ArrayList<>();
+
+        /**
+         * Reused for reading the commands of every session.
+         */
+        private final ByteBuffer bbfEntrada = ByteBuffer.allocate(256);
+
+        EventLoop(int iIndex) throws IOException {
+            this.selSelector = Selector.open();
+            this.thrThread = new Thread(this, "server-loop-" + iIndex);
+        }
+
+        /**
+         * Hands a new connection to this loop. Called by the accepting
+         * thread.
+         */
+        void add(SocketChannel scnCliente) {
+            queNuevos.add(scnCliente);
+            selSelector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            Clock clkTicks = new Clock(fTICKS_PER_SECOND);
+            try {
+                while (bRunning) {
+                    registerNew();
+                    selSelector.select(lSELECT_TIMEOUT);
+                    Iterator<SelectionKey> itrKeys = selSelector.selectedKeys().iterator();
+                    while (itrKeys.hasNext()) {
+                        SelectionKey slkKey = itrKeys.next();
+                        itrKeys.remove();
+                        handle(slkKey);
+                    }
+
+                    //avanza todas las partidas de este loop
+                    clkTicks.update();
+                    while (clkTicks.hasElapsedCycle()) {
+                        tick();
+                    }
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                for (Session sesSession : new ArrayList<>(lstSessions)) {
+                    close(sesSession);
+                }
+                try {
+                    selSelector.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        private void registerNew() throws IOException {
+            SocketChannel scnCliente;
+            while ((scnCliente = queNuevos.poll()) != null) {
+                SelectionKey slkKey = scnCliente.register(selSelector, SelectionKey.OP_READ);
+                Session sesSession = new Session(scnCliente, slkKey);
+                slkKey.attach(sesSession);
+                sesSession.iIndex = lstSessions.size();
+                lstSessions.add(sesSession);
+                alnSessions.incrementAndGet();
+                //el cliente recibe el estado inicial en cuanto se conecta
+                sendState(sesSession);
+            }
+        }
+
+        private void handle(SelectionKey slkKey) {
+            Session sesSession = (Session) slkKey.attachment();
+            try {
+                if (slkKey.isReadable()) {
+                    bbfEntrada.clear();
+                    int iRead = sesSession.scnChannel.read(bbfEntrada);
+                    if (iRead < 0) {
+                        close(sesSession);
+                        return;
+                    }
+                    for (int iI = 0; iI < iRead; iI++) {
+                        sesSession.command(bbfEntrada.get(iI));
+                    }
+                }
+                if (slkKey.isValid() && slkKey.isWritable()) {
+                    sesSession.flush();
+                }
+            } catch (IOException e) {
+                close(sesSession);
+            }
+        }
+
+        private void tick() {
+            //de atras para adelante, cerrar una sesion mueve la ultima a su lugar
+            for (int iI = lstSessions.size() - 1; iI >= 0; iI--) {
+                Session sesSession = lstSessions.get(iI);
+                sesSession.sneEngine.step(null);
+                sendState(sesSession);
+            }
+        }
+
+        private void sendState(Session sesSession) {
+            if (!sesSession.hasNews()) {
+                return;
+            }
+            if (!sesSession.queueFrame()) {
+                alnSkipped.incrementAndGet();
+                return;
+            }
+            alnFrames.incrementAndGet();
+            try {
+                sesSession.flush();
+            } catch (IOException e) {
+                close(sesSession);
+            }
+        }
+
+        private void close(Session sesSession) {
+            if (sesSession.iIndex == -1) {
+                return;
+            }
+            //quita la sesion de la lista cambiandola por la ultima
+            Session sesLast = lstSessions.remove(lstSessions.size() - 1);
+            if (sesLast != sesSession) {
+                lstSessions.set(sesSession.iIndex, sesLast);
+                sesLast.iIndex = sesSession.iIndex;
+            }
+            sesSession.iIndex = -1;
+            alnSessions.decrementAndGet();
+            sesSession.slkKey.cancel();
+            try {
+                sesSession.scnChannel.close();
+            } catch (IOException e) {
+                //ya no hay nada que hacer con esta conexion
+            }
+        }
+    }
+
+    /**
+     * Runs a server from the command line, printing its counters every few
+     * seconds.
+     *
+     * @param args Optionally the port, the number of event loops, and the
+     * number of columns and rows.
+     */
+    public static void main(String[] args) throws IOException {
+        int iPort = args.length >= 1 ? Integer.parseInt(args[0]) : iDEFAULT_PORT;
+        int iThreads = args.length >= 2 ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors();
+        int iColumns = GameBoard.iDEFAULT_COL_COUNT;
+        int iRows = GameBoard.iDEFAULT_ROW_COUNT;
+        if (args.length >= 4) {
+            iColumns = Integer.parseInt(args[2]);
+            iRows = Integer.parseInt(args[3]);
+        }
+        GameServer gsvServer = new GameServer(iPort, iThreads, iColumns, iRows);
+
+        Thread thrReporte = new Thread(() -> {
+            long lLastFrames = 0;
+            while (true) {
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long lFrames = gsvServer.getFramesSent();
+                System.out.printf("sessions %d, frames/s %.0f, skipped %d%n",
+                        gsvServer.getSessionCount(), (lFrames - lLastFrames) / 5.0,
+                        gsvServer.getFramesSkipped());
+                lLastFrames = lFrames;
+            }
+        }, "server-report");
+        thrReporte.setDaemon(true);
+        thrReporte.start();
+
+        System.out.println("Listening on port " + iPort + " with " + iThreads + " loops");
+        gsvServer.run();
+    }
+
+}
@@ -0,0 +1,120 @@
+
+/**
+ * The {@code GameTracer} interface records the game's events for a
+ * profiler. Each event is begun before what it measures and committed
+ * after it, with what it is about.
+ *
+ * A {@code begin} method returns null when its event is not being
+ * recorded, and then nothing else is done: the caller skips the commit, so
+ * no event is created while nothing records them.
+ *
+ * @author Brendan Jones
+ *
+ */
+public interface GameTracer {
+
+    /**
+     * Begins the event of one tick of a {@code SnakeEngine}.
+     *
+     * @return The event, or null if ticks are not recorded.
+     */
+    Object beginTick();
+
+    /**
+     * Ends and records the event of a tick.
+     *
+     * @param objEvent The event {@code beginTick} returned.
+     * @param lTick The number of the tick.
+     * @param iSnakeLength The length of the snake after it.
+     * @param tltCollision The tile the head moved into, or null.
+     */
+    void commitTick(Object objEvent, long lTick, int iSnakeLength, TileType tltCollision);
+
+    /**
+     * Begins the event of a tile placed on a random free tile.
+     *
+     * @return The event, or null if spawns are not recorded.
+     */
+    Object beginSpawn();
+
+    /**
+     * Ends and records the event of a spawn.
+     *
+     * @param objEvent The event {@code beginSpawn} returned.
+     * @param lTick The tick it happened in.
+     * @param tltType The tile placed.
+     * @param iCell The cell it was placed on, -1 if the board was full.
+     * @param iFree The number of free tiles before it.
+     */
+    void commitSpawn(Object objEvent, long lTick, TileType tltType, int iCell, int iFree);
+
+    /**
+     * Begins the event of a game saved to datos.dat.
+     *
+     * @return The event, or null if saves are not recorded.
+     */
+    Object beginSave();
+
+    /**
+     * Ends and records the event of a save.
+     *
+     * @param objEvent The event {@code beginSave} returned.
+     * @param lTick The tick of the game saved.
+     * @param iSnakeLength The length of the snake.
+     * @param lOffset Where the record was written.
+     * @param lBytes The number of bytes written.
+     */
+    void commitSave(Object objEvent, long lTick, int iSnakeLength, long lOffset, long lBytes);
+
+    /**
+     * Begins the event of a game loaded from datos.dat.
+     *
+     * @return The event, or null if loads are not recorded.
+     */
+    Object beginLoad();
+
+    /**
+     * Ends and records the event of a load.
+     *
+     * @param objEvent The event {@code beginLoad} returned.
+     * @param lTick The tick of the game loaded.
+     * @param iSnakeLength The length of the snake loaded.
+     * @param lOffset Where the record was read.
+     * @param lBytes The number of bytes read.
+     */
+    void commitLoad(Object objEvent, long lTick, int iSnakeLength, long lOffset, long lBytes);
+
+    /**
+     * Begins the event of a search of users.dat.
+     *
+     * @return The event, or null if searches are not recorded.
+     */
+    Object beginUserLookup();
+
+    /**
+     * Ends and records the event of a search of users.dat.
+     *
+     * @param objEvent The event {@code beginUserLookup} returned.
+     * @param iUsers The number of users read.
+     * @param bFound Whether the user was found.
+     * @param lBytes The number of bytes read.
+     */
+    void commitUserLookup(Object objEvent, int iUsers, boolean bFound, long lBytes);
+
+    /**
+     * Begins the event of a {@code SoundClip} started from its beginning.
+     *
+     * @return The event, or null if sounds are not recorded.
+     */
+    Object beginSoundPlay();
+
+    /**
+     * Ends and records the event of a sound.
+     *
+     * @param objEvent The event {@code beginSoundPlay} returned.
+     * @param sFile The file of the sound.
+     * @param bLooping Whether it loops.
+     */
+    void commitSoundPlay(Object objEvent, String sFile, boolean bLooping);
+
+}
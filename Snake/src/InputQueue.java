@@ -0,0 +1,143 @@
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code InputQueue} class passes direction key presses from the event
+ * dispatch thread to the game loop thread. It is a bounded, lock-free ring
+ * for exactly one producer thread and one consumer thread: {@code offer} may
+ * only be called from the producer and {@code poll}, {@code getDirection}
+ * and {@code getTime} only from the consumer.
+ *
+ * Every event keeps the {@code System.nanoTime()} at which it was captured,
+ * so the consumer can tell how long an input waited before being used. The
+ * queue does not filter anything; the rules about which directions are
+ * accepted are applied by the consumer.
+ *
+ * @author Brendan Jones
+ *
+ */
+public class InputQueue {
+
+    /**
+     * The directions, indexed by ordinal.
+     */
+    private static final Direction[] dirVALUES = Direction.values();
+
+    /**
+     * The ordinal of the direction of each slot.
+     */
+    private final byte[] bytDirections;
+
+    /**
+     * The capture time of each slot.
+     */
+    private final long[] lTimes;
+
+    /**
+     * {@code lTimes.length - 1}.
+     */
+    private final int iMask;
+
+    /**
+     * The number of events ever offered. Only written by the producer.
+     */
+    private final AtomicLong alnTail = new AtomicLong();
+
+    /**
+     * The number of events ever polled. Only written by the consumer.
+     */
+    private final AtomicLong alnHead = new AtomicLong();
+
+    /**
+     * The producer's last known value of {@code alnHead}, so it does not have
+     * to read the consumer's counter on every offer.
+     */
+    private long lHeadCache;
+
+    /**
+     * The direction of the last polled event.
+     */
+    private Direction dirLast;
+
+    /**
+     * The capture time of the last polled event.
+     */
+    private long lLastTime;
+
+    /**
+     * Creates a new InputQueue.
+     *
+     * @param iCapacity The number of events the queue can hold, rounded up to
+     * a power of two.
+     */
+    public InputQueue(int iCapacity) {
+        int iLength = 1;
+        while (iLength < iCapacity) {
+            iLength <<= 1;
+        }
+        this.bytDirections = new byte[iLength];
+        this.lTimes = new long[iLength];
+        this.iMask = iLength - 1;
+    }
+
+    /**
+     * Adds an event to the queue. Producer thread only.
+     *
+     * @param dirDirection The direction that was pressed.
+     * @param lTime The {@code System.nanoTime()} the key was captured at.
+     * @return false if the queue was full and the event was dropped.
+     */
+    public boolean offer(Direction dirDirection, long lTime) {
+        long lTail = alnTail.get();
+        if (lTail - lHeadCache >= lTimes.length) {
+            lHeadCache = alnHead.get();
+            if (lTail - lHeadCache >= lTimes.length) {
+                return false;
+            }
+        }
+        int iSlot = (int) lTail & iMask;
+        bytDirections[iSlot] = (byte) dirDirection.ordinal();
+        lTimes[iSlot] = lTime;
+        //publica el evento despues de escribir el slot
+        alnTail.lazySet(lTail + 1);
+        return true;
+    }
+
+    /**
+     * Takes the oldest event out of the queue. Consumer thread only. The
+     * event can then be read with {@code getDirection} and {@code getTime}.
+     *
+     * @return false if the queue was empty.
+     */
+    public boolean poll() {
+        long lHead = alnHead.get();
+        if (lHead >= alnTail.get()) {
+            return false;
+        }
+        int iSlot = (int) lHead & iMask;
+        this.dirLast = dirVALUES[bytDirections[iSlot]];
+        this.lLastTime = lTimes[iSlot];
+        //libera el slot despues de leerlo
+        alnHead.lazySet(lHead + 1);
+        return true;
+    }
+
+    /**
+     * Gets the direction of the last polled event.
+     *
+     * @return The direction.
+     */
+    public Direction getDirection() {
+        return dirLast;
+    }
+
+    /**
+     * Gets the capture time of the last polled event.
+     *
+     * @return The {@code System.nanoTime()} the key was captured at.
+     */
+    public long getTime() {
+        return lLastTime;
+    }
+
+}
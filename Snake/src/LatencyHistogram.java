@@ -0,0 +1,182 @@
+
+import java.io.PrintWriter;
+
+/**
+ * The {@code LatencyHistogram} class counts durations in nanoseconds in a
+ * fixed set of buckets, to read their percentiles without keeping every
+ * sample. Every power of two is split in {@code iSUB_BUCKETS} buckets, so a
+ * percentile is off by at most 1/16 of its value, from nanoseconds up to
+ * about 18 minutes (longer durations go in the last bucket).
+ *
+ * Recording only adds to an array, it never allocates or locks. It must be
+ * done by a single thread; other threads may read the percentiles at any
+ * time, they may just miss the last few samples.
+ *
+ * @author Brendan Jones
+ *
+ */
+public class LatencyHistogram {
+
+    /**
+     * The number of bits of each value kept below its highest bit.
+     */
+    private static final int iSUB_BITS = 4;
+
+    /**
+     * The number of buckets each power of two is split in.
+     */
+    private static final int iSUB_BUCKETS = 1 << iSUB_BITS;
+
+    /**
+     * The highest bit of the longest duration with a bucket of its own.
+     */
+    private static final int iMAX_BIT = 40;
+
+    /**
+     * The number of buckets.
+     */
+    private static final int iBUCKETS = (iMAX_BIT - iSUB_BITS + 2) * iSUB_BUCKETS;
+
+    /**
+     * The name shown with the percentiles.
+     */
+    private final String sName;
+
+    private final long[] lCounts = new long[iBUCKETS];
+
+    //totales, los escribe solo el hilo que graba
+    private volatile long lCount;
+    private volatile long lMax;
+    private long lTotal;
+
+    /**
+     * Creates a new, empty LatencyHistogram.
+     *
+     * @param sName The name shown with the percentiles.
+     */
+    public LatencyHistogram(String sName) {
+        this.sName = sName;
+    }
+
+    /**
+     * Gets the name of the histogram.
+     *
+     * @return The name.
+     */
+    public String getName() {
+        return sName;
+    }
+
+    /**
+     * Counts one duration. Negative durations count as 0.
+     *
+     * @param lNanos The duration in nanoseconds.
+     */
+    public void record(long lNanos) {
+        if (lNanos < 0) {
+            lNanos = 0;
+        }
+        lCounts[getBucket(lNanos)]++;
+        lTotal += lNanos;
+        if (lNanos > lMax) {
+            lMax = lNanos;
+        }
+        lCount = lCount + 1;
+    }
+
+    /**
+     * Gets the bucket a duration is counted in.
+     */
+    private static int getBucket(long lNanos) {
+        if (lNanos < iSUB_BUCKETS) {
+            return (int) lNanos;
+        }
+        int iBit = 63 - Long.numberOfLeadingZeros(lNanos);
+        if (iBit > iMAX_BIT) {
+            return iBUCKETS - 1;
+        }
+        int iShift = iBit - iSUB_BITS;
+        return (iShift + 1) * iSUB_BUCKETS + (int) ((lNanos >>> iShift) & (iSUB_BUCKETS - 1));
+    }
+
+    /**
+     * Gets the longest duration counted in a bucket.
+     */
+    private static long getBucketLimit(int iBucket) {
+        if (iBucket < iSUB_BUCKETS) {
+            return iBucket;
+        }
+        int iShift = iBucket / iSUB_BUCKETS - 1;
+        long lStart = (long) (iSUB_BUCKETS + iBucket % iSUB_BUCKETS) << iShift;
+        return lStart + (1L << iShift) - 1;
+    }
+
+    /**
+     * Gets the number of durations counted.
+     *
+     * @return The number of samples.
+     */
+    public long getCount() {
+        return lCount;
+    }
+
+    /**
+     * Gets the longest duration counted.
+     *
+     * @return The duration in nanoseconds, 0 if there is none.
+     */
+    public long getMax() {
+        return lMax;
+    }
+
+    /**
+     * Gets the average of the durations counted.
+     *
+     * @return The average in nanoseconds, 0 if there is none.
+     */
+    public long getMean() {
+        long lSamples = lCount;
+        return lSamples == 0 ? 0 : lTotal / lSamples;
+    }
+
+    /**
+     * Gets the duration that a fraction of the samples did not go over, for
+     * example 0.99 for the 99th percentile. It is the end of the bucket the
+     * percentile falls in, but never more than the longest duration.
+     *
+     * @param dFraction The fraction, between 0 and 1.
+     * @return The duration in nanoseconds, 0 if there is none.
+     */
+    public long getPercentile(double dFraction) {
+        long lSamples = lCount;
+        if (lSamples == 0) {
+            return 0;
+        }
+        long lRank = Math.max(1, (long) Math.ceil(dFraction * lSamples));
+        long lSeen = 0;
+        for (int iB = 0; iB < iBUCKETS; iB++) {
+            lSeen += lCounts[iB];
+            if (lSeen >= lRank) {
+                return Math.min(getBucketLimit(iB), lMax);
+            }
+        }
+        return lMax;
+    }
+
+    /**
+     * Writes the percentiles and every bucket that has samples.
+     *
+     * @param pwrSalida Where to write them.
+     */
+    public void writeTo(PrintWriter pwrSalida) {
+        pwrSalida.printf("%s: count %d, mean %.3f ms, p50 %.3f ms, p99 %.3f ms, p99.9 %.3f ms, max %.3f ms%n",
+                sName, getCount(), getMean() / 1e6, getPercentile(0.5) / 1e6,
+                getPercentile(0.99) / 1e6, getPercentile(0.999) / 1e6, getMax() / 1e6);
+        for (int iB = 0; iB < iBUCKETS; iB++) {
+            if (lCounts[iB] != 0) {
+                pwrSalida.printf("  <= %.3f ms: %d%n", getBucketLimit(iB) / 1e6, lCounts[iB]);
+            }
+        }
+    }
+
+}
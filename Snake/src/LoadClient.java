@@ -0,0 +1,152 @@
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * The {@code LoadClient} class opens many sessions against a
+ * {@code GameServer} from a single thread and plays them at random, to
+ * check how many players a server can take. Every session keeps a copy of
+ * its game up to date from the frames it receives, starts a game, turns
+ * now and then, and starts a new game when the last one is over.
+ *
+ * @author Brendan Jones
+ *
+ */
+public class LoadClient {
+
+    /**
+     * The bytes of a frame before its type: the length prefix.
+     */
+    private static final int iLENGTH_SIZE = 4;
+
+    /**
+     * One connection, the frame it is reading and its copy of the game.
+     */
+    private static class Conexion {
+
+        private final SocketChannel scnChannel;
+        private final ByteBuffer bbfEntrada;
+        private final RemoteGame rmgGame;
+
+        Conexion(SocketChannel scnChannel, int iBufferSize) {
+            this.scnChannel = scnChannel;
+            this.bbfEntrada = ByteBuffer.allocate(iBufferSize);
+            this.rmgGame = new RemoteGame();
+        }
+    }
+
+    /**
+     * Runs the load from the command line and prints what it received.
+     *
+     * @param args The host, the port, the number of sessions, the number
+     * of seconds to run for, and optionally the number of columns and rows
+     * of the server's boards.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.err.println("Usage: LoadClient host port sessions seconds [cols rows]");
+            System.exit(1);
+        }
+        InetSocketAddress isaServer = new InetSocketAddress(args[0], Integer.parseInt(args[1]));
+        int iSessions = Integer.parseInt(args[2]);
+        long lDuration = Long.parseLong(args[3]) * 1000000000L;
+        int iColumns = GameBoard.iDEFAULT_COL_COUNT;
+        int iRows = GameBoard.iDEFAULT_ROW_COUNT;
+        if (args.length >= 6) {
+            iColumns = Integer.parseInt(args[4]);
+            iRows = Integer.parseInt(args[5]);
+        }
+        int iBufferSize = 2 * GameProtocol.getStateFrameSize(iColumns, iRows);
+
+        Selector selSelector = Selector.open();
+        Random ranRandom = new Random(1);
+        ByteBuffer bbfComando = ByteBuffer.allocate(1);
+
+        //abre todas las sesiones
+        int iOpen = 0;
+        for (int iI = 0; iI < iSessions; iI++) {
+            try {
+                SocketChannel scnChannel = SocketChannel.open(isaServer);
+                scnChannel.configureBlocking(false);
+                scnChannel.socket().setTcpNoDelay(true);
+                scnChannel.register(selSelector, SelectionKey.OP_READ,
+                        new Conexion(scnChannel, iBufferSize));
+                send(scnChannel, bbfComando, GameProtocol.bytCMD_START);
+                iOpen++;
+            } catch (IOException e) {
+                System.out.println("Could only open " + iOpen + " sessions: " + e);
+                break;
+            }
+        }
+        System.out.println(iOpen + " sessions open");
+
+        long lFrames = 0;
+        long lBytes = 0;
+        int iClosed = 0;
+        long lStart = System.nanoTime();
+        while (System.nanoTime() - lStart < lDuration) {
+            selSelector.select(100);
+            Iterator<SelectionKey> itrKeys = selSelector.selectedKeys().iterator();
+            while (itrKeys.hasNext()) {
+                SelectionKey slkKey = itrKeys.next();
+                itrKeys.remove();
+                Conexion cnxConexion = (Conexion) slkKey.attachment();
+                try {
+                    int iRead = cnxConexion.scnChannel.read(cnxConexion.bbfEntrada);
+                    if (iRead < 0) {
+                        throw new IOException("Closed by the server");
+                    }
+                    lBytes += iRead;
+
+                    //procesa los frames completos
+                    ByteBuffer bbfEntrada = cnxConexion.bbfEntrada;
+                    bbfEntrada.flip();
+                    while (bbfEntrada.remaining() >= iLENGTH_SIZE && bbfEntrada.remaining()
+                            >= iLENGTH_SIZE + bbfEntrada.getInt(bbfEntrada.position())) {
+                        int iLength = bbfEntrada.getInt();
+                        int iLimit = bbfEntrada.limit();
+                        int iEnd = bbfEntrada.position() + iLength;
+                        bbfEntrada.limit(iEnd);
+                        cnxConexion.rmgGame.apply(bbfEntrada);
+                        bbfEntrada.limit(iLimit);
+                        bbfEntrada.position(iEnd);
+                        lFrames++;
+                        if ((cnxConexion.rmgGame.getFlags() & GameProtocol.iFLAG_GAME_OVER) != 0) {
+                            send(cnxConexion.scnChannel, bbfComando, GameProtocol.bytCMD_START);
+                        } else if (ranRandom.nextInt(4) == 0) {
+                            send(cnxConexion.scnChannel, bbfComando, (byte) ranRandom.nextInt(4));
+                        }
+                    }
+                    bbfEntrada.compact();
+                } catch (IOException e) {
+                    slkKey.cancel();
+                    cnxConexion.scnChannel.close();
+                    iClosed++;
+                }
+            }
+        }
+        double dSeconds = (System.nanoTime() - lStart) / 1e9;
+        System.out.printf("%d sessions, %d closed by the server, %.0f frames/s, %.1f MB/s%n",
+                iOpen, iClosed, lFrames / dSeconds, lBytes / dSeconds / 1e6);
+        selSelector.close();
+    }
+
+    /**
+     * Sends a one byte command. The command is dropped if the socket buffer
+     * is full, which only happens if the server stopped reading.
+     */
+    private static void send(SocketChannel scnChannel, ByteBuffer bbfComando, byte bytCommand)
+            throws IOException {
+        bbfComando.clear();
+        bbfComando.put(bytCommand);
+        bbfComando.flip();
+        scnChannel.write(bbfComando);
+    }
+
+}
@@ -0,0 +1,83 @@
+
+import java.util.Random;
+
+/**
+ * The {@code RandomPolicy} class moves the snake at random, but never into a
+ * wall, its body or a venom tile when there is any other choice.
+ *
+ * @author Brendan Jones
+ *
+ */
+public class RandomPolicy implements SnakePolicy {
+
+    /**
+     * The directions, indexed by ordinal.
+     */
+    private static final Direction[] dirVALUES = Direction.values();
+
+    /**
+     * The random number generator used to choose.
+     */
+    private final Random ranRandom;
+
+    /**
+     * The safe directions found in the current decision, reused so deciding
+     * does not allocate.
+     */
+    private final Direction[] dirSafe = new Direction[dirVALUES.length];
+
+    /**
+     * Creates a new RandomPolicy.
+     *
+     * @param lSeed The seed for the random number generator.
+     */
+    public RandomPolicy(long lSeed) {
+        this.ranRandom = new Random(lSeed);
+    }
+
+    @Override
+    public Direction nextDirection(SnakeEngine sneEngine) {
+        GameBoard gbdBoard = sneEngine.getBoard();
+        int iHead = sneEngine.getSnakeCell(0);
+        int iHeadX = iHead % gbdBoard.getColumns();
+        int iHeadY = iHead / gbdBoard.getColumns();
+
+        int iSafe = 0;
+        for (Direction dirDirection : dirVALUES) {
+            int iX = iHeadX;
+            int iY = iHeadY;
+            switch (dirDirection) {
+                case North:
+                    iY--;
+                    break;
+                case South:
+                    iY++;
+                    break;
+                case West:
+                    iX--;
+                    break;
+                case East:
+                    iX++;
+                    break;
+            }
+            if (iX < 0 || iX >= gbdBoard.getColumns() || iY < 0 || iY >= gbdBoard.getRows()) {
+                continue;
+            }
+            TileType tltType = gbdBoard.getTile(iX, iY);
+            if (tltType != TileType.SnakeBody && tltType != TileType.Venom) {
+                dirSafe[iSafe++] = dirDirection;
+            }
+        }
+
+        /*
+		 * The engine ignores a direction that would turn the snake around,
+		 * so the current direction is always among the safe ones if it is
+		 * safe.
+         */
+        if (iSafe == 0) {
+            return null;
+        }
+        return dirSafe[ranRandom.nextInt(iSafe)];
+    }
+
+}
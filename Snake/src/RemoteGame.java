@@ -0,0 +1,187 @@
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * The {@code RemoteGame} class is the client side copy of a game hosted by
+ * a {@code GameServer}. It is kept up to date by applying the frames the
+ * server sends (see {@code GameProtocol}).
+ *
+ * @author Brendan Jones
+ *
+ */
+public class RemoteGame {
+
+    /**
+     * The tile types, indexed by the value sent for a tile. Index 0 (an
+     * empty tile) is null.
+     */
+    private static final TileType[] tltTYPES = new TileType[TileType.values().length + 1];
+
+    static {
+        for (TileType tltType : TileType.values()) {
+            tltTYPES[tltType.ordinal() + 1] = tltType;
+        }
+    }
+
+    //tamaño del tablero, se conoce con el primer keyframe
+    private int iColumns;
+    private int iRows;
+
+    /**
+     * The value of each tile, as sent by the server.
+     */
+    private byte[] bytTiles;
+
+    //estado de la partida
+    private long lTicks;
+    private int iScore;
+    private int iFruitsEaten;
+    private int iNextFruitScore;
+    private int iFlags;
+
+    /**
+     * Applies one frame.
+     *
+     * @param bbfEntrada The frame, from its type byte (after the length
+     * prefix) to its limit.
+     * @throws IOException If the frame is not valid or truncated, or is a
+     * delta and no keyframe was applied yet.
+     */
+    public void apply(ByteBuffer bbfEntrada) throws IOException {
+        try {
+            byte bytType = bbfEntrada.get();
+            if (bytType == GameProtocol.bytFRAME_STATE) {
+                this.lTicks = bbfEntrada.getLong();
+                this.iScore = bbfEntrada.getInt();
+                this.iFruitsEaten = bbfEntrada.getInt();
+                this.iNextFruitScore = bbfEntrada.getInt();
+                this.iFlags = bbfEntrada.get();
+                int iNewColumns = bbfEntrada.getInt();
+                int iNewRows = bbfEntrada.getInt();
+                if (iNewColumns <= 0 || iNewRows <= 0
+                        || (long) iNewColumns * iNewRows > bbfEntrada.remaining()) {
+                    throw new IOException("Invalid board size " + iNewColumns + "x" + iNewRows);
+                }
+                if (bytTiles == null || iNewColumns != iColumns || iNewRows != iRows) {
+                    this.iColumns = iNewColumns;
+                    this.iRows = iNewRows;
+                    this.bytTiles = new byte[iNewColumns * iNewRows];
+                }
+                bbfEntrada.get(bytTiles);
+                for (byte bytTile : bytTiles) {
+                    if (bytTile < 0 || bytTile >= tltTYPES.length) {
+                        throw new IOException("Invalid tile in keyframe");
+                    }
+                }
+            } else if (bytType == GameProtocol.bytFRAME_DELTA) {
+                if (bytTiles == null) {
+                    throw new IOException("Delta frame before the first keyframe");
+                }
+                this.lTicks = GameProtocol.getVarint(bbfEntrada);
+                this.iScore = (int) GameProtocol.getVarint(bbfEntrada);
+                this.iFruitsEaten = (int) GameProtocol.getVarint(bbfEntrada);
+                this.iNextFruitScore = (int) GameProtocol.getVarint(bbfEntrada);
+                this.iFlags = bbfEntrada.get();
+                long lCount = GameProtocol.getVarint(bbfEntrada);
+                for (long lN = 0; lN < lCount; lN++) {
+                    long lEntry = GameProtocol.getVarint(bbfEntrada);
+                    int iType = (int) (lEntry & 7);
+                    long lCell = lEntry >>> 3;
+                    if (lCell >= bytTiles.length || iType >= tltTYPES.length) {
+                        throw new IOException("Invalid tile in delta frame");
+                    }
+                    bytTiles[(int) lCell] = (byte) iType;
+                }
+            } else {
+                throw new IOException("Unknown frame type " + bytType);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated frame", e);
+        }
+    }
+
+    /**
+     * Checks whether a keyframe was applied, so the board can be read.
+     *
+     * @return Whether the copy holds a whole game.
+     */
+    public boolean isSynced() {
+        return bytTiles != null;
+    }
+
+    /**
+     * Gets the number of columns on the board.
+     *
+     * @return The number of columns.
+     */
+    public int getColumns() {
+        return iColumns;
+    }
+
+    /**
+     * Gets the number of rows on the board.
+     *
+     * @return The number of rows.
+     */
+    public int getRows() {
+        return iRows;
+    }
+
+    /**
+     * Gets the tile at the desired index.
+     *
+     * @param iIndex The index of the tile, {@code y * getColumns() + x}.
+     * @return The tile, or null if it is empty.
+     */
+    public TileType getTile(int iIndex) {
+        return tltTYPES[bytTiles[iIndex]];
+    }
+
+    /**
+     * Gets the number of ticks played.
+     *
+     * @return The number of ticks.
+     */
+    public long getTicks() {
+        return lTicks;
+    }
+
+    /**
+     * Gets the current score.
+     *
+     * @return The score.
+     */
+    public int getScore() {
+        return iScore;
+    }
+
+    /**
+     * Gets the number of fruits eaten.
+     *
+     * @return The fruits eaten.
+     */
+    public int getFruitsEaten() {
+        return iFruitsEaten;
+    }
+
+    /**
+     * Gets the next fruit score.
+     *
+     * @return The next fruit score.
+     */
+    public int getNextFruitScore() {
+        return iNextFruitScore;
+    }
+
+    /**
+     * Gets the flags of the game.
+     *
+     * @return {@code GameProtocol.iFLAG_*} bits.
+     */
+    public int getFlags() {
+        return iFlags;
+    }
+
+}
@@ -0,0 +1,282 @@
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The {@code SessionRunner} class runs many headless games at once, each
+ * one on its own thread with the same blocking loop as the desktop game:
+ * update a {@code Clock}, step the game for every elapsed cycle and sleep
+ * until the next one. The games are played by a {@code RandomPolicy}, and a
+ * new one starts as soon as the last one is over.
+ *
+ * The threads can be virtual threads, which park while sleeping instead of
+ * holding a platform thread, so tens of thousands of sessions only take a
+ * few carrier threads. They are looked up at run time, since the project
+ * still compiles for Java 8; on a JVM without them the runner falls back to
+ * one platform thread per session. Running {@code main} once in each mode
+ * compares the two.
+ *
+ * @author Brendan Jones
+ *
+ */
+public class SessionRunner {
+
+    /**
+     * The factory of virtual threads, or null if this JVM has none.
+     */
+    private static final ThreadFactory thfVIRTUAL = createVirtualFactory();
+
+    /**
+     * How long a session sleeps between two updates at most, in
+     * milliseconds: a whole tick, since there is nothing to draw.
+     */
+    private static final long lFRAME_TIME = (long) Math.ceil(1000.0f / GameServer.fTICKS_PER_SECOND);
+
+    /**
+     * The most ticks a session runs at once to catch up, like the desktop
+     * game. Past it the ticks are dropped.
+     */
+    private static final int iMAX_CATCH_UP_TICKS = 5;
+
+    //configuracion
+    private final int iColumns;
+    private final int iRows;
+    private final boolean bVirtual;
+
+    private final Thread[] thrSessions;
+
+    //contadores de todas las sesiones
+    private final LongAdder ladTicks = new LongAdder();
+    private final AtomicLong alnGames = new AtomicLong();
+
+    /**
+     * The largest delay of a tick after it was due, in nanoseconds.
+     */
+    private final AtomicLong alnMaxLate = new AtomicLong();
+
+    private volatile boolean bRunning;
+
+    /**
+     * Creates a new SessionRunner.
+     *
+     * @param iSessions The number of sessions.
+     * @param iColumns The number of columns of every board.
+     * @param iRows The number of rows of every board.
+     * @param bVirtual Whether to run the sessions on virtual threads. It is
+     * ignored if the JVM has none.
+     */
+    public SessionRunner(int iSessions, int iColumns, int iRows, boolean bVirtual) {
+        if (iSessions < 1) {
+            throw new IllegalArgumentException("Invalid number of sessions: " + iSessions);
+        }
+        GameBoard.checkSize(iColumns, iRows);
+        this.iColumns = iColumns;
+        this.iRows = iRows;
+        this.bVirtual = bVirtual && thfVIRTUAL != null;
+        this.thrSessions = new Thread[iSessions];
+    }
+
+    /**
+     * Checks whether this JVM has virtual threads.
+     *
+     * @return Whether the sessions can run on virtual threads.
+     */
+    public static boolean isVirtualAvailable() {
+        return thfVIRTUAL != null;
+    }
+
+    /**
+     * Gets {@code Thread.ofVirtual().factory()} through reflection.
+     */
+    private static ThreadFactory createVirtualFactory() {
+        try {
+            Object objBuilder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method mtdFactory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            return (ThreadFactory) mtdFactory.invoke(objBuilder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            //antes de Java 21 (o de 19 sin --enable-preview) no existen
+            return null;
+        }
+    }
+
+    /**
+     * Checks whether the sessions run on virtual threads.
+     *
+     * @return Whether they are virtual.
+     */
+    public boolean isVirtual() {
+        return bVirtual;
+    }
+
+    /**
+     * Starts every session.
+     */
+    public void start() {
+        bRunning = true;
+        for (int iI = 0; iI < thrSessions.length; iI++) {
+            Runnable runSession = new Session(iI);
+            Thread thrSession;
+            if (bVirtual) {
+                thrSession = thfVIRTUAL.newThread(runSession);
+            } else {
+                thrSession = new Thread(runSession, "session-" + iI);
+                thrSession.setDaemon(true);
+            }
+            thrSessions[iI] = thrSession;
+            thrSession.start();
+        }
+    }
+
+    /**
+     * Stops every session and waits for them to finish.
+     *
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public void stop() throws InterruptedException {
+        bRunning = false;
+        for (Thread thrSession : thrSessions) {
+            if (thrSession != null) {
+                thrSession.interrupt();
+                thrSession.join();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of ticks played by every session together.
+     *
+     * @return The number of ticks.
+     */
+    public long getTicks() {
+        return ladTicks.sum();
+    }
+
+    /**
+     * Gets the number of games finished by every session together.
+     *
+     * @return The number of games.
+     */
+    public long getGames() {
+        return alnGames.get();
+    }
+
+    /**
+     * Gets the largest delay of a tick after it was due.
+     *
+     * @return The delay in nanoseconds.
+     */
+    public long getMaxLate() {
+        return alnMaxLate.get();
+    }
+
+    /**
+     * One game and its loop.
+     */
+    private class Session implements Runnable {
+
+        private final int iIndex;
+
+        Session(int iIndex) {
+            this.iIndex = iIndex;
+        }
+
+        @Override
+        public void run() {
+            SnakeEngine sneEngine = new SnakeEngine(iColumns, iRows);
+            SnakePolicy splPolicy = new RandomPolicy(iIndex);
+            sneEngine.resetGame(iIndex);
+            Clock clkLogicTimer = new Clock(GameServer.fTICKS_PER_SECOND);
+            clkLogicTimer.setMaxElapsedCycles(iMAX_CATCH_UP_TICKS);
+            long lNanosPerTick = (long) (1e9 / GameServer.fTICKS_PER_SECOND);
+            long lNextTick = System.nanoTime() + lNanosPerTick;
+            long lMaxLate = 0;
+            long lDropped = 0;
+
+            while (bRunning) {
+                long lStart = System.nanoTime();
+                clkLogicTimer.update();
+                //los ticks que el clock tiro ya no se esperan
+                long lNowDropped = clkLogicTimer.getDroppedCycles();
+                lNextTick += (lNowDropped - lDropped) * lNanosPerTick;
+                lDropped = lNowDropped;
+                while (clkLogicTimer.hasElapsedCycle()) {
+                    //cuanto tarde llega este tick, solo se publica si crece
+                    if (lStart - lNextTick > lMaxLate) {
+                        lMaxLate = lStart - lNextTick;
+                        publishLate(lMaxLate);
+                    }
+                    lNextTick += lNanosPerTick;
+                    sneEngine.step(splPolicy.nextDirection(sneEngine));
+                    ladTicks.increment();
+                    if (sneEngine.isGameOver()) {
+                        alnGames.incrementAndGet();
+                        sneEngine.resetGame(sneEngine.getSeed() + 1);
+                    }
+                }
+
+                long lDelta = (System.nanoTime() - lStart) / 1000000L;
+                if (lDelta < lFRAME_TIME) {
+                    try {
+                        Thread.sleep(lFRAME_TIME - lDelta);
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        private void publishLate(long lMaxLate) {
+            long lActual;
+            while (lMaxLate > (lActual = alnMaxLate.get())
+                    && !alnMaxLate.compareAndSet(lActual, lMaxLate)) {
+                //otro hilo lo cambio, se vuelve a comparar
+            }
+        }
+    }
+
+    /**
+     * Runs sessions from the command line and prints how well they kept up.
+     *
+     * @param args The number of sessions, the number of seconds to run for,
+     * and optionally "virtual" or "platform" (virtual by default) and the
+     * number of columns and rows.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Usage: SessionRunner sessions seconds [virtual|platform [cols rows]]");
+            System.exit(1);
+        }
+        int iSessions = Integer.parseInt(args[0]);
+        long lDuration = Long.parseLong(args[1]) * 1000L;
+        boolean bVirtual = args.length < 3 || !"platform".equals(args[2]);
+        int iColumns = GameBoard.iDEFAULT_COL_COUNT;
+        int iRows = GameBoard.iDEFAULT_ROW_COUNT;
+        if (args.length >= 5) {
+            iColumns = Integer.parseInt(args[3]);
+            iRows = Integer.parseInt(args[4]);
+        }
+        if (bVirtual && !isVirtualAvailable()) {
+            System.out.println("This JVM has no virtual threads, using platform threads");
+        }
+
+        SessionRunner snrRunner = new SessionRunner(iSessions, iColumns, iRows, bVirtual);
+        Runtime rntRuntime = Runtime.getRuntime();
+        long lStart = System.nanoTime();
+        snrRunner.start();
+        double dStartMillis = (System.nanoTime() - lStart) / 1e6;
+        Thread.sleep(lDuration);
+        long lTicks = snrRunner.getTicks();
+        double dSeconds = (System.nanoTime() - lStart) / 1e9;
+        long lUsed = rntRuntime.totalMemory() - rntRuntime.freeMemory();
+        snrRunner.stop();
+
+        System.out.printf("%d %s sessions started in %.0f ms%n", iSessions,
+                snrRunner.isVirtual() ? "virtual" : "platform", dStartMillis);
+        System.out.printf("ticks/s %.0f of %.0f, games %d, max late %.1f ms, heap %d MB%n",
+                lTicks / dSeconds, iSessions * GameServer.fTICKS_PER_SECOND,
+                snrRunner.getGames(), snrRunner.getMaxLate() / 1e6, lUsed >> 20);
+    }
+
+}
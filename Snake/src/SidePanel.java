@@ -1,7 +1,10 @@
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Font;
+import java.awt.FontMetrics;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
 
 import javax.swing.JPanel;
 
@@ -45,13 +48,13 @@ public class SidePanel extends JPanel {
 	public SidePanel(SnakeGame snkGame) {
 		this.snkGame = snkGame;
 		
-		setPreferredSize(new Dimension(300, BoardPanel.iROW_COUNT * BoardPanel.iTILE_SIZE));
+		setPreferredSize(new Dimension(300, snkGame.getEngine().getBoard().getRows() * BoardPanel.iTILE_SIZE));
 		setBackground(Color.BLACK);
 	}
 	
 	private static final int iSTATISTICS_OFFSET = 100;
 	
-	private static final int iCONTROLS_OFFSET = 280;
+	private static final int iCONTROLS_OFFSET = 270;
 	
 	private static final int iMESSAGE_STRIDE = 30;
 	
@@ -59,9 +62,83 @@ public class SidePanel extends JPanel {
 	
 	private static final int iLARGE_OFFSET = 50;
 	
+	/**
+	 * The labels of the statistics category, each followed by its number.
+	 */
+	private static final String[] sETIQUETAS = {
+		"Total Score: ", "Fruit Eaten: ", "Fruit Score: "
+	};
+	
+	/**
+	 * Everything on the panel but the numbers of the statistics category.
+	 */
+	private BufferedImage imgEstatico;
+	
+	//la imagen de cada numero, donde va, y el valor que tiene dibujado
+	private final BufferedImage[] imgValores = new BufferedImage[sETIQUETAS.length];
+	private final int[] iValorX = new int[sETIQUETAS.length];
+	private final int[] iValorY = new int[sETIQUETAS.length];
+	private final int[] iValoresDibujados = new int[sETIQUETAS.length];
+	private final boolean[] bValorDibujado = new boolean[sETIQUETAS.length];
+	
+	//los valores de este frame, para no crear un arreglo cada vez
+	private final int[] iValoresActuales = new int[sETIQUETAS.length];
+	
+	/**
+	 * Where the numbers are written, the longest int fits.
+	 */
+	private final char[] chrNumero = new char[11];
+	
 	@Override
 	public void paintComponent(Graphics g) {
 		super.paintComponent(g);
+		render(g, getWidth());
+	}
+	
+	/**
+	 * Draws the statistics and controls over the background. Used by
+	 * {@code paintComponent}, and by a {@code BoardCanvas} that draws the
+	 * panel from the game loop.
+	 * 
+	 * Everything but the three numbers is drawn once into an image. Each
+	 * number has a small image of its own that is only drawn again when
+	 * the number changes.
+	 * @param g The graphics object to draw to.
+	 * @param iWidth The width of the panel.
+	 */
+	public void render(Graphics g, int iWidth) {
+		AllocationMeter amtMedidor = snkGame.getAllocationMeter();
+		long lAsignados = amtMedidor == null ? 0 : AllocationMeter.getAllocatedBytes();
+		int iHeight = getPreferredSize().height;
+		if (imgEstatico == null || imgEstatico.getWidth() != iWidth) {
+			crearEstatico(iWidth, iHeight);
+		}
+		g.drawImage(imgEstatico, 0, 0, null);
+		
+		int[] iValores = iValoresActuales;
+		iValores[0] = snkGame.getScore();
+		iValores[1] = snkGame.getFruitsEaten();
+		iValores[2] = snkGame.getNextFruitScore();
+		for(int iI = 0; iI < sETIQUETAS.length; iI++) {
+			if(!bValorDibujado[iI] || iValores[iI] != iValoresDibujados[iI]) {
+				dibujarValor(iI, iValores[iI]);
+			}
+			g.drawImage(imgValores[iI], iValorX[iI], iValorY[iI], null);
+		}
+		if (amtMedidor != null) {
+			amtMedidor.addPanel(AllocationMeter.getAllocatedBytes() - lAsignados);
+		}
+	}
+	
+	/**
+	 * Draws everything that does not change into {@code imgEstatico}, and
+	 * measures where each number goes.
+	 */
+	private void crearEstatico(int iWidth, int iHeight) {
+		imgEstatico = new BufferedImage(iWidth, iHeight, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = imgEstatico.createGraphics();
+		g.setColor(Color.BLACK);
+		g.fillRect(0, 0, iWidth, iHeight);
 		
 		/*
 		 * Set the color to draw the font in to white.
@@ -72,7 +149,7 @@ public class SidePanel extends JPanel {
 		 * Draw the game name onto the window.
 		 */
 		g.setFont(fntLARGE_FONT);
-		g.drawString("Snake Game", getWidth() / 2 - g.getFontMetrics().stringWidth("Snake Game") / 2, 50);
+		g.drawString("Snake Game", iWidth / 2 - g.getFontMetrics().stringWidth("Snake Game") / 2, 50);
 		
 		/*
 		 * Draw the categories onto the window.
@@ -85,12 +162,18 @@ public class SidePanel extends JPanel {
 		 * Draw the category content onto the window.
 		 */
 		g.setFont(fntSMALL_FONT);
+		FontMetrics fmtSmall = g.getFontMetrics();
 		
-		//Draw the content for the statistics category.
+		//Draw the labels of the statistics category, the numbers go after them.
 		int iDrawY = iSTATISTICS_OFFSET;
-		g.drawString("Total Score: " + snkGame.getScore(), iLARGE_OFFSET, iDrawY += iMESSAGE_STRIDE);
-		g.drawString("Fruit Eaten: " + snkGame.getFruitsEaten(), iLARGE_OFFSET, iDrawY += iMESSAGE_STRIDE);
-		g.drawString("Fruit Score: " + snkGame.getNextFruitScore(), iLARGE_OFFSET, iDrawY += iMESSAGE_STRIDE);
+		for(int iI = 0; iI < sETIQUETAS.length; iI++) {
+			g.drawString(sETIQUETAS[iI], iLARGE_OFFSET, iDrawY += iMESSAGE_STRIDE);
+			iValorX[iI] = iLARGE_OFFSET + fmtSmall.stringWidth(sETIQUETAS[iI]);
+			iValorY[iI] = iDrawY - fmtSmall.getAscent();
+			imgValores[iI] = new BufferedImage(Math.max(1, iWidth - iValorX[iI]),
+					fmtSmall.getAscent() + fmtSmall.getDescent(), BufferedImage.TYPE_INT_RGB);
+			bValorDibujado[iI] = false;
+		}
 		//Draw the content for the controls category.
 		iDrawY = iCONTROLS_OFFSET-50;
 		g.drawString("Move Up: W / Up Arrowkey", iLARGE_OFFSET, iDrawY += iMESSAGE_STRIDE);
@@ -98,9 +181,45 @@ public class SidePanel extends JPanel {
 		g.drawString("Move Left: A / Left Arrowkey", iLARGE_OFFSET, iDrawY += iMESSAGE_STRIDE);
 		g.drawString("Move Right: D / Right Arrowkey", iLARGE_OFFSET, iDrawY += iMESSAGE_STRIDE);
 		g.drawString("Pause Game: P", iLARGE_OFFSET, iDrawY += iMESSAGE_STRIDE);
-                g.drawString("Save Game: G", iLARGE_OFFSET, iDrawY += iMESSAGE_STRIDE);
-                g.drawString("Load Game: C", iLARGE_OFFSET, iDrawY += iMESSAGE_STRIDE);
-                 g.drawString("Mute Game: M", iLARGE_OFFSET, iDrawY += iMESSAGE_STRIDE);
+		g.drawString("Save Game: G", iLARGE_OFFSET, iDrawY += iMESSAGE_STRIDE);
+		g.drawString("Load Game: C", iLARGE_OFFSET, iDrawY += iMESSAGE_STRIDE);
+		g.drawString("Mute Game: M", iLARGE_OFFSET, iDrawY += iMESSAGE_STRIDE);
+		g.drawString("Autopilot: T", iLARGE_OFFSET, iDrawY += iMESSAGE_STRIDE);
+		g.dispose();
+	}
+	
+	/**
+	 * Draws one of the numbers of the statistics category into its image.
+	 */
+	private void dibujarValor(int iIndex, int iValor) {
+		BufferedImage imgValor = imgValores[iIndex];
+		Graphics2D g = imgValor.createGraphics();
+		g.setColor(Color.BLACK);
+		g.fillRect(0, 0, imgValor.getWidth(), imgValor.getHeight());
+		g.setColor(Color.WHITE);
+		g.setFont(fntSMALL_FONT);
+		int iStart = formatear(iValor);
+		g.drawChars(chrNumero, iStart, chrNumero.length - iStart, 0, g.getFontMetrics().getAscent());
+		g.dispose();
+		iValoresDibujados[iIndex] = iValor;
+		bValorDibujado[iIndex] = true;
+	}
+	
+	/**
+	 * Writes a number in decimal at the end of {@code chrNumero}.
+	 * @return Where the number starts in {@code chrNumero}.
+	 */
+	private int formatear(int iValor) {
+		long lValor = Math.abs((long)iValor);
+		int iPos = chrNumero.length;
+		do {
+			chrNumero[--iPos] = (char)('0' + lValor % 10);
+			lValor /= 10;
+		} while(lValor != 0);
+		if(iValor < 0) {
+			chrNumero[--iPos] = '-';
+		}
+		return iPos;
 	}
 
 }
@@ -0,0 +1,1038 @@
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Random;
+
+/**
+ * The {@code SnakeEngine} class holds the rules of the game: the board, the
+ * snake, the queued directions and the score. It has no dependency on AWT,
+ * Swing or javax.sound, so it can run on a headless machine. The
+ * {@code SnakeGame} window is only one consumer of it, it advances the game
+ * by calling {@code step} and draws whatever the board contains.
+ *
+ * @author Brendan Jones
+ *
+ */
+public class SnakeEngine {
+
+    /**
+     * The minimum length of the snake. This allows the snake to grow right when
+     * the game starts, so that we're not just a head moving around on the
+     * board.
+     */
+    private static final int iMIN_SNAKE_LENGTH = 5;
+
+    /**
+     * The maximum number of directions that we can have polled in the direction
+     * list.
+     */
+    private static final int iMAX_DIRECTIONS = 3;
+
+    /**
+     * The maximum number of color waves that can run down the snake at the
+     * same time.
+     */
+    private static final int iMAX_WAVES = 4;
+
+    /**
+     * The fruit types, in the order used by {@code getFruitCell}.
+     */
+    private static final TileType[] tltFRUITS = {
+        TileType.Fruit, TileType.Fruit2, TileType.Fruit3
+    };
+
+    /**
+     * The board the game is played on.
+     */
+    private GameBoard gbdBoard;
+
+    /**
+     * The number of columns on the board.
+     */
+    private final int iColumns;
+
+    /**
+     * The number of rows on the board.
+     */
+    private final int iRows;
+
+    /**
+     * The random number generator (used for spawning fruits). It is seeded
+     * on every reset so a game can be played again from its seed and inputs.
+     */
+    private Random ranRandom;
+
+    /**
+     * The seed the current game was started with.
+     */
+    private long lSeed;
+
+    /**
+     * The number of ticks played in the current game.
+     */
+    private long lTicks;
+
+    /**
+     * The recorder that is told about every accepted direction, may be null.
+     */
+    private GameRecorder grcRecorder;
+
+    /**
+     * The listener that is told about fruits eaten and deaths, may be null.
+     */
+    private GameListener gmlListener;
+
+    /**
+     * Whether or not we're running a new game.
+     */
+    private boolean bIsNewGame;
+
+    /**
+     * Whether or not the game is over.
+     */
+    private boolean bIsGameOver;
+
+    /**
+     * Whether or not the game is paused.
+     */
+    private boolean bIsPaused;
+
+    /**
+     * What the snake hit when the game ended, null while it is alive.
+     */
+    private DeathCause dthCause;
+
+    /**
+     * Whether the last call to {@code updateSnake} moved the head off the
+     * board.
+     */
+    private boolean bHitWall;
+
+    /**
+     * The cells of the snake, head first. Each cell is stored as
+     * {@code y * columns + x}.
+     */
+    private SnakeRing snrSnake;
+
+    /**
+     * The queued directions. An array deque, so queuing a direction does
+     * not allocate a node on every key press or steer.
+     */
+    private ArrayDeque<Direction> adqDirections;
+
+    /**
+     * The direction the snake moved in on the last tick.
+     */
+    private Direction dirMoved;
+
+    /**
+     * The direction at the front of the queue, the one the head faces,
+     * published for the renderers on other threads. It is written by the
+     * thread that plays the game whenever the front changes, at most once
+     * per tick and per steer, so they never read the queue.
+     */
+    private volatile Direction dirHead;
+
+    /**
+     * The current score.
+     */
+    private int iScore;
+
+    /**
+     * The number of fruits that we've eaten.
+     */
+    private int iFruitsEaten;
+
+    /**
+     * The number of points that the next fruit will award us.
+     */
+    private int iNextFruitScore;
+
+    /**
+     * The amount the Snake will increase depending on the fruit.
+     */
+    private int contadorFruitSnake;
+
+    //para controlar la animacion de los colores, cada fruta comida inicia
+    //una onda; varias ondas pueden recorrer la snake al mismo tiempo
+    private ColorWave[] cwvWaves;
+
+    /**
+     * The cell of each fruit on the board, in the order of
+     * {@code tltFRUITS}, or -1 if that fruit could not be placed.
+     */
+    private final int[] iFruitCells = new int[tltFRUITS.length];
+
+    /**
+     * Bumped every time something that is drawn changes: a tick, a new or
+     * loaded game, a pause or a turn. Written by whoever changes the game
+     * and read by the render loop.
+     */
+    private volatile long lVersion;
+
+    /**
+     * Creates a new SnakeEngine with a board of the default size. The engine
+     * starts flagged as a new game, call {@code resetGame} to start playing.
+     */
+    public SnakeEngine() {
+        this(GameBoard.iDEFAULT_COL_COUNT, GameBoard.iDEFAULT_ROW_COUNT);
+    }
+
+    /**
+     * Creates a new SnakeEngine. The engine starts flagged as a new game, call
+     * {@code resetGame} to start playing.
+     *
+     * @param iColumns The number of columns on the board.
+     * @param iRows The number of rows on the board.
+     */
+    public SnakeEngine(int iColumns, int iRows) {
+        this.gbdBoard = new GameBoard(iColumns, iRows);
+        this.iColumns = iColumns;
+        this.iRows = iRows;
+        this.ranRandom = new Random();
+        this.snrSnake = new SnakeRing(64);
+        this.adqDirections = new ArrayDeque<>(iMAX_DIRECTIONS + 1);
+        this.dirHead = Direction.North;
+        this.bIsNewGame = true;
+        //por default no hay ninguna onda de color activa
+        this.cwvWaves = new ColorWave[iMAX_WAVES];
+        for (int iI = 0; iI < iMAX_WAVES; iI++) {
+            cwvWaves[iI] = new ColorWave();
+        }
+    }
+
+    /**
+     * Sets the listener that is told about fruits eaten and deaths.
+     *
+     * @param gmlListener The listener, or null for none.
+     */
+    public void setListener(GameListener gmlListener) {
+        this.gmlListener = gmlListener;
+    }
+
+    /**
+     * Sets the recorder that is told about every new game and every accepted
+     * direction.
+     *
+     * @param grcRecorder The recorder, or null for none.
+     */
+    public void setRecorder(GameRecorder grcRecorder) {
+        this.grcRecorder = grcRecorder;
+    }
+
+    /**
+     * Gets the board the game is played on.
+     *
+     * @return The board.
+     */
+    public GameBoard getBoard() {
+        return gbdBoard;
+    }
+
+    /**
+     * Queues a new direction for the snake. The direction is ignored if the
+     * game is paused or over, if the queue is full, or if the most recent
+     * direction is not adjacent to it (the snake can't turn around).
+     *
+     * @param dirNew The direction to queue.
+     * @return Whether the direction was queued.
+     */
+    public boolean addDirection(Direction dirNew) {
+        if (!bIsPaused && !bIsGameOver) {
+            if (adqDirections.size() < iMAX_DIRECTIONS) {
+                Direction dirLast = adqDirections.peekLast();
+                if (dirLast == null || !isSameAxis(dirLast, dirNew)) {
+                    adqDirections.addLast(dirNew);
+                    if (grcRecorder != null) {
+                        grcRecorder.record(lTicks, dirNew);
+                    }
+                    lVersion++;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether two directions move along the same axis (North/South or
+     * East/West).
+     */
+    private static boolean isSameAxis(Direction dirA, Direction dirB) {
+        boolean bVerticalA = dirA == Direction.North || dirA == Direction.South;
+        boolean bVerticalB = dirB == Direction.North || dirB == Direction.South;
+        return bVerticalA == bVerticalB;
+    }
+
+    /**
+     * Makes the snake move in the given direction on the next tick, dropping
+     * any queued directions. Unlike {@code addDirection}, which queues key
+     * presses behind the direction already being used, this takes effect
+     * right away, which is what a program steering the snake needs. The
+     * direction is ignored if the game is paused or over, or if it would
+     * turn the snake around.
+     *
+     * @param dirNew The direction to move in.
+     * @return Whether the snake will move in that direction.
+     */
+    public boolean steer(Direction dirNew) {
+        if (bIsPaused || bIsGameOver) {
+            return false;
+        }
+        if (dirMoved != null && dirMoved != dirNew && isSameAxis(dirMoved, dirNew)) {
+            return false;
+        }
+        adqDirections.clear();
+        adqDirections.add(dirNew);
+        dirHead = dirNew;
+        if (grcRecorder != null) {
+            grcRecorder.recordSteer(lTicks, dirNew);
+        }
+        lVersion++;
+        return true;
+    }
+
+    /**
+     * Advances the game by one tick. Nothing happens if the game has not been
+     * started, is paused or is over.
+     *
+     * @param dirInput A direction to {@code steer} to before the tick, or null
+     * to keep using the queued directions.
+     * @return The tile the head of the snake moved into, or null if it moved
+     * into an empty tile or no tick was run.
+     */
+    public TileType step(Direction dirInput) {
+        if (dirInput != null) {
+            steer(dirInput);
+        }
+        if (bIsNewGame || bIsGameOver || bIsPaused) {
+            return null;
+        }
+        lTicks++;
+        lVersion++;
+        Object objTick = GameEvents.gtrTRACER.beginTick();
+        TileType tltCollision = updateGame();
+        if (objTick != null) {
+            GameEvents.gtrTRACER.commitTick(objTick, lTicks, getSnakeLength(), tltCollision);
+        }
+        return tltCollision;
+    }
+
+    /**
+     * Updates the game's logic.
+     *
+     * @return The tile the head of the snake moved into.
+     */
+    private TileType updateGame() {
+        /*
+		 * Gets the type of tile that the head of the snake collided with. If
+		 * the snake hit a wall, SnakeBody will be returned, as both conditions
+		 * are handled identically.
+         */
+        TileType tltCollision = updateSnake();
+
+        /*
+		 * Here we handle the different possible collisions.
+		 *
+		 * Fruit: If we collided with a fruit, we increment the number of
+		 * fruits that we've eaten, update the score, and spawn a new fruit.
+		 *
+		 * SnakeBody: If we collided with our tail (or a wall), we flag that
+		 * the game is over.
+		 *
+		 * If no collision occurred, we simply decrement the number of points
+		 * that the next fruit will give us if it's high enough. This adds a
+		 * bit of skill to the game as collecting fruits more quickly will
+		 * yield a higher score.
+         */
+        if (tltCollision == TileType.Fruit) {
+            //actualiza la informacion de las coisiones
+            iFruitsEaten++;
+            iScore += iNextFruitScore;
+            contadorFruitSnake = 2;
+
+            //genera la animacion de los colores
+            startWave(1, 2, GameBoard.iCOLOR_RED);
+
+            spawnFruit();
+            fireFruitEaten(tltCollision);
+        } else if (tltCollision == TileType.Fruit2) {
+            iFruitsEaten++;
+            iScore += iNextFruitScore;
+            contadorFruitSnake = 3;
+            spawnFruit2();
+            //genera la animacion de los colores
+            startWave(2, 3, GameBoard.iCOLOR_YELLOW);
+
+            fireFruitEaten(tltCollision);
+        } else if (tltCollision == TileType.Fruit3) {
+            iFruitsEaten++;
+            iScore += iNextFruitScore;
+            contadorFruitSnake = 1;
+            spawnFruit3();
+            //genera la animacion de los colores
+            startWave(0, 1, GameBoard.iCOLOR_ORANGE);
+
+            fireFruitEaten(tltCollision);
+        } else if (tltCollision == TileType.SnakeBody
+                || tltCollision == TileType.Venom) {
+            bIsGameOver = true;
+            if (tltCollision == TileType.Venom) {
+                dthCause = DeathCause.Venom;
+            } else {
+                dthCause = bHitWall ? DeathCause.Wall : DeathCause.Body;
+            }
+            if (gmlListener != null) {
+                gmlListener.snakeDied();
+            }
+        } else if (iNextFruitScore > 10) {
+            iNextFruitScore--;
+        }
+        return tltCollision;
+    }
+
+    /**
+     * Tells the listener (if any) that a fruit was eaten.
+     */
+    private void fireFruitEaten(TileType tltFruit) {
+        if (gmlListener != null) {
+            gmlListener.fruitEaten(tltFruit);
+        }
+    }
+
+    /**
+     * Updates the snake's position and size.
+     *
+     * @return Tile tile that the head moved into.
+     */
+    private TileType updateSnake() {
+
+        /*
+		 * Here we peek at the next direction rather than polling it. While
+		 * not game breaking, polling the direction here causes a small bug
+		 * where the snake's direction will change after a game over (though
+		 * it will not move).
+         */
+        Direction dirDirection = adqDirections.peekFirst();
+
+        /*
+		 * Here we calculate the new point that the snake's head will be at
+		 * after the update.
+         */
+        int iHead = snrSnake.peekHead();
+        int iHeadX = iHead % iColumns;
+        int iHeadY = iHead / iColumns;
+        switch (dirDirection) {
+            case North:
+                iHeadY--;
+                break;
+
+            case South:
+                iHeadY++;
+                break;
+
+            case West:
+                iHeadX--;
+                break;
+
+            case East:
+                iHeadX++;
+                break;
+        }
+
+        /*
+		 * If the snake has moved out of bounds ('hit' a wall), we can just
+		 * return that it's collided with itself, as both cases are handled
+		 * identically.
+         */
+        bHitWall = iHeadX < 0 || iHeadX >= iColumns || iHeadY < 0 || iHeadY >= iRows;
+        if (bHitWall) {
+            return TileType.SnakeBody; //Pretend we collided with our body.
+        }
+
+        /*
+		 * Here we get the tile that was located at the new head position and
+		 * remove the tail from of the snake and the board if the snake is
+		 * long enough, and the tile it moved onto is not a fruit.
+		 *
+		 * If the tail was removed, we need to retrieve the old tile again
+		 * incase the tile we hit was the tail piece that was just removed
+		 * to prevent a false game over.
+         */
+        for (int iI = 0; iI < iMAX_WAVES; iI++) {
+            cwvWaves[iI].advance(snrSnake.size());
+        }
+        TileType tltOld = gbdBoard.getTile(iHeadX, iHeadY);
+        if (tltOld != TileType.Fruit && tltOld != TileType.Fruit2 && tltOld != TileType.Fruit3
+                && --contadorFruitSnake < 1 && tltOld != TileType.Venom && snrSnake.size() > iMIN_SNAKE_LENGTH) {
+            int iTail = snrSnake.popTail();
+            setCellTile(iTail, null);
+            tltOld = gbdBoard.getTile(iHeadX, iHeadY);
+
+        }
+        /*
+		 * Update the snake's position on the board if we didn't collide with
+		 * our tail:
+		 *
+		 * 1. Set the old head position to a body tile.
+		 * 2. Add the new head to the snake.
+		 * 3. Set the new head position to a head tile.
+		 *
+		 * If more than one direction is in the queue, poll it to read new
+		 * input.
+         */
+        if (tltOld != TileType.SnakeBody) {
+            dirMoved = dirDirection;
+            setCellTile(snrSnake.peekHead(), TileType.SnakeBody);
+            snrSnake.pushHead(iHeadY * iColumns + iHeadX);
+            gbdBoard.setTile(iHeadX, iHeadY, TileType.SnakeHead);
+            if (adqDirections.size() > 1) {
+                adqDirections.poll();
+                dirHead = adqDirections.peekFirst();
+            }
+        }
+
+        return tltOld;
+    }
+
+    /**
+     * Sets the tile of a packed snake cell.
+     */
+    private void setCellTile(int iCell, TileType tltType) {
+        gbdBoard.setTile(iCell, tltType);
+    }
+
+    /**
+     * Starts a color wave on a free slot. If every slot is taken, the wave
+     * that is closest to the tail is replaced.
+     */
+    private void startWave(int iPos, int iLength, int iColor) {
+        ColorWave cwvSlot = cwvWaves[0];
+        for (int iI = 0; iI < iMAX_WAVES; iI++) {
+            ColorWave cwvWave = cwvWaves[iI];
+            if (!cwvWave.isActive()) {
+                cwvSlot = cwvWave;
+                break;
+            }
+            if (cwvWave.getLastSegment() > cwvSlot.getLastSegment()) {
+                cwvSlot = cwvWave;
+            }
+        }
+        cwvSlot.start(iPos, iLength, iColor);
+    }
+
+    /**
+     * Resets the game's variables to their default states and starts a new
+     * game with a random seed.
+     */
+    public void resetGame() {
+        resetGame(new Random().nextLong());
+    }
+
+    /**
+     * Resets the game's variables to their default states and starts a new
+     * game. Two games started with the same seed and given the same
+     * directions at the same ticks play exactly the same.
+     *
+     * @param lSeed The seed for the random number generator.
+     */
+    public void resetGame(long lSeed) {
+        this.lSeed = lSeed;
+        this.lTicks = 0;
+        this.lVersion++;
+        ranRandom.setSeed(lSeed);
+        if (grcRecorder != null) {
+            grcRecorder.start(iColumns, iRows, lSeed);
+        }
+
+        /*
+		 * Reset the score statistics. (Note that nextFruitPoints is reset in
+		 * the spawnFruit function later on).
+         */
+        this.iScore = 0;
+        this.iFruitsEaten = 0;
+
+        /*
+		 * Reset the amount of places the snake will move
+         */
+        this.contadorFruitSnake = 0;
+        /*
+		 * Reset the new game, game over and paused flags.
+         */
+        this.bIsNewGame = false;
+        this.bIsGameOver = false;
+        this.bIsPaused = false;
+        this.dthCause = null;
+
+        /*
+		 * Create the head at the center of the board.
+         */
+        int iHeadX = iColumns / 2;
+        int iHeadY = iRows / 2;
+
+        /*
+		 * Clear the snake list and add the head.
+         */
+        snrSnake.clear();
+        snrSnake.pushHead(iHeadY * iColumns + iHeadX);
+
+        /*
+		 * Clear the board and add the head.
+         */
+        gbdBoard.clearBoard();
+        gbdBoard.setTile(iHeadX, iHeadY, TileType.SnakeHead);
+
+        /*
+		 * Clear the directions and add north as the
+		 * default direction.
+         */
+        adqDirections.clear();
+        adqDirections.add(Direction.North);
+        dirMoved = null;
+        dirHead = Direction.North;
+
+        /*
+		 * Spawn a new fruit.
+         */
+        spawnFruit();
+        spawnFruit2();
+        spawnFruit3();
+        spawnBad();
+
+        //reiniciar las ondas de color
+        for (int iI = 0; iI < iMAX_WAVES; iI++) {
+            cwvWaves[iI].stop();
+        }
+    }
+
+    /**
+     * Gets the flag that indicates whether or not we're playing a new game.
+     *
+     * @return The new game flag.
+     */
+    public boolean isNewGame() {
+        return bIsNewGame;
+    }
+
+    /**
+     * Gets the flag that indicates whether or not the game is over.
+     *
+     * @return The game over flag.
+     */
+    public boolean isGameOver() {
+        return bIsGameOver;
+    }
+
+    /**
+     * Gets what the snake hit when the game ended.
+     *
+     * @return The cause of death, or null if the game is not over.
+     */
+    public DeathCause getDeathCause() {
+        return dthCause;
+    }
+
+    /**
+     * Gets the flag that indicates whether or not the game is paused.
+     *
+     * @return The paused flag.
+     */
+    public boolean isPaused() {
+        return bIsPaused;
+    }
+
+    /**
+     * Sets the flag that indicates whether or not the game is paused.
+     *
+     * @param bPaused The paused flag.
+     */
+    public void setPaused(boolean bPaused) {
+        if (bPaused != bIsPaused) {
+            this.bIsPaused = bPaused;
+            lVersion++;
+        }
+    }
+
+    /**
+     * Spawns a new fruit onto the board.
+     */
+    private void spawnFruit() {
+        //Reset the score for this fruit to 100.
+        this.iNextFruitScore = 100;
+        iFruitCells[0] = spawnTile(TileType.Fruit);
+    }
+
+    private void spawnFruit2() {
+        //Reset the score for this fruit to 100.
+        this.iNextFruitScore = 100;
+        iFruitCells[1] = spawnTile(TileType.Fruit2);
+    }
+
+    private void spawnFruit3() {
+        //Reset the score for this fruit to 100.
+        this.iNextFruitScore = 100;
+        iFruitCells[2] = spawnTile(TileType.Fruit3);
+    }
+
+    private void spawnBad() {
+        //siguiendo la misma logica de las "fruits"
+        //pero ahora en lugar de agregar un tyle del tipo fruit
+        //se agrega un tyle del tipo Venom
+        //ademas se modifica para que se agreguen 3 de estos
+        //objetos malos
+        for (int iI = 0; iI < 3; iI++) {
+            spawnTile(TileType.Venom);
+        }
+    }
+
+    /**
+     * Places a tile of the given type on a random free space of the board.
+     * Nothing is placed if the board is full.
+     *
+     * @param tltType The type of tile to spawn.
+     * @return The cell the tile was placed on, or -1 if the board is full.
+     */
+    private int spawnTile(TileType tltType) {
+        /*
+		 * The board keeps a list of its empty tiles, so picking a random entry
+		 * of it is uniform over the free spaces and costs the same no matter
+		 * how big the board or the snake are.
+         */
+        Object objSpawn = GameEvents.gtrTRACER.beginSpawn();
+        int iFree = gbdBoard.getFreeCount();
+        int iCell = -1;
+        if (iFree != 0) {
+            iCell = gbdBoard.getFreeCell(ranRandom.nextInt(iFree));
+            gbdBoard.setTile(iCell, tltType);
+        }
+        if (objSpawn != null) {
+            GameEvents.gtrTRACER.commitSpawn(objSpawn, lTicks, tltType, iCell, iFree);
+        }
+        return iCell;
+    }
+
+    /**
+     * Gets a number that changes every time something that is drawn
+     * changes, so a renderer can skip frames when it is the same as the
+     * last one it drew.
+     *
+     * @return The version of the game state.
+     */
+    public long getVersion() {
+        return lVersion;
+    }
+
+    /**
+     * Gets the seed the current game was started with.
+     *
+     * @return The seed.
+     */
+    public long getSeed() {
+        return lSeed;
+    }
+
+    /**
+     * Gets the number of ticks played in the current game.
+     *
+     * @return The number of ticks.
+     */
+    public long getTicks() {
+        return lTicks;
+    }
+
+    /**
+     * Gets the current score.
+     *
+     * @return The score.
+     */
+    public int getScore() {
+        return iScore;
+    }
+
+    /**
+     * Gets the number of fruits eaten.
+     *
+     * @return The fruits eaten.
+     */
+    public int getFruitsEaten() {
+        return iFruitsEaten;
+    }
+
+    /**
+     * Gets the next fruit score.
+     *
+     * @return The next fruit score.
+     */
+    public int getNextFruitScore() {
+        return iNextFruitScore;
+    }
+
+    /**
+     * Gets the current length of the snake.
+     *
+     * @return The number of cells the snake occupies.
+     */
+    public int getSnakeLength() {
+        return snrSnake.size();
+    }
+
+    /**
+     * Gets a segment of the snake.
+     *
+     * @param iIndex The segment, 0 being the head.
+     * @return The index of the tile the segment is on,
+     * {@code y * columns + x}.
+     */
+    public int getSnakeCell(int iIndex) {
+        return snrSnake.get(iIndex);
+    }
+
+    /**
+     * Gets the number of fruit types, see {@code getFruitCell}.
+     *
+     * @return The number of fruit types.
+     */
+    public int getFruitCount() {
+        return tltFRUITS.length;
+    }
+
+    /**
+     * Gets the cell of one of the fruits on the board. There is always at
+     * most one fruit of each type.
+     *
+     * @param iIndex The fruit, from 0 (inclusive) to {@code getFruitCount()}
+     * (exclusive).
+     * @return The cell, {@code y * columns + x}, or -1 if that fruit is not
+     * on the board.
+     */
+    public int getFruitCell(int iIndex) {
+        return iFruitCells[iIndex];
+    }
+
+    /**
+     * Gets the number of color wave slots. Use {@code getWave} and
+     * {@code ColorWave.isActive} to find the running ones.
+     *
+     * @return The number of slots.
+     */
+    public int getWaveCount() {
+        return iMAX_WAVES;
+    }
+
+    /**
+     * Gets a color wave slot.
+     *
+     * @param iIndex The slot, between 0 and {@code getWaveCount() - 1}.
+     * @return The wave in that slot.
+     */
+    public ColorWave getWave(int iIndex) {
+        return cwvWaves[iIndex];
+    }
+
+    /**
+     * Gets the current direction of the snake. It can be read from any
+     * thread, since it does not read the queue of directions.
+     *
+     * @return The current direction.
+     */
+    public Direction getDirection() {
+        return dirHead;
+    }
+
+    /**
+     * Funcion de guardar
+     * escribe el estado actual del juego en la salida para poder cargarlo
+     * después. El registro empieza con el tamaño del tablero y los largos de
+     * la snake y de las direcciones, sin relleno, y el tablero va con un
+     * byte por tile, asi que mide {@code getRecordSize()} bytes
+     *
+     * @param dotSalida
+     * @throws IOException
+     */
+    public void guardarEstado(DataOutput dotSalida) throws IOException {
+        //el tamaño del tablero, para no cargar un registro de otro tamaño
+        dotSalida.writeInt(iColumns);
+        dotSalida.writeInt(iRows);
+        //almacenar las variables del funcionamiento del juego
+        dotSalida.writeInt(iScore);
+        dotSalida.writeInt(iFruitsEaten);
+        dotSalida.writeInt(iNextFruitScore);
+        dotSalida.writeBoolean(bIsNewGame);
+        dotSalida.writeBoolean(bIsPaused);
+        dotSalida.writeBoolean(bIsGameOver);
+        //se guarda la snake como tal en el archivo
+        guardarSnake(dotSalida);
+        //almacenar las direcciones de la snake
+        guardarDirecciones(dotSalida);
+        //almacenar el tablero
+        gbdBoard.writeTiles(dotSalida);
+    }
+
+    /**
+     * Gets the number of bytes {@code guardarEstado} writes for the current
+     * game: it grows with the snake, and has one byte per tile.
+     *
+     * @return The size of the record in bytes.
+     */
+    public long getRecordSize() {
+        //tamaño y estado (5 ints y 3 booleans), snake (un int por celda),
+        //direcciones (un byte cada una) y tablero (un byte por tile)
+        return 23 + (4 + 4L * snrSnake.size()) + (4 + adqDirections.size())
+                + gbdBoard.getTileCount();
+    }
+
+    /*
+    Funcion que almacena la snake en el archivo de salida, cada celda como
+    un int (y * columnas + x), de la cabeza a la cola
+    */
+    private void guardarSnake(DataOutput dotSalida) throws IOException {
+        //almacenar las celdas de la snake
+        dotSalida.writeInt(snrSnake.size());
+        for (int iC = 0; iC < snrSnake.size(); iC++) {
+            dotSalida.writeInt(snrSnake.get(iC));
+        }
+    }
+
+    /*
+    Funcion guardarDirecciones, funciona idem a guardar Snake, con un byte
+    por direccion
+    */
+    private void guardarDirecciones(DataOutput dotSalida) throws IOException {
+        //guardar direcciones de la snake
+        dotSalida.writeInt(adqDirections.size());
+        for (Direction dirTemp : adqDirections) {
+            switch (dirTemp) {//se traduce cada direccion a un numero
+                case North:
+                    dotSalida.writeByte(1);
+                    break;
+                case South:
+                    dotSalida.writeByte(2);
+                    break;
+                case East:
+                    dotSalida.writeByte(3);
+                    break;
+                case West:
+                    dotSalida.writeByte(4);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Funcion de cargar:
+     * Lee un registro escrito por guardarEstado y lo carga en el estado
+     * actual del juego. Un registro de un tablero de otro tamaño no se carga.
+     *
+     * @param dinEntrada
+     * @throws IOException Si no se pudo leer, o es de otro tamaño de tablero.
+     */
+    public void cargarEstado(DataInput dinEntrada) throws IOException {
+        this.resetGame();//se reinicia el juego para evitar bugs raros
+        //una partida cargada no se puede repetir desde su semilla
+        if (grcRecorder != null) {
+            grcRecorder.discard();
+        }
+        try {
+            leerEstado(dinEntrada);
+            lVersion++;
+        } catch (IOException e) {
+            //si el registro no se pudo leer completo se deja un juego limpio
+            this.resetGame();
+            throw e;
+        }
+    }
+
+    /**
+     * Lee las partes del registro en el orden en que las escribe
+     * guardarEstado
+     */
+    private void leerEstado(DataInput dinEntrada) throws IOException {
+        int iColumnas = dinEntrada.readInt();
+        int iFilas = dinEntrada.readInt();
+        if (iColumnas != iColumns || iFilas != iRows) {
+            throw new IOException("El registro es de un tablero de " + iColumnas
+                    + "x" + iFilas + ", este es de " + iColumns + "x" + iRows);
+        }
+        //primero se cargan las variables de estado
+        this.iScore = dinEntrada.readInt();
+        this.iFruitsEaten = dinEntrada.readInt();
+        this.iNextFruitScore = dinEntrada.readInt();
+        this.bIsNewGame = dinEntrada.readBoolean();
+        this.bIsPaused = dinEntrada.readBoolean();
+        this.bIsGameOver = dinEntrada.readBoolean();
+        //cargar la snake del registro
+        cargarSnake(dinEntrada);
+        //se cargan las direcciones almacenadas hasta ahora
+        cargarDirecciones(dinEntrada);
+        dirMoved = adqDirections.peekFirst();
+        dirHead = dirMoved;
+        //se carga el tablero del registro
+        gbdBoard.readTiles(dinEntrada);
+        //se buscan las frutas en el tablero cargado
+        for (int iI = 0; iI < tltFRUITS.length; iI++) {
+            iFruitCells[iI] = -1;
+        }
+        for (int iC = 0; iC < gbdBoard.getTileCount(); iC++) {
+            for (int iI = 0; iI < tltFRUITS.length; iI++) {
+                if (gbdBoard.getTile(iC) == tltFRUITS[iI]) {
+                    iFruitCells[iI] = iC;
+                }
+            }
+        }
+    }
+
+    /*
+    Para modularizar se carga la snake en una funcion separada
+    */
+    private void cargarSnake(DataInput dinEntrada) throws IOException {
+        //cargar la serpiente
+        snrSnake.clear();
+        int iElementos = dinEntrada.readInt();
+        if (iElementos < 1 || iElementos > gbdBoard.getTileCount()) {
+            throw new IOException("Largo de snake invalido: " + iElementos);
+        }
+        for (int iC = 0; iC < iElementos; iC++) {
+            int iCell = dinEntrada.readInt();
+            if (iCell < 0 || iCell >= gbdBoard.getTileCount()) {
+                throw new IOException("Celda de snake invalida: " + iCell);
+            }
+            snrSnake.addTail(iCell);
+        }
+    }
+
+    /*
+    la funcion de cargar direcciones funciona IDEM a cargar snake
+    */
+    private void cargarDirecciones(DataInput dinEntrada) throws IOException {
+        //cargar las direcciones
+        int iElementos;
+        iElementos = dinEntrada.readInt();
+        if (iElementos < 1 || iElementos > iMAX_DIRECTIONS) {
+            throw new IOException("Cantidad de direcciones invalida: " + iElementos);
+        }
+        adqDirections.clear();
+        for (int iC = 0; iC < iElementos; iC++) {
+            int iDireccion = dinEntrada.readByte();
+            switch (iDireccion) {
+                case 1:
+                    adqDirections.add(Direction.North);
+                    break;
+                case 2:
+                    adqDirections.add(Direction.South);
+                    break;
+                case 3:
+                    adqDirections.add(Direction.East);
+                    break;
+                case 4:
+                    adqDirections.add(Direction.West);
+                    break;
+            }
+        }
+        if (adqDirections.isEmpty()) {
+            adqDirections.add(Direction.North);
+        }
+    }
+
+}
@@ -1,13 +1,18 @@
 
 import java.awt.BorderLayout;
-import java.awt.Point;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.io.RandomAccessFile;
-import java.util.LinkedList;
-import java.util.Random;
-import java.awt.Color;
+import java.nio.channels.Channels;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import javax.swing.JFrame;
 import javax.swing.JOptionPane;
@@ -43,22 +48,20 @@ public class SnakeGame extends JFrame {
     private static final long lserialVersionUID = 6678292058307426314L;
 
     /**
-     * The number of milliseconds that should pass between each frame.
+     * The number of nanoseconds that should pass between each frame.
      */
-    private static final long lFRAME_TIME = 1000L / 50L;
+    private static final long lFRAME_TIME = 1000000000L / 50L;
 
     /**
-     * The minimum length of the snake. This allows the snake to grow right when
-     * the game starts, so that we're not just a head moving around on the
-     * board.
+     * The most logic ticks run in one frame to catch up after a pause (a
+     * long GC, a dragged window). Past it the game slows down instead.
      */
-    private static final int iMIN_SNAKE_LENGTH = 5;
+    private static final int iMAX_CATCH_UP_TICKS = 5;
 
     /**
-     * The maximum number of directions that we can have polled in the direction
-     * list.
+     * The interval between two reports of the allocations, in milliseconds.
      */
-    private static final int iMAX_DIRECTIONS = 3;
+    private static final long lALLOCATION_REPORT = 5000L;
 
     /**
      * The BoardPanel instance.
@@ -71,9 +74,10 @@ public class SnakeGame extends JFrame {
     private SidePanel spnSide;
 
     /**
-     * The random number generator (used for spawning fruits).
+     * Shows the board and the side panel when they are drawn by the game
+     * loop, or null when Swing paints the panels.
      */
-    private Random ranRandom;
+    private BoardCanvas cnvBoard;
 
     /**
      * The Clock instance for handling the game logic.
@@ -81,50 +85,84 @@ public class SnakeGame extends JFrame {
     private Clock clkLogicTimer;
 
     /**
-     * Whether or not we're running a new game.
+     * Records the seed and the directions of the current game, so it can be
+     * checked later with {@code GameReplayer}.
      */
-    private boolean bIsNewGame;
+    private GameRecorder grcRecorder;
 
     /**
-     * Whether or not the game is over.
+     * The direction key presses, written by the key listener on the event
+     * dispatch thread and read by the game loop.
      */
-    private boolean bIsGameOver;
+    private InputQueue iqInput;
 
     /**
-     * Whether or not the game is paused.
+     * The keys that change the game (pause, mute, start, load and save),
+     * posted by the event dispatch thread and run by the game loop before
+     * its ticks, so only the loop changes the engine and the logic timer.
      */
-    private boolean bIsPaused;
+    private final ConcurrentLinkedQueue<Runnable> clqComandos = new ConcurrentLinkedQueue<>();
 
     /**
-     * The list that contains the points for the snake.
+     * The capture time of the oldest direction that was given to the engine
+     * but has not been used by a tick yet, or -1 if there is none.
      */
-    private LinkedList<Point> lklSnake;
+    private long lPendingInput;
 
     /**
-     * The list that contains the queued directions.
+     * The time between the capture of the oldest pending direction and the
+     * tick that used it, in nanoseconds, for the last tick that had input.
      */
-    private LinkedList<Direction> lklDirections;
+    private long lLastInputLatency;
 
     /**
-     * The current score.
+     * How far the logic timer is between the last tick and the next one,
+     * for the renderer. Written by the game loop.
      */
-    private int iScore;
+    private volatile float fAlpha;
 
     /**
-     * The number of fruits that we've eaten.
+     * How long each tick, each paint of the board, each overshoot of the
+     * loop's sleep and each direction key until its tick took. The board
+     * is painted on the event dispatch thread, or by the game loop with a
+     * canvas; the others are recorded by the game loop.
      */
-    private int iFruitsEaten;
+    private final LatencyHistogram lhsTick = new LatencyHistogram("tick");
+    private final LatencyHistogram lhsFrame = new LatencyHistogram("frame");
+    private final LatencyHistogram lhsSleep = new LatencyHistogram("sleep overshoot");
+    private final LatencyHistogram lhsInput = new LatencyHistogram("input to tick");
 
     /**
-     * The number of points that the next fruit will award us.
+     * Whether the percentiles are shown on top of the board. Toggled on the
+     * event dispatch thread.
      */
-    private int iNextFruitScore;
-    
+    private volatile boolean bLatencias;
+
     /**
-     * The amount the Snake will increase depending on the fruit.
+     * Counts the bytes allocated by every tick and paint, or null if they
+     * are not measured.
      */
-    private int contadorFruitSnake;
-    
+    private volatile AllocationMeter amtMedidor;
+
+    /**
+     * The engine that holds the board, the snake and the game rules.
+     */
+    private SnakeEngine sneEngine;
+
+    /**
+     * Steers the snake while the autopilot is on. Its arrays take about 28
+     * bytes per tile, so the game loop only creates it the first time the
+     * autopilot is turned on, and drops it if a board of another size is
+     * loaded. Only used by the game loop.
+     */
+    private Autopilot aplAutopilot;
+
+    /**
+     * Whether the autopilot is on. Toggled on the event dispatch thread and
+     * read by the game loop.
+     */
+    private volatile boolean bAutopilot;
+
     /**
      * Variable que controla el sonido de fondo.
      */
@@ -151,31 +189,63 @@ public class SnakeGame extends JFrame {
      */
     private boolean bIsMuteado;
 
-    //para controlar la animacion de los colores
-    //se usa la posicion actual para dibujar los colores especiales
-    //la cantidad para decir cuantas tiles especiales
-    //y el color para cual color especial dibujar
-    private int iPosColor;
-    private int iCantidadColor;
-    private Color colEspecial;
     /**
      * Creates a new SnakeGame instance. Creates a new window, and sets up the
      * controller input.
+     *
+     * @param iColumns The number of columns on the board.
+     * @param iRows The number of rows on the board.
+     * @param iBuffers The number of buffers (2 or 3) to draw the game with
+     * from the game loop, or 0 to let Swing paint the panels.
      */
-    private SnakeGame() {
+    private SnakeGame(int iColumns, int iRows, int iBuffers) {
         super("Snake Remake");
         setLayout(new BorderLayout());
         setDefaultCloseOperation(EXIT_ON_CLOSE);
         setResizable(false);
         
+        /*
+		 * Create the engine, the panels only read from it.
+         */
+        this.sneEngine = new SnakeEngine(iColumns, iRows);
+        //el tablero lleva la cuenta de los tiles que hay que volver a pintar
+        sneEngine.getBoard().setTrackChanges(true);
+        this.grcRecorder = new GameRecorder();
+        sneEngine.setRecorder(grcRecorder);
+        this.iqInput = new InputQueue(16);
+        this.lPendingInput = -1;
+        sneEngine.setListener(new GameListener() {
+
+            @Override
+            public void fruitEaten(TileType tltFruit) {
+                sClipEat.play();
+            }
+
+            @Override
+            public void snakeDied() {
+                sClipDead.play();
+                clkLogicTimer.setPaused(true);
+                bPausado = true;
+                SClipFondo.stop();
+                guardarReplay();
+            }
+
+        });
+
         /*
 		 * Initialize the game's panels and add them to the window.
          */
         this.bpnBoard = new BoardPanel(this);
         this.spnSide = new SidePanel(this);
 
-        add(bpnBoard, BorderLayout.CENTER);
-        add(spnSide, BorderLayout.EAST);
+        if (iBuffers == 0) {
+            add(bpnBoard, BorderLayout.CENTER);
+            add(spnSide, BorderLayout.EAST);
+        } else {
+            //los paneles no se muestran, solo dibujan en el canvas
+            this.cnvBoard = new BoardCanvas(bpnBoard, spnSide, iBuffers);
+            add(cnvBoard, BorderLayout.CENTER);
+        }
 
         /*
 	 * Add the background sound. 
@@ -186,10 +256,6 @@ public class SnakeGame extends JFrame {
         //inicializar los otros sonidos útiles
         this.sClipEat = new SoundClip("eat.wav");
         this.sClipDead = new SoundClip("dead.wav");
-        //por default las variables de control de anmacion de color son 0 y verde
-        iPosColor = 0;
-        iCantidadColor = 0;
-        colEspecial = Color.GREEN;
         /*
 	 * Inicializo en false los boleanos que revisan el pausado y muteado. 
 	*/
@@ -208,102 +274,51 @@ public class SnakeGame extends JFrame {
                 switch (keyE.getKeyCode()) {
 
                     /*
-				 * If the game is not paused, and the game is not over...
-				 * 
-				 * Ensure that the direction list is not full, and that the most
-				 * recent direction is adjacent to North before adding the
-				 * direction to the list.
+				 * Hand North over to the game loop thread. Whether it is
+				 * accepted (game not paused or over, direction list not full,
+				 * most recent direction adjacent to North) is decided there.
                      */
                     case KeyEvent.VK_W:
                     case KeyEvent.VK_UP:
-                        if (!bIsPaused && !bIsGameOver) {
-                            if (lklDirections.size() < iMAX_DIRECTIONS) {
-                                Direction dirLast = lklDirections.peekLast();
-                                if (dirLast != Direction.South && dirLast != Direction.North) {
-                                    lklDirections.addLast(Direction.North);
-                                }
-                            }
-                        }
+                        iqInput.offer(Direction.North, System.nanoTime());
                         break;
 
                     /*
-				 * If the game is not paused, and the game is not over...
-				 * 
-				 * Ensure that the direction list is not full, and that the most
-				 * recent direction is adjacent to South before adding the
-				 * direction to the list.
+				 * Hand South over to the game loop thread. Whether it is
+				 * accepted (game not paused or over, direction list not full,
+				 * most recent direction adjacent to South) is decided there.
                      */
                     case KeyEvent.VK_S:
                     case KeyEvent.VK_DOWN:
-                        if (!bIsPaused && !bIsGameOver) {
-                            if (lklDirections.size() < iMAX_DIRECTIONS) {
-                                Direction dirLast = lklDirections.peekLast();
-                                if (dirLast != Direction.North && dirLast != Direction.South) {
-                                    lklDirections.addLast(Direction.South);
-                                }
-                            }
-                        }
+                        iqInput.offer(Direction.South, System.nanoTime());
                         break;
 
                     /*
-				 * If the game is not paused, and the game is not over...
-				 * 
-				 * Ensure that the direction list is not full, and that the most
-				 * recent direction is adjacent to West before adding the
-				 * direction to the list.
+				 * Hand West over to the game loop thread. Whether it is
+				 * accepted (game not paused or over, direction list not full,
+				 * most recent direction adjacent to West) is decided there.
                      */
                     case KeyEvent.VK_A:
                     case KeyEvent.VK_LEFT:
-                        if (!bIsPaused && !bIsGameOver) {
-                            if (lklDirections.size() < iMAX_DIRECTIONS) {
-                                Direction dirLast = lklDirections.peekLast();
-                                if (dirLast != Direction.East && dirLast != Direction.West) {
-                                    lklDirections.addLast(Direction.West);
-                                }
-                            }
-                        }
+                        iqInput.offer(Direction.West, System.nanoTime());
                         break;
 
                     /*
-				 * If the game is not paused, and the game is not over...
-				 * 
-				 * Ensure that the direction list is not full, and that the most
-				 * recent direction is adjacent to East before adding the
-				 * direction to the list.
+				 * Hand East over to the game loop thread. Whether it is
+				 * accepted (game not paused or over, direction list not full,
+				 * most recent direction adjacent to East) is decided there.
                      */
                     case KeyEvent.VK_D:
                     case KeyEvent.VK_RIGHT:
-                        if (!bIsPaused && !bIsGameOver) {
-                            if (lklDirections.size() < iMAX_DIRECTIONS) {
-                                Direction dirLast = lklDirections.peekLast();
-                                if (dirLast != Direction.West && dirLast != Direction.East) {
-                                    lklDirections.addLast(Direction.East);
-                                }
-                            }
-                        }
+                        iqInput.offer(Direction.East, System.nanoTime());
                         break;
 
                     /*
 				 * If the game is not over, toggle the paused flag and update
-				 * the logicTimer's pause flag accordingly.
+				 * the logicTimer's pause flag accordingly, on the game loop.
                      */
                     case KeyEvent.VK_P:
-                        if (!bIsGameOver) {
-                            bIsPaused = !bIsPaused;
-                            clkLogicTimer.setPaused(bIsPaused);
-                            if(bIsMuteado)
-                            {
-                            if(bPausado)
-                            {
-                                SClipFondo.unpause();
-                            }
-                            else
-                            {
-                                SClipFondo.pause();
-                            }
-                            bPausado = !bPausado;
-                            }
-                        }
+                        clqComandos.offer(() -> cambiarPausa());
                         break;
                        
                     /*          
@@ -311,38 +326,34 @@ public class SnakeGame extends JFrame {
                     */
                         
                     case KeyEvent.VK_M:
-                        if (!bIsGameOver && !bIsPaused) {
-                        if(bMuteado)
-                        {
-                        //mutea el sonido cuando el usuario presione la tecla m
-                        SClipFondo.stop();
-                        bIsMuteado = false;
-                        }
-                        else
-                        {
-                        //vuelve a correr la musica cuando el usuario vuelva a presionar m
-                        SClipFondo.setLooping(true);
-                        SClipFondo.play();
-                        bIsMuteado = true;
-                        }
-                        bMuteado = !bMuteado;
-                        }
+                        clqComandos.offer(() -> cambiarMute());
                         break;
 
                     /*
-				 * Reset the game if one is not currently in progress.
+				 * Reset the game if one is not currently in progress, on the
+				 * game loop.
                      */
                     case KeyEvent.VK_ENTER:
-                        if (bIsNewGame || bIsGameOver) {
-                            resetGame();
-                        }
+                        clqComandos.offer(() -> {
+                            if (sneEngine.isNewGame() || sneEngine.isGameOver()) {
+                                resetGame();
+                            }
+                        });
                         break;
                     case KeyEvent.VK_C:
                         Cargar();
                         break;
+                    //prende o apaga el autopilot
+                    case KeyEvent.VK_T:
+                        bAutopilot = !bAutopilot;
+                        break;
                     case KeyEvent.VK_G:
                         Guardar();
                         break;
+                    //muestra u oculta las latencias sobre el tablero
+                    case KeyEvent.VK_L:
+                        bLatencias = !bLatencias;
+                        break;
                 }
             }
 
@@ -355,6 +366,16 @@ public class SnakeGame extends JFrame {
         pack();
         setLocationRelativeTo(null);
         setVisible(true);
+
+        //al cerrar la ventana se escriben las latencias en latency.txt
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                guardarLatencias();
+            }
+
+        }, "latency-dump"));
     }
 
     /**
@@ -364,11 +385,8 @@ public class SnakeGame extends JFrame {
         /*
 		 * Initialize everything we're going to be using.
          */
-        this.ranRandom = new Random();
-        this.lklSnake = new LinkedList<>();
-        this.lklDirections = new LinkedList<>();
         this.clkLogicTimer = new Clock(9.0f);
-        this.bIsNewGame = true;
+        clkLogicTimer.setMaxElapsedCycles(iMAX_CATCH_UP_TICKS);
 
         //Set the timer to paused initially.
         clkLogicTimer.setPaused(true);
@@ -377,219 +395,158 @@ public class SnakeGame extends JFrame {
 		 * This is the game loop. It will update and render the game and will
 		 * continue to run until the game window is closed.
          */
+        long lNextFrame = System.nanoTime();
+        long lDrawnVersion = -1;
         while (true) {
-            //Get the current frame's start time.
-            long lStart = System.nanoTime();
 
             //Update the logic timer.
             clkLogicTimer.update();
 
             /*
-			 * If a cycle has elapsed on the logic timer, then update the game.
+			 * Run the keys that change the game, the engine and the logic
+			 * timer are only changed by this thread.
+             */
+            Runnable runComando;
+            while ((runComando = clqComandos.poll()) != null) {
+                runComando.run();
+            }
+
+            /*
+			 * Give the directions pressed since the last frame to the engine,
+			 * it drops the ones that are not allowed.
              */
-            if (clkLogicTimer.hasElapsedCycle()) {
-                updateGame();
+            while (iqInput.poll()) {
+                if (sneEngine.addDirection(iqInput.getDirection())
+                        && lPendingInput == -1) {
+                    lPendingInput = iqInput.getTime();
+                }
+            }
+
+            /*
+			 * Run every cycle that has elapsed on the logic timer (at most
+			 * iMAX_CATCH_UP_TICKS), stopping if the game gets paused or ends.
+             */
+            while (!clkLogicTimer.isPaused() && clkLogicTimer.hasElapsedCycle()) {
+                long lTickStart = System.nanoTime();
+                if (lPendingInput != -1) {
+                    lLastInputLatency = lTickStart - lPendingInput;
+                    lhsInput.record(lLastInputLatency);
+                    lPendingInput = -1;
+                }
+                Direction dirAuto = null;
+                if (bAutopilot && !sneEngine.isNewGame() && !sneEngine.isGameOver()
+                        && !sneEngine.isPaused()) {
+                    if (aplAutopilot == null) {
+                        //se crea hasta que se usa por primera vez
+                        aplAutopilot = new Autopilot(sneEngine.getBoard().getColumns(),
+                                sneEngine.getBoard().getRows());
+                    }
+                    dirAuto = aplAutopilot.nextDirection(sneEngine);
+                }
+                AllocationMeter amtTick = amtMedidor;
+                long lAsignados = amtTick == null ? 0 : AllocationMeter.getAllocatedBytes();
+                sneEngine.step(dirAuto);
+                if (amtTick != null) {
+                    amtTick.addTick(AllocationMeter.getAllocatedBytes() - lAsignados);
+                }
+                lhsTick.record(System.nanoTime() - lTickStart);
             }
+            fAlpha = clkLogicTimer.getAlpha();
 
-            //Repaint the board and side panel with the new content.
-            bpnBoard.repaint();
-            spnSide.repaint();
+            /*
+			 * Repaint the board and side panel only if the game changed since
+			 * the last frame. While the snake is moving the board is also
+			 * repainted every frame, since its head slides between tiles.
+			 * 
+			 * With a canvas the frame is drawn and shown right here, also if
+			 * the window system asked for it.
+             */
+            long lVersion = sneEngine.getVersion();
+            boolean bMoving = !sneEngine.isNewGame() && !sneEngine.isGameOver()
+                    && !sneEngine.isPaused() || bLatencias;
+            if (cnvBoard != null) {
+                if (lVersion != lDrawnVersion || bMoving || cnvBoard.isExposed()) {
+                    bpnBoard.repaintChanges();
+                    cnvBoard.render();
+                    lDrawnVersion = lVersion;
+                }
+            } else {
+                if (lVersion != lDrawnVersion || bMoving) {
+                    bpnBoard.repaintChanges();
+                }
+                if (lVersion != lDrawnVersion) {
+                    spnSide.repaint();
+                    lDrawnVersion = lVersion;
+                }
+            }
 
             /*
-			 * Calculate the delta time between since the start of the frame
-			 * and sleep for the excess time to cap the frame rate. While not
-			 * incredibly accurate, it is sufficient for our purposes.
+			 * Sleep until the next frame is due to cap the frame rate. The
+			 * frames are scheduled on fixed deadlines so a short sleep is
+			 * made up by the next one; after a long stall the schedule starts
+			 * over instead of rendering a burst of frames.
              */
-            long delta = (System.nanoTime() - lStart) / 1000000L;
-            if (delta < lFRAME_TIME) {
+            lNextFrame += lFRAME_TIME;
+            long lRemaining = lNextFrame - System.nanoTime();
+            if (lRemaining > 0) {
                 try {
-                    Thread.sleep(lFRAME_TIME - delta);
+                    Thread.sleep(lRemaining / 1000000L, (int) (lRemaining % 1000000L));
+                    //cuanto se paso el sleep de la hora del frame
+                    lhsSleep.record(System.nanoTime() - lNextFrame);
                 } catch (Exception e) {
                     e.printStackTrace();
                 }
+            } else if (lRemaining < -lFRAME_TIME) {
+                lNextFrame = System.nanoTime();
             }
         }
     }
 
     /**
-     * Updates the game's logic.
+     * Pauses or resumes the game and the background sound, if the game is
+     * not over. Run by the game loop.
      */
-    private void updateGame() {
-        /*
-		 * Gets the type of tile that the head of the snake collided with. If 
-		 * the snake hit a wall, SnakeBody will be returned, as both conditions
-		 * are handled identically.
-         */
-        TileType tltCollision = updateSnake();
-
-        /*
-		 * Here we handle the different possible collisions.
-		 * 
-		 * Fruit: If we collided with a fruit, we increment the number of
-		 * fruits that we've eaten, update the score, and spawn a new fruit.
-		 * 
-		 * SnakeBody: If we collided with our tail (or a wall), we flag that
-		 * the game is over and pause the game.
-		 * 
-		 * If no collision occurred, we simply decrement the number of points
-		 * that the next fruit will give us if it's high enough. This adds a
-		 * bit of skill to the game as collecting fruits more quickly will
-		 * yield a higher score.
-         */
-        if (tltCollision == TileType.Fruit) {
-            //actualiza la informacion de las coisiones
-            iFruitsEaten++;
-            iScore += iNextFruitScore;
-            contadorFruitSnake = 2;
-            
-            //genera la animacion de los colores
-            this.iPosColor = 1;
-            this.iCantidadColor = 2;
-            this.colEspecial = Color.RED;
-           
-            spawnFruit();
-            sClipEat.play();
-        } else if (tltCollision == TileType.Fruit2) {
-            iFruitsEaten++;
-            iScore += iNextFruitScore;
-            contadorFruitSnake = 3;
-            spawnFruit2();
-            //genera la animacion de los colores
-            this.iPosColor = 2;
-            this.iCantidadColor = 3;
-            this.colEspecial = Color.YELLOW;
-            
-            sClipEat.play();
-        } else if (tltCollision == TileType.Fruit3) {
-            iFruitsEaten++;
-            iScore += iNextFruitScore;
-            contadorFruitSnake = 1;
-            spawnFruit3();
-            //genera la animacion de los colores
-            this.iPosColor = 0;
-            this.iCantidadColor = 1;
-            this.colEspecial = Color.ORANGE;
-            
-            sClipEat.play();
-        } 
-        
-        
-        else if (tltCollision == TileType.SnakeBody
-                ||tltCollision==TileType.Venom) {
-            bIsGameOver = true;
-            sClipDead.play();
-            clkLogicTimer.setPaused(true);
-            bPausado = true;
-            this.SClipFondo.stop();
-        } else if (iNextFruitScore > 10) {
-            iNextFruitScore--;
+    private void cambiarPausa() {
+        if (!sneEngine.isGameOver()) {
+            boolean bIsPaused = !sneEngine.isPaused();
+            sneEngine.setPaused(bIsPaused);
+            clkLogicTimer.setPaused(bIsPaused);
+            if(bIsMuteado)
+            {
+            if(bPausado)
+            {
+                SClipFondo.unpause();
+            }
+            else
+            {
+                SClipFondo.pause();
+            }
+            bPausado = !bPausado;
+            }
         }
     }
 
     /**
-     * Updates the snake's position and size.
-     *
-     * @return Tile tile that the head moved into.
+     * Mutes or unmutes the background sound while the game runs. Run by the
+     * game loop.
      */
-    private TileType updateSnake() {
-
-        /*
-		 * Here we peek at the next direction rather than polling it. While
-		 * not game breaking, polling the direction here causes a small bug
-		 * where the snake's direction will change after a game over (though
-		 * it will not move).
-         */
-        Direction dirDirection = lklDirections.peekFirst();
-
-        /*
-		 * Here we calculate the new point that the snake's head will be at
-		 * after the update.
-         */
-        Point pntHead = new Point(lklSnake.peekFirst());
-        switch (dirDirection) {
-            case North:
-                pntHead.y--;
-                break;
-
-            case South:
-                pntHead.y++;
-                break;
-
-            case West:
-                pntHead.x--;
-                break;
-
-            case East:
-                pntHead.x++;
-                break;
-        }
-
-        /*
-		 * If the snake has moved out of bounds ('hit' a wall), we can just
-		 * return that it's collided with itself, as both cases are handled
-		 * identically.
-         */
-        if (pntHead.x < 0 || pntHead.x >= BoardPanel.iCOL_COUNT || pntHead.y < 0 || pntHead.y >= BoardPanel.iROW_COUNT) {
-            return TileType.SnakeBody; //Pretend we collided with our body.
+    private void cambiarMute() {
+        if (!sneEngine.isGameOver() && !sneEngine.isPaused()) {
+        if(bMuteado)
+        {
+        //mutea el sonido cuando el usuario presione la tecla m
+        SClipFondo.stop();
+        bIsMuteado = false;
         }
-
-        /*
-		 * Here we get the tile that was located at the new head position and
-		 * remove the tail from of the snake and the board if the snake is
-		 * long enough, and the tile it moved onto is not a fruit.
-		 * 
-		 * If the tail was removed, we need to retrieve the old tile again
-		 * incase the tile we hit was the tail piece that was just removed
-		 * to prevent a false game over.
-         */
-        if(this.iCantidadColor!=0){
-            for(int iI=0;iI<iCantidadColor;iI++){
-                
-                Point pntP = lklSnake.get(iPosColor-iI);
-                bpnBoard.setColor(pntP.x,pntP.y,colEspecial);
-            
-            }
-            for(int iI=iPosColor-iCantidadColor;iI>=0;iI--){
-                Point pntP = lklSnake.get(iI);
-                bpnBoard.setColor(pntP.x,pntP.y,Color.GREEN);
-            }
-            iPosColor++;
-        }
-        if(iPosColor>=lklSnake.size()){
-            iCantidadColor = 0;
-            for(Point pntP : lklSnake){
-                bpnBoard.setColor(pntP.x,pntP.y,Color.GREEN);
-            }
-        }
-        TileType tltOld = bpnBoard.getTile(pntHead.x, pntHead.y);
-        if (tltOld != TileType.Fruit && tltOld != TileType.Fruit2 && tltOld != TileType.Fruit3
-                && --contadorFruitSnake < 1 && tltOld != TileType.Venom && lklSnake.size() > iMIN_SNAKE_LENGTH) {
-            Point tail = lklSnake.removeLast();
-            bpnBoard.setTile(tail, null);
-            tltOld = bpnBoard.getTile(pntHead.x, pntHead.y);
-            
+        else
+        {
+        //vuelve a correr la musica cuando el usuario vuelva a presionar m
+        SClipFondo.setLooping(true);
+        SClipFondo.play();
+        bIsMuteado = true;
         }
-        /*
-		 * Update the snake's position on the board if we didn't collide with
-		 * our tail:
-		 * 
-		 * 1. Set the old head position to a body tile.
-		 * 2. Add the new head to the snake.
-		 * 3. Set the new head position to a head tile.
-		 * 
-		 * If more than one direction is in the queue, poll it to read new
-		 * input.
-         */
-        if (tltOld != TileType.SnakeBody) {
-            bpnBoard.setTile(lklSnake.peekFirst(), TileType.SnakeBody);
-            lklSnake.push(pntHead);
-            bpnBoard.setTile(pntHead, TileType.SnakeHead);
-            if (lklDirections.size() > 1) {
-                lklDirections.poll();
-            }
+        bMuteado = !bMuteado;
         }
-
-        return tltOld;
     }
 
     /**
@@ -598,70 +555,20 @@ public class SnakeGame extends JFrame {
      */
     private void resetGame() {
         /*
-		 * Reset the score statistics. (Note that nextFruitPoints is reset in
-		 * the spawnFruit function later on).
+		 * Reset the board, the snake and the score.
          */
-        this.iScore = 0;
-        this.iFruitsEaten = 0;
-        
-        /*
-		 * Reset the amount of places the snake will move
-         */
-        this.contadorFruitSnake = 0;
-        /*
-		 * Reset both the new game and game over flags.
-         */
-        this.bIsNewGame = false;
-        this.bIsGameOver = false;
-
-        /*
-		 * Create the head at the center of the board.
-         */
-        Point pntHead = new Point(BoardPanel.iCOL_COUNT / 2, BoardPanel.iROW_COUNT / 2);
-        
-        /*
-		 * Clear the snake list and add the head.
-         */
-        lklSnake.clear();
-        lklSnake.add(pntHead);
-        
-        /*
-		 * Clear the board and add the head.
-         */
-        bpnBoard.clearBoard();
-        bpnBoard.setTile(pntHead, TileType.SnakeHead);
-
-        /*
-		 * Clear the directions and add north as the
-		 * default direction.
-         */
-        lklDirections.clear();
-        lklDirections.add(Direction.North);
+        sneEngine.resetGame();
 
         /*
 		 * Reset the logic timer.
          */
         clkLogicTimer.reset();
 
-        /*
-		 * Spawn a new fruit.
-         */
-        spawnFruit();
-        spawnFruit2();
-        spawnFruit3();
-        spawnBad();
-        
         //restart the sound
         this.bPausado = false;
         this.SClipFondo.setLooping(true);
         this.SClipFondo.play();
-        
-        //reiniciar variables de animacion de color
-        this.iPosColor = 0;
-        this.iCantidadColor = 0;
-        this.colEspecial = Color.GREEN;
-        }
-    
+    }
 
     /**
      * Gets the flag that indicates whether or not we're playing a new game.
@@ -669,7 +576,7 @@ public class SnakeGame extends JFrame {
      * @return The new game flag.
      */
     public boolean isNewGame() {
-        return bIsNewGame;
+        return sneEngine.isNewGame();
     }
 
     /**
@@ -678,7 +585,7 @@ public class SnakeGame extends JFrame {
      * @return The game over flag.
      */
     public boolean isGameOver() {
-        return bIsGameOver;
+        return sneEngine.isGameOver();
     }
 
     /**
@@ -687,192 +594,121 @@ public class SnakeGame extends JFrame {
      * @return The paused flag.
      */
     public boolean isPaused() {
-        return bIsPaused;
+        return sneEngine.isPaused();
     }
 
     /**
-     * Spawns a new fruit onto the board.
+     * Gets the current score.
+     *
+     * @return The score.
      */
-    private void spawnFruit() {
-        //Reset the score for this fruit to 100.
-        this.iNextFruitScore = 100;
-
-        /*
-		 * Get a random index based on the number of free spaces left on the board.
-         */
-        int index = ranRandom.nextInt(BoardPanel.iCOL_COUNT
-                * BoardPanel.iROW_COUNT - lklSnake.size());
-
-        /*
-		 * While we could just as easily choose a random index on the board
-		 * and check it if it's free until we find an empty one, that method
-		 * tends to hang if the snake becomes very large.
-		 * 
-		 * This method simply loops through until it finds the nth free index
-		 * and selects uses that. This means that the game will be able to
-		 * locate an index at a relatively constant rate regardless of the
-		 * size of the snake.
-         */
-        int freeFound = -1;
-        for (int x = 0; x < BoardPanel.iCOL_COUNT; x++) {
-            for (int y = 0; y < BoardPanel.iROW_COUNT; y++) {
-                TileType type = bpnBoard.getTile(x, y);
-                if (type == null || type == TileType.Fruit) {
-                    if (++freeFound == index) {
-                        bpnBoard.setTile(x, y, TileType.Fruit);
-                        break;
-                    }
-                }
-            }
-        }
+    public int getScore() {
+        return sneEngine.getScore();
+    }
 
+    /**
+     * Gets the number of fruits eaten.
+     *
+     * @return The fruits eaten.
+     */
+    public int getFruitsEaten() {
+        return sneEngine.getFruitsEaten();
     }
-    
-        private void spawnFruit2() {
-        //Reset the score for this fruit to 100.
-        this.iNextFruitScore = 100;
 
-        /*
-		 * Get a random index based on the number of free spaces left on the board.
-         */
-        int index = ranRandom.nextInt(BoardPanel.iCOL_COUNT
-                * BoardPanel.iROW_COUNT - lklSnake.size());
+    /**
+     * Gets the next fruit score.
+     *
+     * @return The next fruit score.
+     */
+    public int getNextFruitScore() {
+        return sneEngine.getNextFruitScore();
+    }
 
-        /*
-		 * While we could just as easily choose a random index on the board
-		 * and check it if it's free until we find an empty one, that method
-		 * tends to hang if the snake becomes very large.
-		 * 
-		 * This method simply loops through until it finds the nth free index
-		 * and selects uses that. This means that the game will be able to
-		 * locate an index at a relatively constant rate regardless of the
-		 * size of the snake.
-         */
-        int freeFound = -1;
-        for (int x = 0; x < BoardPanel.iCOL_COUNT; x++) {
-            for (int y = 0; y < BoardPanel.iROW_COUNT; y++) {
-                TileType type = bpnBoard.getTile(x, y);
-                if (type == null || type == TileType.Fruit2) {
-                    if (++freeFound == index) {
-                        bpnBoard.setTile(x, y, TileType.Fruit2);
-                        break;
-                    }
-                }
-            }
-        }
+    /**
+     * Gets the current direction of the snake. The board reads it while it
+     * paints, on the event dispatch thread.
+     *
+     * @return The current direction.
+     */
+    public Direction getDirection() {
+        return sneEngine.getDirection();
+    }
 
+    /**
+     * Gets the time between the capture of a direction key and the tick that
+     * used it, for the last tick that had input.
+     *
+     * @return The latency in nanoseconds.
+     */
+    public long getLastInputLatency() {
+        return lLastInputLatency;
     }
-        
-        private void spawnFruit3() {
-        //Reset the score for this fruit to 100.
-        this.iNextFruitScore = 100;
-        /*
-		 * Get a random index based on the number of free spaces left on the board.
-         */
-        int index = ranRandom.nextInt(BoardPanel.iCOL_COUNT
-                * BoardPanel.iROW_COUNT - lklSnake.size());
-        /*
-		 * While we could just as easily choose a random index on the board
-		 * and check it if it's free until we find an empty one, that method
-		 * tends to hang if the snake becomes very large.
-		 * 
-		 * This method simply loops through until it finds the nth free index
-		 * and selects uses that. This means that the game will be able to
-		 * locate an index at a relatively constant rate regardless of the
-		 * size of the snake.
-         */
-        int freeFound = -1;
-        for (int x = 0; x < BoardPanel.iCOL_COUNT; x++) {
-            for (int y = 0; y < BoardPanel.iROW_COUNT; y++) {
-                TileType type = bpnBoard.getTile(x, y);
-                if (type == null || type == TileType.Fruit3) {
-                    if (++freeFound == index) {
-                        bpnBoard.setTile(x, y, TileType.Fruit3);
-                        break;
-                    }
-                }
-            }
-        }
 
+    /**
+     * Gets the histograms of the tick, frame, sleep overshoot and input
+     * latencies, in that order.
+     *
+     * @return The histograms.
+     */
+    public LatencyHistogram[] getLatencies() {
+        return new LatencyHistogram[]{lhsTick, lhsFrame, lhsSleep, lhsInput};
     }
 
-    public void spawnBad() {
-        //siguiendo la misma logica de las "fruits"
-        //pero ahora en lugar de agregar un tyle del tipo fruit
-        //se agrega un tyle del tipo Venom
-        //ademas se modifica para que se agreguen 3 de estos 
-        //objetos malos
-            /*
-                * Get a random index based on the number of free spaces left on the board.
-             */
-            for(int iI=0;iI<3;iI++){
-            int index = ranRandom.nextInt(BoardPanel.iCOL_COUNT
-                    * BoardPanel.iROW_COUNT - lklSnake.size());
-            int freeFound = -1;
-            for (int x = 0; x < BoardPanel.iCOL_COUNT; x++) {
-                for (int y = 0; y < BoardPanel.iROW_COUNT; y++) {
-                    TileType type = bpnBoard.getTile(x, y);
-                    if (type == null || type == TileType.Venom) {
-                        if (++freeFound == index) {
-                            bpnBoard.setTile(x, y, TileType.Venom);
-                            break;
-                        }
-                    }
-                }
-            }
-            }
+    /**
+     * Gets the histogram the board records the duration of each paint in.
+     *
+     * @return The frame histogram.
+     */
+    public LatencyHistogram getFrameLatency() {
+        return lhsFrame;
     }
 
     /**
-     * Gets the current score.
+     * Gets what counts the bytes allocated by every tick and paint.
      *
-     * @return The score.
+     * @return The meter, or null if allocations are not measured.
      */
-    public int getScore() {
-        return iScore;
+    public AllocationMeter getAllocationMeter() {
+        return amtMedidor;
     }
 
     /**
-     * Gets the number of fruits eaten.
+     * Gets whether the latency percentiles are shown on top of the board.
      *
-     * @return The fruits eaten.
+     * @return The flag.
      */
-    public int getFruitsEaten() {
-        return iFruitsEaten;
+    public boolean isLatencyShown() {
+        return bLatencias;
     }
 
     /**
-     * Gets the next fruit score.
+     * Gets how far the game is between its last tick and the next one, so
+     * the board can draw the snake's head moving between two tiles.
      *
-     * @return The next fruit score.
+     * @return A number between 0 (inclusive) and 1 (exclusive).
      */
-    public int getNextFruitScore() {
-        return iNextFruitScore;
+    public float getAlpha() {
+        return fAlpha;
     }
 
     /**
-     * Gets the current direction of the snake.
+     * Gets the engine that holds the board and the game rules.
      *
-     * @return The current direction.
+     * @return The engine.
      */
-    public Direction getDirection() {
-        return lklDirections.peek();
+    public SnakeEngine getEngine() {
+        return sneEngine;
     }
+
     private String validar(String sEntrada){
-        String sSalida = "";
-        if(sEntrada.length()<20){
-            for(int iI=0;iI<sEntrada.length();iI++){
-                sSalida+=sEntrada.charAt(iI);
-            }
-            for(int iI=sEntrada.length();iI<20;iI++){
-                sSalida+=" ";
-            }
-        }else if(sEntrada.length()>20){
-            for(int iI=0;iI<20;iI++){
-                sSalida += sEntrada.charAt(iI);
-            }
+        //se corta o se rellena con espacios a 20 caracteres, en un solo arreglo
+        char[] chrSalida = new char[20];
+        int iLargo = Math.min(sEntrada.length(), 20);
+        sEntrada.getChars(0, iLargo, chrSalida, 0);
+        for(int iI=iLargo;iI<20;iI++){
+            chrSalida[iI] = ' ';
         }
-        return sSalida;
+        return new String(chrSalida);
     }
     /**
      * Funcion que crea un dialogo de entrada para que el usuario introduzca
@@ -884,7 +720,6 @@ public class SnakeGame extends JFrame {
      * @return 
      */
     public String entradaUsuario(String sFunc){
-        clkLogicTimer.setPaused(true);
         String sUser = (String)JOptionPane.showInputDialog(
                     this,
                     "Enter your username to " +sFunc,
@@ -893,25 +728,46 @@ public class SnakeGame extends JFrame {
                     null,
                     null,
                     "Username");
-        clkLogicTimer.setPaused(false);
         return sUser;
     }
+    /**
+     * Le pide al game loop que detenga el logic timer, mientras se muestran
+     * los dialogos de cargar o guardar
+     */
+    private void detener(){
+        clqComandos.offer(() -> clkLogicTimer.setPaused(true));
+    }
+    /**
+     * Le pide al game loop que vuelva a correr el logic timer despues de los
+     * dialogos, a menos que el juego este pausado o terminado. Como los
+     * comandos se corren en orden, va despues de la carga o el guardado.
+     */
+    private void reanudar(){
+        clqComandos.offer(() -> {
+            clkLogicTimer.setPaused(false);
+            //para no tener problemas con el estado de pause del clock
+            if(sneEngine.isPaused()||sneEngine.isGameOver()){
+                clkLogicTimer.setPaused(true);
+                SClipFondo.pause();
+                this.bPausado=true;
+            }
+        });
+    }
     /**
      * muestra un mensaje de error en caso de que el usuario que se introdujo
      * no se encontrara al momento de intentar cargarlo
      */
     public void userNotFound(){
         
-            clkLogicTimer.setPaused(true);
             JOptionPane.showMessageDialog(this, "User Not Found");
-            clkLogicTimer.setPaused(false);
     }
     /**
      * Funcion que toma un string de usuario pasada a un formato valido
      * y lo busca en el archivo de usuarios
      * 
-     * si lo encuentra regresa un long que es el offset de donde está almacenado
-     * el estdo del juego del usuario en el archivo de save's
+     * si lo encuentra regresa la posicion en users.dat del long con el offset
+     * de donde está almacenado el estdo del juego del usuario en el archivo
+     * de save's, y deja el archivo en esa posicion
      * 
      * 
      * @param sValida
@@ -921,16 +777,24 @@ public class SnakeGame extends JFrame {
      */
     public long buscarUsuario(String sValida,RandomAccessFile rafEntrada)
     throws IOException{
+        //evento de JFR con los usuarios y bytes leidos
+        Object objBusqueda = GameEvents.gtrTRACER.beginUserLookup();
+        long lInicio = rafEntrada.getFilePointer();
+        int iUsuarios = 0;
+        boolean bEncontrado = false;
+        try{
         while(rafEntrada.getFilePointer()<rafEntrada.length()){
-                String sGuardado = "";
+                boolean bIgual = true;
                 for(int iI=0;iI<20;iI++){
-                    //Se lee un usuario guardado
-                    sGuardado+=rafEntrada.readChar(); 
+                    //Se lee un usuario guardado y se compara sin armar un String
+                    bIgual &= rafEntrada.readChar() == sValida.charAt(iI);
                 }
-                if(sGuardado.equals(sValida)){ 
+                iUsuarios++;
+                if(bIgual){ 
                     //se comprueba si el usuario leido es igual al que se busca
-                    //de ser asi se regresa el offset
-                    return rafEntrada.readLong();
+                    //de ser asi se regresa la posicion de su offset
+                    bEncontrado = true;
+                    return rafEntrada.getFilePointer();
                 }else{
                     // si no, se lee el offset del usuario leido y se continua
                     //con la busqueda
@@ -938,6 +802,12 @@ public class SnakeGame extends JFrame {
                 }
             }
         return -1; //si no se encuentra el usuario se regresa un -1
+        }finally{
+            if(objBusqueda != null){
+                GameEvents.gtrTRACER.commitUserLookup(objBusqueda, iUsuarios,
+                        bEncontrado, rafEntrada.getFilePointer() - lInicio);
+            }
+        }
     }
     /**
      * Funcion general de cargar, toma las entradas de usuario para localizar
@@ -945,11 +815,12 @@ public class SnakeGame extends JFrame {
      * este usuario
      */
     public void Cargar(){
-        if(bIsNewGame){
-            clkLogicTimer.setPaused(true);
+        if(sneEngine.isNewGame()){
             JOptionPane.showMessageDialog(this, "The game must be running");
             
         }else{
+        //el juego se detiene con el dialogo y sigue hasta que se cargue
+        detener();
         //obtener el nombre de usuario
         String sUser = entradaUsuario("Load");
         if(sUser != null){
@@ -959,12 +830,15 @@ public class SnakeGame extends JFrame {
             RandomAccessFile rafEntrada;
             rafEntrada = new RandomAccessFile("users.dat","rw");
             //buscar en el archivo users.dat el usuario en cuestion
-            long offset = buscarUsuario(sValida,rafEntrada);
-            if(offset == -1){
+            long lPuntero = buscarUsuario(sValida,rafEntrada);
+            //un usuario con offset -1 aun no tiene un save completo
+            long offset = lPuntero == -1 ? -1 : rafEntrada.readLong();
+            if(offset < 0){
              userNotFound();//si no se encuentra informarlo al jugador
             }else
             {
-                Cargar(offset);//si lo encontró entonces cargar el juego
+                //si lo encontró entonces el game loop carga el juego
+                clqComandos.offer(() -> Cargar(offset));
             }
             
             rafEntrada.close();
@@ -972,12 +846,7 @@ public class SnakeGame extends JFrame {
             System.out.println(e);
         }
         }
-        //para no tener problemas con el estado de pause del clock
-        if(bIsPaused||bIsGameOver){
-                clkLogicTimer.setPaused(true);
-                SClipFondo.pause();
-                this.bPausado=true;
-        }
+        reanudar();
         }
     }
     /**
@@ -989,42 +858,39 @@ public class SnakeGame extends JFrame {
      * 
      */
     public void Guardar(){
-        if(bIsNewGame){
-            clkLogicTimer.setPaused(true);
+        if(sneEngine.isNewGame()){
             JOptionPane.showMessageDialog(this, "The game must be running");
             
         }else{
+        //el juego se detiene con el dialogo y sigue hasta que se guarde
+        detener();
         String sUser = entradaUsuario("Save"); //obtener el nombre de usuario
         if(sUser != null){
         String sValida = validar(sUser); //pasarlo a una forma válida
         RandomAccessFile rafSalida;
         try{
             rafSalida = new RandomAccessFile("users.dat","rw");
-            if(rafSalida.length()==0){ //si el archivo está vacio insertar el usuario directamente
-                for(int iI=0;iI<20;iI++){
-                    rafSalida.writeChar(sValida.charAt(iI));
-                }
-                rafSalida.writeLong(0);
-                Guardar(0);
-            }else{//si el archivo no esta vacio buscar el usuario para ver si existe
-                long offset = buscarUsuario(sValida,rafSalida);
-                if(offset == -1){//si no existe se crea un nuevo registro
-                    nuevoRegistro(rafSalida,sValida);
-                }else{
-                    //si ya existe entonces se pregunta si se quiere
-                    //sobre escribir los datos
-                    clkLogicTimer.setPaused(true);
-                    int n = JOptionPane.showConfirmDialog(
-                            this,
-                            "Would you like to overwrite this user?",
-                            "r u sure?",
-                            JOptionPane.YES_NO_OPTION);
-                     
-                      clkLogicTimer.setPaused(false);
-                      if(n==0){
-                            Guardar(offset); //se guarda en el archivo de datos
-                      }
-                }
+            //buscar el usuario para ver si existe
+            long lBusqueda = buscarUsuario(sValida,rafSalida);
+            if(lBusqueda == -1){//si no existe se crea un nuevo registro
+                long lPuntero = nuevoRegistro(rafSalida,sValida);
+                clqComandos.offer(() -> Guardar(lPuntero, -1));
+            }else{
+                //posicion del offset del usuario en users.dat
+                long lPuntero = lBusqueda;
+                long offset = rafSalida.readLong();
+                //si ya existe entonces se pregunta si se quiere
+                //sobre escribir los datos
+                int n = JOptionPane.showConfirmDialog(
+                        this,
+                        "Would you like to overwrite this user?",
+                        "r u sure?",
+                        JOptionPane.YES_NO_OPTION);
+                 
+                  if(n==0){
+                        //se guarda en el archivo de datos, en el game loop
+                        clqComandos.offer(() -> Guardar(lPuntero, offset));
+                  }
             }
             
             rafSalida.close();
@@ -1032,229 +898,152 @@ public class SnakeGame extends JFrame {
             System.out.println(e);
         }
     }
-        if(bIsPaused||bIsGameOver){ //para evitar que la snake siga caminando
-                clkLogicTimer.setPaused(true);
-                SClipFondo.pause();
-                this.bPausado=true;
-            }
+        reanudar(); //para evitar que la snake siga caminando
     }
     }
     /**
      * toma un usuario que aún no esta registrado en el archivo users.dat
-     * y lo inserta, calcula el offset que este usuario tiene en el archivo
-     * datos.dat para futuros save's
+     * y lo inserta al final, con un offset de -1 hasta que se guarde su
+     * partida en datos.dat
      * 
      * @param rafSalida
      * @param sValida
+     * @return la posicion del offset del usuario en users.dat
      * @throws IOException 
      */
-    public void nuevoRegistro(RandomAccessFile rafSalida, String sValida)
+    public long nuevoRegistro(RandomAccessFile rafSalida, String sValida)
             throws IOException{
-        long offset;
+        rafSalida.seek(rafSalida.length());
         for(int iI=0;iI<20;iI++){
-                        rafSalida.writeChar(sValida.charAt(iI));
-                    }
-                    //Se obtiene la cantidad de usuarios registrados hasta el momento
-                    int cantidad = (int) rafSalida.length()/48; 
-                    //el offset es la cantidad de usuarios por el tamaño de registro de cada save en datos.dat
-                    offset = 10027*cantidad;
-                    rafSalida.writeLong(offset);
-                    Guardar(offset);
+            rafSalida.writeChar(sValida.charAt(iI));
+        }
+        long lPuntero = rafSalida.getFilePointer();
+        rafSalida.writeLong(-1);
+        return lPuntero;
     }
     /**
      * Funcion de guardar
      * toma el estado actual del juego y lo guarda en un archivo de acceso
-     * aelatorio para poder cargarlo después
+     * aelatorio para poder cargarlo después, la corre el game loop.
+     * 
+     * Cada save en datos.dat empieza con un int con los bytes que tiene
+     * reservados. Si el registro actual cabe se escribe sobre el save
+     * anterior del usuario, si no se agrega al final del archivo y se
+     * actualiza el offset del usuario en users.dat.
+     * 
+     * @param lPuntero la posicion del offset del usuario en users.dat
+     * @param offset el offset del save anterior del usuario, o -1
      */
-    public void Guardar(long offset){
-        try{
-        RandomAccessFile rafSalida;
-        rafSalida = new RandomAccessFile("datos.dat","rw");
-        rafSalida.seek(offset);
-        //almacenar las variables del funcionamiento del juego
-        rafSalida.writeInt(iScore);
-        rafSalida.writeInt(iFruitsEaten);
-        rafSalida.writeInt(iNextFruitScore);
-        rafSalida.writeBoolean(bIsNewGame);
-        rafSalida.writeBoolean(bIsPaused);
-        rafSalida.writeBoolean(bIsGameOver);
-        //se guarda la snake como tal en el archivo
-        guardarSnake(rafSalida);
-        //almacenar las direcciones de la snake
-       guardarDirecciones(rafSalida);
-        //almacenar el tablero
-        guardarTablero(rafSalida);
-        
-        rafSalida.close();
+    public void Guardar(long lPuntero, long offset){
+        //evento de JFR con los bytes escritos
+        Object objGuardar = GameEvents.gtrTRACER.beginSave();
+        long lBytes = 0;
+        long lOffset = offset;
+        try(RandomAccessFile rafSalida = new RandomAccessFile("datos.dat","rw")){
+        long lLargo = sneEngine.getRecordSize();
+        int iReservado = 0;
+        if(lOffset >= 0 && lOffset + 4 <= rafSalida.length()){
+            rafSalida.seek(lOffset);
+            iReservado = rafSalida.readInt();
+        }
+        if(iReservado < lLargo){
+            //no cabe en el save anterior, se agrega al final
+            lOffset = rafSalida.length();
+            iReservado = (int) lLargo;
+        }
+        //se escribe por un buffer para no hacer una llamada al sistema por
+        //cada int, el canal queda en la posicion del save
+        rafSalida.getChannel().position(lOffset);
+        try(DataOutputStream dotSalida = new DataOutputStream(new BufferedOutputStream(
+                Channels.newOutputStream(rafSalida.getChannel())))){
+            dotSalida.writeInt(iReservado);
+            //almacenar el estado del juego
+            sneEngine.guardarEstado(dotSalida);
+            dotSalida.flush();
+            lBytes = dotSalida.size();
+        }
+        if(lOffset != offset){
+            //el usuario apunta a su nuevo save
+            RandomAccessFile rafUsuarios = new RandomAccessFile("users.dat","rw");
+            rafUsuarios.seek(lPuntero);
+            rafUsuarios.writeLong(lOffset);
+            rafUsuarios.close();
+        }
         }catch(Exception e){
             System.out.println("guardar: "+e);
         }
+        if(objGuardar != null){
+            GameEvents.gtrTRACER.commitSave(objGuardar, sneEngine.getTicks(),
+                    sneEngine.getSnakeLength(), lOffset, lBytes);
+        }
     }
-    /*
-    Funcion que almacena la snake en el archivo de salida
-    rellena tantos valores dummy como sea necesario para mantener un
-    tamaño de registro fijo entre los usuarios
-    */
-    public void guardarSnake(RandomAccessFile rafSalida)throws IOException{
-         //almacenar las coordenadas de la snake
-        rafSalida.writeInt(lklSnake.size());
-        for(int iC=0;iC<lklSnake.size();iC++){
-            rafSalida.writeInt(lklSnake.get(iC).x);
-            rafSalida.writeInt(lklSnake.get(iC).y);
+    /**
+     * Escribe la grabacion de la partida que acaba de terminar en el archivo
+     * replay.dat, para poder comprobar el score con GameReplayer.
+     * Las partidas que se cargaron de un save no se pueden repetir y no se
+     * escriben.
+     */
+    public void guardarReplay(){
+        if(!grcRecorder.isValid()){
+            return;
         }
-        /*
-        se agregan valores dummy, esto tiene como objetivo que los "registros"
-        entre todos los usuarios tengan exactamente la misma cantidad de bytes
-        */
-        for(int iC = lklSnake.size(); iC 
-                < bpnBoard.iCOL_COUNT*bpnBoard.iROW_COUNT;iC++){
-            rafSalida.writeInt(-1); 
-            rafSalida.writeInt(-1);
+        try(DataOutputStream dotSalida = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream("replay.dat")))){
+            grcRecorder.writeTo(dotSalida, sneEngine.getTicks(), sneEngine.getScore());
+        }catch(IOException e){
+            System.out.println("replay: "+e);
         }
     }
-    /*
-    Funcion guardarDirecciones, funciona idem a guardar Snake
-    */
-    public void guardarDirecciones(RandomAccessFile rafSalida)throws IOException{
-        //guardar direcciones de la snake
-         rafSalida.writeInt(lklDirections.size());
-        for(int iC=0;iC<lklDirections.size();iC++){
-            Direction dirTemp = lklDirections.get(iC);
-            switch(dirTemp){//se traduce cada direccion a un integer
-                case North:
-                    rafSalida.writeInt(1);
-                    break;
-                case South:
-                    rafSalida.writeInt(2);
-                    break;
-                case East:
-                    rafSalida.writeInt(3);
-                    break;
-                case West:
-                    rafSalida.writeInt(4);
-                    break;     
+    /**
+     * Escribe los percentiles y los buckets de cada histograma de latencias
+     * en el archivo latency.txt. Se llama al salir del juego.
+     */
+    public void guardarLatencias(){
+        try(PrintWriter pwrSalida = new PrintWriter(new FileWriter("latency.txt"))){
+            for(LatencyHistogram lhsLatencia : getLatencies()){
+                lhsLatencia.writeTo(pwrSalida);
             }
-        }
-        for(int iC = lklDirections.size(); iC //llenamos de valores dummy
-                < bpnBoard.iCOL_COUNT*bpnBoard.iROW_COUNT;iC++){
-            rafSalida.writeInt(-1); //esto tiene como objetivo mantener una
-        }//cantidad fija de bytes por guardado, para facilitar las cosas
-    }
-    /*
-    Funcion tablero, toma una representacion de integers del tablero
-    y lo guarda en el archivo de salida
-    */
-    public void guardarTablero(RandomAccessFile rafSalida)throws IOException{
-        //se guarda el tablero actual traducido a un arreglo de enteros
-        int iarrTablero[] = bpnBoard.getTablero();
-        rafSalida.writeInt(iarrTablero.length);
-        for(int iC=0;iC<iarrTablero.length;iC++){
-            rafSalida.writeInt(iarrTablero[iC]);
+        }catch(IOException e){
+            System.out.println("latencias: "+e);
         }
     }
     /**
      * Funcion de cargar:
-     * Toma el archivo de guardado y lo carga en el estado actual del juego
-     * 
+     * Toma el archivo de guardado y lo carga en el estado actual del juego,
+     * la corre el game loop
      */
     public void Cargar(long offset){
-        this.resetGame();//se reinicia el juego para evitar bugs raros
-        RandomAccessFile rafEntrada;
-        try{
-            //abrir el archivo de entrada
-            rafEntrada = new RandomAccessFile("datos.dat","rw");
-            //moverse hasta el registro especificado
-            rafEntrada.seek(offset);
-        //primero se cargan las variables de estado
-        this.iScore = rafEntrada.readInt();
-        this.iFruitsEaten = rafEntrada.readInt();
-        this.iNextFruitScore = rafEntrada.readInt();
-        this.bIsNewGame = rafEntrada.readBoolean();
-        this.bIsPaused = rafEntrada.readBoolean();
-        this.bIsGameOver = rafEntrada.readBoolean();
-        //cargar la snake del registro
-        cargarSnake(rafEntrada);
-        //se cargan las direcciones almacenadas hasta ahora
-        cargarDirecciones(rafEntrada);
-        //se carga el tablero del registro
-        cargarTablero(rafEntrada);
-        rafEntrada.close();//cerrar el archivo de entrada
+        //evento de JFR con los bytes leidos
+        Object objCargar = GameEvents.gtrTRACER.beginLoad();
+        long lBytes = 0;
+        //abrir el archivo de entrada, se lee por un buffer para no hacer una
+        //llamada al sistema por cada int
+        try(RandomAccessFile rafEntrada = new RandomAccessFile("datos.dat","r");
+            DataInputStream dinEntrada = new DataInputStream(new BufferedInputStream(
+                    Channels.newInputStream(rafEntrada.getChannel())))){
+            //moverse hasta el registro especificado, despues de los bytes
+            //que tiene reservados
+            rafEntrada.getChannel().position(offset + 4);
+        //cargar el estado del juego (el engine se reinicia antes de leerlo)
+        sneEngine.cargarEstado(dinEntrada);
+        lBytes = 4 + sneEngine.getRecordSize();
         }catch(Exception e){
             System.out.println(e);
         }
-        
-    }
-    /*
-    Para modularizar se carga la snake en una funcion separada
-    descarta los valores dummy almacenados en el registro
-    */
-    public void cargarSnake(RandomAccessFile rafEntrada)throws IOException{
-          //cargar la serpiente
-        lklSnake.clear();
-        int iElementos = rafEntrada.readInt();
-        for(int iC=0;iC<iElementos;iC++){
-            int iX = rafEntrada.readInt();
-            int iY = rafEntrada.readInt();
-            Point pntTemp = new Point(iX,iY);
-            lklSnake.add(pntTemp);
-        }
-        //se leen los valores dummy almacenados, estos no se usan para nada
-        //son solo relleno
-        for(int iC = iElementos;iC<bpnBoard.iCOL_COUNT*bpnBoard.iROW_COUNT;iC++){
-            int iDummy = rafEntrada.readInt();
-            iDummy = rafEntrada.readInt();
+        if(objCargar != null){
+            GameEvents.gtrTRACER.commitLoad(objCargar, sneEngine.getTicks(),
+                    sneEngine.getSnakeLength(), offset, lBytes);
         }
-    }
-    /*
-    la funcion de cargar direcciones funciona IDEM a cargar snake
-    tambien se deshace de valores dummy
-    */
-    public void cargarDirecciones(RandomAccessFile rafEntrada)throws IOException{
-        //cargar las direcciones
-        int iElementos;
-        iElementos = rafEntrada.readInt();
-        lklDirections.clear();
-        for(int iC=0;iC<iElementos;iC++){
-            int iDireccion = rafEntrada.readInt();
-            switch(iDireccion){
-                case 1:
-                    lklDirections.add(Direction.North);
-                    break;
-                case 2:
-                    lklDirections.add(Direction.South);
-                    break;
-                case 3:
-                    lklDirections.add(Direction.East);
-                    break;
-                case 4:
-                    lklDirections.add(Direction.West);
-                    break;
-            }
+        //el autopilot solo sirve para el tamaño de tablero que tenia
+        if(aplAutopilot != null && !aplAutopilot.fitsBoard(sneEngine.getBoard())){
+            aplAutopilot = null;
         }
-        //se leen los valores dummy, son solo relleno
-        for(int iC = iElementos;iC<bpnBoard.iCOL_COUNT*bpnBoard.iROW_COUNT;iC++){
-            int iDummy = rafEntrada.readInt();
-        }
-    }
-    /*
-    Se carga el tablero del registro, para esto se lee una serie de ints
-    que representan al tablero y se guardan en un arreglo de ints
-    */
-    public void cargarTablero(RandomAccessFile rafEntrada)throws IOException{
-        int iElementos;
-        //cargar el tablero 
-        iElementos = rafEntrada.readInt();
-        int iArrTablero[] = new int[iElementos];
-        for(int iC=0;iC<iElementos;iC++){
-            iArrTablero[iC] = rafEntrada.readInt();
-        }
-        
-        bpnBoard.setTablero(iArrTablero);
-        //se reinicia el logic timer,
-        //esto está aqui para no pasarse de las 25 lineas......
+        //se reinicia el logic timer y el sonido
         clkLogicTimer.reset();
-        ;
-        if(bIsPaused||bIsGameOver){
+        this.bPausado = false;
+        this.SClipFondo.setLooping(true);
+        this.SClipFondo.play();
+        if(sneEngine.isPaused()||sneEngine.isGameOver()){
             clkLogicTimer.setPaused(true);
             SClipFondo.pause();
             this.bPausado=true;
@@ -1263,10 +1052,41 @@ public class SnakeGame extends JFrame {
     /**
      * Entry point of the program.
      *
-     * @param args Unused.
+     * @param args Optionally the number of columns and rows of the board,
+     * for example {@code 41 31}, and {@code -active} to draw from the game
+     * loop with triple buffering ({@code -active2} for double buffering)
+     * instead of through Swing, and {@code -alloc} to print the bytes
+     * allocated per tick and per paint every few seconds. The flags go after
+     * the numbers. The board is 25x25 by default.
      */
     public static void main(String[] args) {
-        SnakeGame sngSnake = new SnakeGame();
+        int iColumns = GameBoard.iDEFAULT_COL_COUNT;
+        int iRows = GameBoard.iDEFAULT_ROW_COUNT;
+        int iBuffers = 0;
+        boolean bAsignaciones = false;
+        int iNumeros = args.length;
+        while (iNumeros >= 1 && args[iNumeros - 1].startsWith("-")) {
+            String sFlag = args[--iNumeros];
+            if (sFlag.equals("-alloc")) {
+                bAsignaciones = true;
+            } else if (sFlag.startsWith("-active")) {
+                iBuffers = sFlag.equals("-active2") ? 2 : 3;
+            }
+        }
+        if (iNumeros >= 2) {
+            iColumns = Integer.parseInt(args[0]);
+            iRows = Integer.parseInt(args[1]);
+        }
+        SnakeGame sngSnake = new SnakeGame(iColumns, iRows, iBuffers);
+        if (bAsignaciones) {
+            if (AllocationMeter.isAvailable()) {
+                AllocationMeter amtMedidor = new AllocationMeter(lALLOCATION_REPORT);
+                amtMedidor.start();
+                sngSnake.amtMedidor = amtMedidor;
+            } else {
+                System.out.println("This JVM does not count allocations, -alloc is ignored");
+            }
+        }
         sngSnake.startGame();
     }
 
@@ -0,0 +1,19 @@
+
+/**
+ * The {@code SnakePolicy} interface decides where the snake goes when nobody
+ * is pressing keys, for example in the batch simulator or the autopilot.
+ *
+ * @author Brendan Jones
+ *
+ */
+public interface SnakePolicy {
+
+    /**
+     * Chooses the direction to give the engine before its next tick.
+     *
+     * @param sneEngine The engine, in the state before the tick.
+     * @return The direction, or null to keep the current one.
+     */
+    Direction nextDirection(SnakeEngine sneEngine);
+
+}
@@ -0,0 +1,146 @@
+
+/**
+ * The {@code SnakeRing} class stores the cells of the snake in a circular
+ * {@code int} array. Each cell is packed as {@code y * columns + x}. Adding
+ * a new head, removing the tail and reading any segment are all O(1) and
+ * never allocate, so moving the snake does not create garbage.
+ *
+ * Index 0 is always the head and {@code size() - 1} the tail. The array
+ * doubles when the snake outgrows it, so the memory used follows the length
+ * of the snake instead of the size of the board.
+ *
+ * @author Brendan Jones
+ *
+ */
+public class SnakeRing {
+
+    /**
+     * The packed cells. The length is a power of two so that indexes can be
+     * wrapped with a mask.
+     */
+    private int[] iCells;
+
+    /**
+     * {@code iCells.length - 1}.
+     */
+    private int iMask;
+
+    /**
+     * The slot that holds the head of the snake.
+     */
+    private int iHead;
+
+    /**
+     * The number of cells in the snake.
+     */
+    private int iSize;
+
+    /**
+     * Creates a new, empty SnakeRing.
+     *
+     * @param iCapacity The number of cells to make room for before the array
+     * has to grow.
+     */
+    public SnakeRing(int iCapacity) {
+        int iLength = 1;
+        while (iLength < iCapacity) {
+            iLength <<= 1;
+        }
+        this.iCells = new int[iLength];
+        this.iMask = iLength - 1;
+    }
+
+    /**
+     * Removes every cell from the snake.
+     */
+    public void clear() {
+        this.iHead = 0;
+        this.iSize = 0;
+    }
+
+    /**
+     * Gets the number of cells in the snake.
+     *
+     * @return The size.
+     */
+    public int size() {
+        return iSize;
+    }
+
+    /**
+     * Adds a new head to the snake.
+     *
+     * @param iCell The packed cell of the new head.
+     */
+    public void pushHead(int iCell) {
+        if (iSize == iCells.length) {
+            grow();
+        }
+        iHead = (iHead - 1) & iMask;
+        iCells[iHead] = iCell;
+        iSize++;
+    }
+
+    /**
+     * Adds a cell after the current tail. Used when the snake is rebuilt
+     * from head to tail (loading a saved game).
+     *
+     * @param iCell The packed cell of the new tail.
+     */
+    public void addTail(int iCell) {
+        if (iSize == iCells.length) {
+            grow();
+        }
+        iCells[(iHead + iSize) & iMask] = iCell;
+        iSize++;
+    }
+
+    /**
+     * Doubles the size of the array, moving the head back to slot 0.
+     */
+    private void grow() {
+        int[] iNew = new int[iCells.length << 1];
+        for (int iI = 0; iI < iSize; iI++) {
+            iNew[iI] = iCells[(iHead + iI) & iMask];
+        }
+        this.iCells = iNew;
+        this.iMask = iNew.length - 1;
+        this.iHead = 0;
+    }
+
+    /**
+     * Removes the tail of the snake.
+     *
+     * @return The packed cell the tail was on.
+     */
+    public int popTail() {
+        if (iSize == 0) {
+            throw new IllegalStateException("The snake is empty");
+        }
+        iSize--;
+        return iCells[(iHead + iSize) & iMask];
+    }
+
+    /**
+     * Gets the head of the snake.
+     *
+     * @return The packed cell of the head.
+     */
+    public int peekHead() {
+        return get(0);
+    }
+
+    /**
+     * Gets a segment of the snake.
+     *
+     * @param iIndex The segment, 0 being the head.
+     * @return The packed cell of the segment.
+     */
+    public int get(int iIndex) {
+        if (iIndex < 0 || iIndex >= iSize) {
+            throw new IndexOutOfBoundsException("Index: " + iIndex + ", Size: " + iSize);
+        }
+        return iCells[(iHead + iIndex) & iMask];
+    }
+
+}
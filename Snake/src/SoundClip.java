@@ -113,12 +113,19 @@ public class SoundClip {
         if (!isLoaded()) 
             return;
 
+        //evento de JFR, para ver si la linea de audio tarda en arrancar
+        Object objPlay = GameEvents.gtrTRACER.beginSoundPlay();
+
         clip.setFramePosition(0);
 
         if (looping) 
             clip.loop(Clip.LOOP_CONTINUOUSLY);
         else 
             clip.loop(repeat);
+
+        if (objPlay != null) {
+            GameEvents.gtrTRACER.commitSoundPlay(objPlay, filename, looping);
+        }
     }
     
     public void stop() { 
@@ -0,0 +1,445 @@
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code SpectatorServer} class streams one game to any number of
+ * viewers, for example a tournament match. The game is played on the
+ * server by a {@code SnakePolicy}; the viewers only receive frames, in the
+ * same format a {@code GameServer} sends (see {@code GameProtocol}), and
+ * whatever they send is ignored.
+ *
+ * Each tick is encoded only once, into a direct buffer shared by every
+ * viewer: a viewer is handed a read-only {@code duplicate()} of it, so it
+ * costs a few bytes of bookkeeping and no copy of the frame. The buffers
+ * are used in turns, and a frame stays valid for {@code iSLOTS} ticks. A
+ * viewer still writing its previous frame when a new one is ready skips
+ * frames until it can be sent a keyframe, and one that does not finish a
+ * frame before its buffer is reused is disconnected.
+ *
+ * A single thread accepts the viewers, plays the game and writes the
+ * frames.
+ *
+ * @author Brendan Jones
+ *
+ */
+public class SpectatorServer {
+
+    /**
+     * The default port.
+     */
+    public static final int iDEFAULT_PORT = 7778;
+
+    /**
+     * How many frame buffers are used in turns, which is also how many
+     * ticks a viewer may take to receive a frame before it is disconnected.
+     */
+    private static final int iSLOTS = 16;
+
+    /**
+     * The ticks between two keyframes sent to every viewer.
+     */
+    private static final long lKEYFRAME_INTERVAL = 90;
+
+    /**
+     * How long the loop waits in {@code select} at most, in milliseconds.
+     */
+    private static final long lSELECT_TIMEOUT = 5;
+
+    //configuracion del servidor
+    private final int iPort;
+    private final SnakeEngine sneEngine;
+    private final SnakePolicy splPolicy;
+
+    /**
+     * The frame buffers, written by the loop.
+     */
+    private final ByteBuffer[] bbfSlots = new ByteBuffer[iSLOTS];
+
+    /**
+     * A read-only view of each frame buffer, the one handed to viewers.
+     */
+    private final ByteBuffer[] bbfVistas = new ByteBuffer[iSLOTS];
+
+    private final List<Viewer> lstViewers = new ArrayList<>();
+
+    /**
+     * Whether a viewer is waiting for a keyframe, so the next tick encodes
+     * one besides its delta.
+     */
+    private boolean bWantKeyframe;
+
+    //ticks del servidor, que no vuelven a 0 con cada partida, y el ultimo
+    //keyframe enviado a todos
+    private long lTick;
+    private long lKeyframeTick;
+
+    //contadores, solo para el reporte
+    private final AtomicLong alnViewers = new AtomicLong();
+    private final AtomicLong alnFrames = new AtomicLong();
+    private final AtomicLong alnEncoded = new AtomicLong();
+    private final AtomicLong alnSkipped = new AtomicLong();
+    private final AtomicLong alnDropped = new AtomicLong();
+
+    private Selector selSelector;
+    private volatile boolean bRunning;
+
+    /**
+     * Creates a new SpectatorServer.
+     *
+     * @param iPort The port to listen on.
+     * @param iColumns The number of columns of the board.
+     * @param iRows The number of rows of the board.
+     * @param splPolicy What plays the game.
+     */
+    public SpectatorServer(int iPort, int iColumns, int iRows, SnakePolicy splPolicy) {
+        this.iPort = iPort;
+        this.sneEngine = new SnakeEngine(iColumns, iRows);
+        this.splPolicy = splPolicy;
+        sneEngine.getBoard().setTrackChanges(true);
+
+        //un keyframe y un delta por tick; un delta mas grande se manda como keyframe
+        int iTiles = iColumns * iRows;
+        int iSize = GameProtocol.getStateFrameSize(iColumns, iRows)
+                + GameProtocol.getMaxDeltaFrameSize(iTiles / 8);
+        for (int iI = 0; iI < iSLOTS; iI++) {
+            bbfSlots[iI] = ByteBuffer.allocateDirect(iSize);
+            bbfVistas[iI] = bbfSlots[iI].asReadOnlyBuffer();
+        }
+    }
+
+    /**
+     * A connected viewer. Only used by the loop.
+     */
+    private static class Viewer {
+
+        private final SocketChannel scnChannel;
+        private final SelectionKey slkKey;
+
+        /**
+         * The position of this viewer in the list.
+         */
+        private int iIndex;
+
+        /**
+         * The frame being written, a view of a shared buffer, or null.
+         */
+        private ByteBuffer bbfPending;
+
+        /**
+         * The tick the pending frame was encoded in.
+         */
+        private long lPendingTick;
+
+        /**
+         * Whether the viewer has every frame since its last keyframe, so it
+         * can be sent a delta.
+         */
+        private boolean bSynced;
+
+        Viewer(SocketChannel scnChannel, SelectionKey slkKey) {
+            this.scnChannel = scnChannel;
+            this.slkKey = slkKey;
+        }
+
+        /**
+         * Writes as much of the pending frame as the channel takes, and asks
+         * the selector for a write event if anything is left.
+         */
+        void flush() throws IOException {
+            scnChannel.write(bbfPending);
+            int iInterest = bbfPending.hasRemaining()
+                    ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+            if (slkKey.interestOps() != iInterest) {
+                slkKey.interestOps(iInterest);
+            }
+        }
+    }
+
+    /**
+     * Accepts viewers and plays the game on the calling thread until
+     * {@code stop} is called.
+     *
+     * @throws IOException If the port could not be opened.
+     */
+    public void run() throws IOException {
+        selSelector = Selector.open();
+        ServerSocketChannel sscServer = ServerSocketChannel.open();
+        sscServer.bind(new InetSocketAddress(iPort), 1024);
+        sscServer.configureBlocking(false);
+        sscServer.register(selSelector, SelectionKey.OP_ACCEPT);
+        ByteBuffer bbfDescarte = ByteBuffer.allocate(256);
+        Clock clkTicks = new Clock(GameServer.fTICKS_PER_SECOND);
+        sneEngine.resetGame();
+        bRunning = true;
+        try {
+            while (bRunning) {
+                selSelector.select(lSELECT_TIMEOUT);
+                Iterator<SelectionKey> itrKeys = selSelector.selectedKeys().iterator();
+                while (itrKeys.hasNext()) {
+                    SelectionKey slkKey = itrKeys.next();
+                    itrKeys.remove();
+                    if (slkKey.isAcceptable()) {
+                        accept(sscServer);
+                    } else {
+                        handle(slkKey, bbfDescarte);
+                    }
+                }
+
+                clkTicks.update();
+                while (clkTicks.hasElapsedCycle()) {
+                    tick();
+                }
+            }
+        } finally {
+            for (Viewer vwrViewer : new ArrayList<>(lstViewers)) {
+                close(vwrViewer);
+            }
+            sscServer.close();
+            selSelector.close();
+        }
+    }
+
+    /**
+     * Stops the server.
+     */
+    public void stop() {
+        bRunning = false;
+        if (selSelector != null) {
+            selSelector.wakeup();
+        }
+    }
+
+    /**
+     * Gets the number of viewers connected right now.
+     *
+     * @return The number of viewers.
+     */
+    public long getViewerCount() {
+        return alnViewers.get();
+    }
+
+    /**
+     * Gets the number of frames handed to viewers so far.
+     *
+     * @return The number of frames.
+     */
+    public long getFramesSent() {
+        return alnFrames.get();
+    }
+
+    /**
+     * Gets the number of frames encoded so far, at most two per tick.
+     *
+     * @return The number of frames.
+     */
+    public long getFramesEncoded() {
+        return alnEncoded.get();
+    }
+
+    /**
+     * Gets the number of frames skipped because a viewer was behind.
+     *
+     * @return The number of frames.
+     */
+    public long getFramesSkipped() {
+        return alnSkipped.get();
+    }
+
+    /**
+     * Gets the number of viewers disconnected for being too far behind.
+     *
+     * @return The number of viewers.
+     */
+    public long getViewersDropped() {
+        return alnDropped.get();
+    }
+
+    private void accept(ServerSocketChannel sscServer) throws IOException {
+        SocketChannel scnCliente;
+        while ((scnCliente = sscServer.accept()) != null) {
+            scnCliente.configureBlocking(false);
+            scnCliente.socket().setTcpNoDelay(true);
+            SelectionKey slkKey = scnCliente.register(selSelector, SelectionKey.OP_READ);
+            Viewer vwrViewer = new Viewer(scnCliente, slkKey);
+            slkKey.attach(vwrViewer);
+            vwrViewer.iIndex = lstViewers.size();
+            lstViewers.add(vwrViewer);
+            alnViewers.incrementAndGet();
+            //recibe un keyframe en el proximo tick
+            bWantKeyframe = true;
+        }
+    }
+
+    private void handle(SelectionKey slkKey, ByteBuffer bbfDescarte) {
+        Viewer vwrViewer = (Viewer) slkKey.attachment();
+        try {
+            if (slkKey.isReadable()) {
+                bbfDescarte.clear();
+                if (vwrViewer.scnChannel.read(bbfDescarte) < 0) {
+                    close(vwrViewer);
+                    return;
+                }
+            }
+            if (slkKey.isValid() && slkKey.isWritable()) {
+                vwrViewer.flush();
+            }
+        } catch (IOException e) {
+            close(vwrViewer);
+        }
+    }
+
+    /**
+     * Plays one tick, encodes it and hands it to every viewer.
+     */
+    private void tick() {
+        if (sneEngine.isNewGame() || sneEngine.isGameOver()) {
+            sneEngine.resetGame();
+        } else {
+            sneEngine.step(splPolicy.nextDirection(sneEngine));
+        }
+
+        /*
+		 * Encode the tick into its buffer: a keyframe for everybody if a
+		 * delta would not do, otherwise the delta and, if somebody needs
+		 * one, a keyframe after it.
+         */
+        GameBoard gbdBoard = sneEngine.getBoard();
+        long lTicks = ++lTick;
+        boolean bKeyframeForAll = gbdBoard.isAllChanged()
+                || lTicks - lKeyframeTick >= lKEYFRAME_INTERVAL
+                || gbdBoard.getChangeCount() > gbdBoard.getTileCount() / 8;
+        int iSlot = (int) (lTicks % iSLOTS);
+        ByteBuffer bbfSlot = bbfSlots[iSlot];
+        bbfSlot.clear();
+        int iDeltaEnd = 0;
+        if (bKeyframeForAll) {
+            lKeyframeTick = lTicks;
+        } else {
+            GameProtocol.writeDelta(sneEngine, bbfSlot);
+            iDeltaEnd = bbfSlot.position();
+            alnEncoded.incrementAndGet();
+        }
+        int iKeyframeEnd = iDeltaEnd;
+        if (bKeyframeForAll || bWantKeyframe) {
+            GameProtocol.writeState(sneEngine, bbfSlot);
+            iKeyframeEnd = bbfSlot.position();
+            alnEncoded.incrementAndGet();
+        }
+        gbdBoard.clearChanges();
+        bWantKeyframe = false;
+
+        //de atras para adelante, cerrar un viewer mueve el ultimo a su lugar
+        ByteBuffer bbfVista = bbfVistas[iSlot];
+        for (int iI = lstViewers.size() - 1; iI >= 0; iI--) {
+            Viewer vwrViewer = lstViewers.get(iI);
+            if (vwrViewer.bbfPending != null && vwrViewer.bbfPending.hasRemaining()) {
+                if (lTicks - vwrViewer.lPendingTick >= iSLOTS) {
+                    //el resto de su frame ya fue sobreescrito
+                    alnDropped.incrementAndGet();
+                    close(vwrViewer);
+                } else {
+                    vwrViewer.bSynced = false;
+                    bWantKeyframe = true;
+                    alnSkipped.incrementAndGet();
+                }
+                continue;
+            }
+
+            int iStart;
+            int iEnd;
+            if (vwrViewer.bSynced && !bKeyframeForAll) {
+                iStart = 0;
+                iEnd = iDeltaEnd;
+            } else if (iKeyframeEnd > iDeltaEnd) {
+                iStart = iDeltaEnd;
+                iEnd = iKeyframeEnd;
+            } else {
+                //llego despues de que se decidio este tick, espera al proximo
+                bWantKeyframe = true;
+                continue;
+            }
+            ByteBuffer bbfFrame = bbfVista.duplicate();
+            bbfFrame.limit(iEnd).position(iStart);
+            vwrViewer.bbfPending = bbfFrame;
+            vwrViewer.lPendingTick = lTicks;
+            vwrViewer.bSynced = true;
+            alnFrames.incrementAndGet();
+            try {
+                vwrViewer.flush();
+            } catch (IOException e) {
+                close(vwrViewer);
+            }
+        }
+    }
+
+    private void close(Viewer vwrViewer) {
+        if (vwrViewer.iIndex == -1) {
+            return;
+        }
+        //quita el viewer de la lista cambiandolo por el ultimo
+        Viewer vwrLast = lstViewers.remove(lstViewers.size() - 1);
+        if (vwrLast != vwrViewer) {
+            lstViewers.set(vwrViewer.iIndex, vwrLast);
+            vwrLast.iIndex = vwrViewer.iIndex;
+        }
+        vwrViewer.iIndex = -1;
+        alnViewers.decrementAndGet();
+        vwrViewer.slkKey.cancel();
+        try {
+            vwrViewer.scnChannel.close();
+        } catch (IOException e) {
+            //ya no hay nada que hacer con esta conexion
+        }
+    }
+
+    /**
+     * Runs a server from the command line with the autopilot playing,
+     * printing its counters every few seconds.
+     *
+     * @param args Optionally the port, and the number of columns and rows.
+     */
+    public static void main(String[] args) throws IOException {
+        int iPort = args.length >= 1 ? Integer.parseInt(args[0]) : iDEFAULT_PORT;
+        int iColumns = GameBoard.iDEFAULT_COL_COUNT;
+        int iRows = GameBoard.iDEFAULT_ROW_COUNT;
+        if (args.length >= 3) {
+            iColumns = Integer.parseInt(args[1]);
+            iRows = Integer.parseInt(args[2]);
+        }
+        SpectatorServer spsServer = new SpectatorServer(iPort, iColumns, iRows,
+                new Autopilot(iColumns, iRows));
+
+        Thread thrReporte = new Thread(() -> {
+            long lLastFrames = 0;
+            while (true) {
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long lFrames = spsServer.getFramesSent();
+                System.out.printf("viewers %d, frames/s %.0f, encoded %d, skipped %d, dropped %d%n",
+                        spsServer.getViewerCount(), (lFrames - lLastFrames) / 5.0,
+                        spsServer.getFramesEncoded(), spsServer.getFramesSkipped(),
+                        spsServer.getViewersDropped());
+                lLastFrames = lFrames;
+            }
+        }, "spectator-report");
+        thrReporte.setDaemon(true);
+        thrReporte.start();
+
+        System.out.println("Streaming on port " + iPort);
+        spsServer.run();
+    }
+
+}